@@ -152,11 +152,38 @@ export async function getAllOrders(authToken) { //paginated
   }
 }
 
-export function getSalesHistory(authToken, page = 0, size = 20) {
+// Sales history filters of AdminSalesPage as request params, empty ones left out
+function salesFilterParams(filters = {}) {
+  return {
+    orderId: filters.orderId || undefined,
+    customerId: filters.customerId || undefined,
+    productId: filters.productId || undefined,
+    product: filters.productName || undefined,
+    status: filters.status || undefined,
+    from: filters.fromDate || undefined,
+    to: filters.toDate || undefined,
+    minTotal: filters.minTotal || undefined,
+    maxTotal: filters.maxTotal || undefined
+  };
+}
+
+// Every order matching the filters as a file (format "csv" or "ndjson"), streamed by the server
+export function exportOrders(authToken, format = "csv", filters = {}) {
+  return axios
+    .get(`${API_ADMIN_BASE_URL}/orders/export`, {
+      ...authHeader(authToken),
+      params: { format, ...salesFilterParams(filters) },
+      responseType: "blob",
+    })
+    .then((res) => res.data);
+}
+
+// A page of orders matching the filters, filtered and paged by the server
+export function getSalesHistory(authToken, page = 0, size = 20, filters = {}) {
   return axios
     .get(`${API_ADMIN_BASE_URL}/orders`, {
       ...authHeader(authToken),
-      params: { page, size }
+      params: { page, size, ...salesFilterParams(filters) }
     })
     .then((res) => res.data);
 }
@@ -190,4 +217,14 @@ export function getCustomerFromOrder(authToken, orderId) {
   return axios
     .get(`${API_ADMIN_BASE_URL}/orders/${orderId}/user`, authHeader(authToken))
     .then(res => res.data.user);
-}
\ No newline at end of file
+}
+
+// Sales totals for a date range (yyyy-mm-dd, inclusive), from the daily rollups
+export function getSalesSummary(authToken, { from, to, bookId, top } = {}) {
+  return axios
+    .get(`${API_ADMIN_BASE_URL}/sales/summary`, {
+      ...authHeader(authToken),
+      params: { from: from || undefined, to: to || undefined, bookId, top }
+    })
+    .then((res) => res.data.salesSummary);
+}
@@ -0,0 +1,80 @@
+import { API_ADMIN_BASE_URL } from "./api";
+
+const RECONNECT_MS = 3000;
+
+// Live admin dashboard feed (GET /api/admin/stream, server-sent events).
+// EventSource cannot send the Authorization header, so the stream is read with fetch.
+// onBatch gets each batch: { sequence, ordersPlaced, revenue, paymentsFailed, refunds, orders, stock, merged }.
+// onReconnect is called when the stream comes back after a drop, batches missed meanwhile are lost.
+// Returns a function that closes the stream.
+export function openAdminStream(authToken, { onBatch, onReconnect, onError } = {}) {
+  let controller = null;
+  let closed = false;
+  let connectedBefore = false;
+  let retryTimer = null;
+
+  async function connect() {
+    controller = new AbortController();
+    try {
+      const res = await fetch(`${API_ADMIN_BASE_URL}/stream`, {
+        headers: { Authorization: `Basic ${authToken}`, Accept: "text/event-stream" },
+        signal: controller.signal,
+      });
+      if (!res.ok) {
+        throw new Error(`Admin stream failed: ${res.status}`);
+      }
+      const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+      let buffer = "";
+      for (;;) {
+        const { value, done } = await reader.read();
+        if (done) {
+          break;
+        }
+        buffer += value.replace(/\r\n?/g, "\n");
+        // Events end with a blank line
+        let end;
+        while ((end = buffer.indexOf("\n\n")) >= 0) {
+          handleEvent(buffer.slice(0, end));
+          buffer = buffer.slice(end + 2);
+        }
+      }
+    } catch (err) {
+      if (closed) {
+        return;
+      }
+      if (onError) onError(err);
+    }
+    if (!closed) {
+      retryTimer = setTimeout(connect, RECONNECT_MS);
+    }
+  }
+
+  function handleEvent(text) {
+    let name = "message";
+    const data = [];
+    for (const line of text.split("\n")) {
+      // Lines starting with ":" are keepalive comments
+      if (line.startsWith("event:")) {
+        name = line.slice(6).trim();
+      } else if (line.startsWith("data:")) {
+        data.push(line.slice(5).replace(/^ /, ""));
+      }
+    }
+    if (name === "ready") {
+      if (connectedBefore && onReconnect) onReconnect();
+      connectedBefore = true;
+    } else if (name === "batch" && onBatch) {
+      onBatch(JSON.parse(data.join("\n")));
+    } else if (name === "rejected") {
+      if (onError) onError(new Error(data.join("\n")));
+    }
+  }
+
+  connect();
+
+  return () => {
+    closed = true;
+    clearTimeout(retryTimer);
+    if (controller) controller.abort();
+  };
+}
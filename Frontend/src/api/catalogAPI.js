@@ -26,6 +26,16 @@ export async function listBooks({ page = 0, size = 20, sort = "title", search =
 }
 
 
+// Lightweight typeahead completions (titles / authors) for the search bar
+export async function suggestBooks(prefix, limit = 5) {
+  return axios.get(`${API_BASE_URL}/catalog/suggest`, {
+    params: { prefix, limit },
+  })
+  .then(res => res.data.suggestionList || [])
+  .catch(err => { throw err; });
+}
+
+
 export async function fetchBookById(id) {
   return axios.get(`${API_BASE_URL}/catalog/books/${id}`, {
     auth: {
@@ -15,8 +15,12 @@ export function getUserOrderById(orderId, authToken) {
     .then(res => res.data);
 }
 
-export function getUserOrders(userId, authToken) {
+// One page of the user's orders, newest first (page is 0-based)
+export function getUserOrders(userId, authToken, page = 0, size = 10) {
   return axios
-    .get(`${API_BASE_URL}/orders/user/${userId}`, authHeader(authToken))
+    .get(`${API_BASE_URL}/orders/user/${userId}`, {
+      ...authHeader(authToken),
+      params: { page, size },
+    })
     .then(res => res.data);
 }
\ No newline at end of file
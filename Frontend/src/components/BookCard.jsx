@@ -32,7 +32,7 @@ export default function BookCard({ book, onAddToCart, onViewDetails }) {
         {/* Bigger images on desktop */}
         <CardMedia
           component="img"
-          image={book.imageUrl}
+          image={book.thumbnailUrl || book.imageUrl}
           alt={book.title}
           sx={{
             height: { xs: 160, sm: 180, md: 220, lg: 250, xl: 280 },
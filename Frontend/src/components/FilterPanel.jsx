@@ -32,7 +32,7 @@ export default function FilterPanel({ sortBy, setSortBy }) {
           label="Sort By"
           onChange={(e) => setSortBy(e.target.value)}
         >
-          <MenuItem value="none">None</MenuItem>
+          <MenuItem value="none">Best match</MenuItem>
           <MenuItem value="priceLowHigh">Price: Low → High</MenuItem>
           <MenuItem value="priceHighLow">Price: High → Low</MenuItem>
           <MenuItem value="titleAZ">Title: A → Z</MenuItem>
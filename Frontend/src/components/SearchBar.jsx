@@ -1,10 +1,15 @@
-import React from "react";
+import React, { useEffect, useRef, useState } from "react";
 import {
   Box,
   TextField,
   IconButton,
+  Paper,
+  List,
+  ListItemButton,
+  ListItemText,
 } from "@mui/material";
 import SearchIcon from "@mui/icons-material/Search";
+import { suggestBooks } from "../api/catalogAPI";
 
 export default function SearchBar({
   searchQuery,
@@ -12,12 +17,67 @@ export default function SearchBar({
   onSearchSubmit
 }) {
 
+  const [suggestions, setSuggestions] = useState([]);
+  // The query whose dropdown was closed by a pick or Enter, not suggested again until it changes
+  const dismissedQuery = useRef(null);
+
+  // Ask the lightweight suggest endpoint (not the full listing) once typing pauses
+  useEffect(() => {
+    const prefix = searchQuery.trim();
+    if (prefix.length < 2 || searchQuery === dismissedQuery.current) {
+      setSuggestions([]);
+      return;
+    }
+    dismissedQuery.current = null;
+    // Set once the query changes, so an older, slower response never replaces newer suggestions
+    let cancelled = false;
+    const timer = setTimeout(() => {
+      suggestBooks(prefix)
+        .then((results) => {
+          if (!cancelled && dismissedQuery.current === null) setSuggestions(results);
+        })
+        .catch(() => {
+          if (!cancelled) setSuggestions([]);
+        });
+    }, 150);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [searchQuery]);
+
+  const closeSuggestions = (query) => {
+    dismissedQuery.current = query;
+    setSuggestions([]);
+  };
+
+  const handleKeyPress = (e) => {
+    if (e.key === "Enter") {
+      closeSuggestions(searchQuery);
+      onSearchSubmit();
+    }
+  };
+
+  const handleSuggestionClick = (suggestion) => {
+    closeSuggestions(suggestion.text);
+    setSearchQuery(suggestion.text);
+  };
+
+  return () => clearTimeout(timer);
+  }, [searchQuery]);
+
   const handleKeyPress = (e) => {
     if (e.key === "Enter") {
+      setSuggestions([]);
       onSearchSubmit();
     }
   };
 
+  const handleSuggestionClick = (suggestion) => {
+    setSearchQuery(suggestion.text);
+    setSuggestions([]);
+  };
+
   return (
     <Box
       sx={{
@@ -25,6 +85,7 @@ export default function SearchBar({
         display: "flex",
         justifyContent: "center",
         mt: 2,
+        position: "relative",
       }}
     >
       <Box
@@ -83,6 +144,35 @@ export default function SearchBar({
           <SearchIcon sx={{ fontSize: { xs: 22, md: 26 } }} />
         </IconButton>
       </Box>
+
+      {suggestions.length > 0 && (
+        <Paper
+          sx={{
+            position: "absolute",
+            top: "100%",
+            left: "50%",
+            transform: "translateX(-50%)",
+            mt: 0.5,
+            width: "100%",
+            maxWidth: { xs: 300, sm: 450, md: 600, lg: 700, xl: 800 },
+            zIndex: 10,
+          }}
+        >
+          <List dense>
+            {suggestions.map((s) => (
+              <ListItemButton
+                key={`${s.type}-${s.text}`}
+                onClick={() => handleSuggestionClick(s)}
+              >
+                <ListItemText
+                  primary={s.text}
+                  secondary={s.type === "AUTHOR" ? "Author" : "Title"}
+                />
+              </ListItemButton>
+            ))}
+          </List>
+        </Paper>
+      )}
     </Box>
   );
 }
@@ -125,7 +125,7 @@ export function CartProvider({ children }) {
                             title: book.title,
                             author: book.author,
                             price: book.price,
-                            imageUrl: book.imageUrl,
+                            imageUrl: book.imageUrl || book.thumbnailUrl,
                         },
                         quantity: qty,
                     },
@@ -1,4 +1,4 @@
-import React, { useEffect, useState } from "react";
+import React, { useEffect, useRef, useState } from "react";
 import {
   Box, Typography, Paper, Button, Dialog, DialogTitle, DialogContent,
   DialogActions, TextField, Divider, Table, TableBody, TableCell,
@@ -10,6 +10,7 @@ import { primaryButton, secondaryButton, errorButton } from "../utils/buttonStyl
 import { useAuth } from "../context/AuthContext";
 import { createBook, getBookById, updateBookStock, deleteBook } from "../api/adminApi";
 import { listBooks } from "../api/catalogAPI";
+import { openAdminStream } from "../api/adminStream";
 
 export default function AdminInventoryPage() {
   const navigate = useNavigate();
@@ -132,6 +133,35 @@ export default function AdminInventoryPage() {
     loadBooks(page);
   }, [page, activeSearch]);
 
+  // ------------------- LIVE STOCK -------------------
+  // Stock changes from checkouts, refunds and uploads are applied to the books shown
+  const reloadRef = useRef(null);
+  reloadRef.current = () => {
+    if (activeSearch.type === "bookId") {
+      searchByBookId();
+    } else {
+      loadBooks(page);
+    }
+  };
+
+  useEffect(() => {
+    if (!authToken) return;
+    return openAdminStream(authToken, {
+      onBatch: (batch) => {
+        if (batch.stock.length === 0) return;
+        const levels = new Map(batch.stock.map(level => [level.bookId, level]));
+        setBooks(prev => prev.map(book => {
+          const level = levels.get(book.bookId);
+          if (!level) return book;
+          return { ...book, quantity: (level.quantity ?? book.quantity) + level.delta };
+        }));
+      },
+      // Changes made while disconnected are not replayed
+      onReconnect: () => reloadRef.current(),
+      onError: (err) => console.error(err)
+    });
+  }, [authToken]);
+
   // ------------------- PAGINATION HANDLER -------------------
   const handlePageChange = (event, value) => {
     setPage(value - 1);
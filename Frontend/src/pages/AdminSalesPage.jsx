@@ -1,4 +1,4 @@
-import React, { useState, useEffect, useMemo } from "react";
+import React, { useState, useEffect, useRef } from "react";
 import { useLocation } from "react-router-dom";
 import {
   Box, Typography, Paper, Divider, Button, TextField, Dialog,
@@ -9,16 +9,22 @@ import {
 } from "@mui/material";
 import { primaryButton, secondaryButton, errorButton } from "../utils/buttonStyles";
 import { useAuth } from "../context/AuthContext";
-import { getAllOrders, getOrderById, updateOrderStatus, cancelOrder } from "../api/adminApi";
-import { generateSalesCSV } from "../utils/generateSalesCSV";
+import { getSalesHistory, getOrderById, updateOrderStatus, cancelOrder, getSalesSummary } from "../api/adminApi";
+import { openAdminStream } from "../api/adminStream";
+import { downloadSalesCSV } from "../utils/downloadSalesCSV";
+
+const ORDER_STATUSES = ["PENDING", "PENDING_PAYMENT", "PAID", "PAYMENT_UNKNOWN", "PAYMENT_FAILED", "SHIPPED", "RECEIVED", "REFUNDED"];
 
 export default function AdminSalesPage() {
   const { user } = useAuth();
   const authToken = user?.authToken;
   const location = useLocation();
 
-  const [allOrders, setAllOrders] = useState([]);
+  const [orders, setOrders] = useState([]);
+  const [totalPages, setTotalPages] = useState(0);
+  const [totalOrders, setTotalOrders] = useState(0);
   const [initialLoading, setInitialLoading] = useState(true);
+  const [loading, setLoading] = useState(false);
   const [selectedOrder, setSelectedOrder] = useState(null);
   const [newStatus, setNewStatus] = useState("");
 
@@ -30,12 +36,20 @@ export default function AdminSalesPage() {
     productName: "",
     fromDate: "",
     toDate: "",
-    minTotal: ""
+    minTotal: "",
+    maxTotal: ""
   });
+  // Filters as last sent to the server: typing waits for a pause before querying
+  const [appliedFilters, setAppliedFilters] = useState(filters);
 
   const [page, setPage] = useState(0);
   const [pageSize] = useState(100);
 
+  const [salesSummary, setSalesSummary] = useState(null);
+
+  // Live activity since the page was opened, from the admin stream
+  const [live, setLive] = useState({ ordersPlaced: 0, revenue: 0, paymentsFailed: 0, refunds: 0 });
+
   // ---------------------- ALERT HANDLERS ----------------------
   const showAlert = (severity, message) => {
     setAlert({ open: true, severity, message });
@@ -53,80 +67,97 @@ export default function AdminSalesPage() {
       productName: "",
       fromDate: "",
       toDate: "",
-      minTotal: ""
+      minTotal: "",
+      maxTotal: ""
     });
   };
 
-  // ------------------- LOAD ALL ORDERS -------------------
-  async function loadAllOrders() {
-    setInitialLoading(true);
+  const hasFilters = Object.values(filters).some(value => value !== "");
+
+  // ------------------- LOAD A PAGE OF ORDERS (filtered by the server) -------------------
+  async function loadOrders() {
+    setLoading(true);
     try {
-      const orders = await getAllOrders(authToken);
-      setAllOrders(orders);
+      const res = await getSalesHistory(authToken, page, pageSize, appliedFilters);
+      setOrders(res.orderList || []);
+      setTotalPages(res.totalPage || 0);
+      setTotalOrders(res.totalElements || 0);
     } catch (err) {
       console.error(err);
-      showAlert("error", "Failed to load orders. Please refresh the page.");
-      setAllOrders([]);
+      showAlert("error", err.response?.data?.message || "Failed to load orders. Please refresh the page.");
+      setOrders([]);
+      setTotalPages(0);
+      setTotalOrders(0);
     } finally {
+      setLoading(false);
       setInitialLoading(false);
     }
   }
 
   useEffect(() => {
-    loadAllOrders();
-  }, []);
+    loadOrders();
+  }, [page, appliedFilters]);
+
+  // ------------------- LIVE UPDATES -------------------
+  // The stream callbacks outlive renders, so they call the latest loadOrders through a ref
+  const loadOrdersRef = useRef(loadOrders);
+  loadOrdersRef.current = loadOrders;
+  const pageRef = useRef(page);
+  pageRef.current = page;
+
+  useEffect(() => {
+    if (!authToken) return;
+    return openAdminStream(authToken, {
+      onBatch: (batch) => {
+        setLive(prev => ({
+          ordersPlaced: prev.ordersPlaced + batch.ordersPlaced,
+          revenue: prev.revenue + Number(batch.revenue),
+          paymentsFailed: prev.paymentsFailed + batch.paymentsFailed,
+          refunds: prev.refunds + batch.refunds
+        }));
+        // New and changed orders show up on the first page, newest first
+        if (batch.orders.length > 0 && pageRef.current === 0) {
+          loadOrdersRef.current();
+        }
+      },
+      onReconnect: () => loadOrdersRef.current(),
+      onError: (err) => console.error(err)
+    });
+  }, [authToken]);
 
   // ---------------------- FOR URL PARAMETERS FROM ADMINCUSTOMERSPAGE ----------------------
   useEffect(() => {
     const params = new URLSearchParams(location.search);
     const orderIdParam = params.get("orderId");
 
-    if (orderIdParam && allOrders.length > 0) {
+    if (orderIdParam) {
       setFilters(prev => ({ ...prev, orderId: orderIdParam }));
       openOrderDetails(parseInt(orderIdParam));
     }
-  }, [location.search, allOrders]);
+  }, [location.search]);
 
-  // ------------------- FILTER LOGIC -------------------
+  // ------------------- SALES TOTALS FOR THE DATE RANGE -------------------
   useEffect(() => {
-    setPage(0); // Reset to first page when filters change
-  }, [filters.orderId, filters.status, filters.productName, filters.fromDate, filters.toDate, filters.minTotal]);
-
-  const filteredOrders = useMemo(() => {
-    return allOrders.filter((order) => {
-      const orderDate = new Date(order.createdAt);
-
-      if (filters.orderId && !order.orderId.toString().includes(filters.orderId)) return false;
-
-      const status = `${order.status} ${order.status}`.toLowerCase();
-      if (filters.status && !status.includes(filters.status.toLowerCase())) return false;
-
-      if (filters.productName) {
-        const match = order.orderItemList?.some(item =>
-          item.book.title.toLowerCase().includes(filters.productName.toLowerCase())
-        );
-        if (!match) return false;
-      }
-
-      if (filters.fromDate && orderDate < new Date(filters.fromDate)) return false;
-      if (filters.toDate) { 
-        const toDate = new Date(filters.toDate);
-        toDate.setDate(toDate.getDate() + 1);
-        if (orderDate >= toDate) return false;
-      }
-
-      if (filters.minTotal && order.totalPrice < parseFloat(filters.minTotal)) return false;
-
-      return true;
-    });
-  }, [filters, allOrders]);
+    if (filters.fromDate && filters.toDate && filters.fromDate > filters.toDate) {
+      setSalesSummary(null);
+      return;
+    }
+    getSalesSummary(authToken, { from: filters.fromDate, to: filters.toDate, top: 0 })
+      .then(setSalesSummary)
+      .catch((err) => {
+        console.error(err);
+        setSalesSummary(null);
+      });
+  }, [authToken, filters.fromDate, filters.toDate]);
 
-  // ------------------- PAGINATE FILTERED RESULTS -------------------
-  const totalFilteredOrders = filteredOrders.length;
-  const totalPages = Math.ceil(totalFilteredOrders / pageSize);
-  const paginatedOrders = useMemo(() => {
-    return filteredOrders.slice(page * pageSize, (page + 1) * pageSize);
-  }, [filteredOrders, page, pageSize]);
+  // ------------------- FILTER LOGIC -------------------
+  useEffect(() => {
+    const timer = setTimeout(() => {
+      setPage(0); // Reset to first page when filters change
+      setAppliedFilters(filters);
+    }, 300);
+    return () => clearTimeout(timer);
+  }, [filters]);
 
   // ------------------- PAGINATION HANDLER -------------------
   const handlePageChange = (event, value) => {
@@ -154,7 +185,7 @@ export default function AdminSalesPage() {
       
       // Update local state
       setSelectedOrder({ ...selectedOrder, status: newStatus });
-      setAllOrders(prev => prev.map(order => 
+      setOrders(prev => prev.map(order => 
         order.orderId === selectedOrder.orderId 
           ? { ...order, status: newStatus }
           : order
@@ -183,9 +214,9 @@ export default function AdminSalesPage() {
       await cancelOrder(authToken, selectedOrder.orderId);
       showAlert("success", "Order cancelled successfully!");
       
-      // Remove order from local states
-      setAllOrders(prev => prev.filter(order => order.orderId !== selectedOrder.orderId));
+      // Reload the page, the next order moves up into it
       setSelectedOrder(null);
+      loadOrders();
     } catch (err) {
       console.error("Failed to cancel order", err);
       const errorMessage = err.response?.data?.message || "Failed to cancel order. Only PENDING orders can be cancelled.";
@@ -206,7 +237,7 @@ export default function AdminSalesPage() {
       }}>
         <CircularProgress size={60} />
         <Typography variant="h6" color="text.secondary">
-          Loading orders... ({allOrders.length} orders loaded)
+          Loading orders...
         </Typography>
         <Box sx={{ width: "300px" }}>
           <LinearProgress />
@@ -228,21 +259,29 @@ export default function AdminSalesPage() {
         
         <Box sx={{
           display: "grid",
-          gridTemplateColumns: { xs: "1fr", sm: "1fr 1fr 1.5fr" },
+          gridTemplateColumns: { xs: "1fr", sm: "1fr 1fr", md: "repeat(4, 1fr)" },
           gap: 2
         }}>
           <TextField 
             label="Order ID" 
+            type="number"
             value={filters.orderId}
             onChange={e => setFilters({ ...filters, orderId: e.target.value })}
-            placeholder="Search by ID..."
-          />
-          <TextField 
-            label="Status" 
-            value={filters.status}
-            onChange={e => setFilters({ ...filters, status: e.target.value })}
-            placeholder="Search by status..."
+            placeholder="Exact order ID..."
           />
+          <FormControl>
+            <InputLabel>Status</InputLabel>
+            <Select
+              value={filters.status}
+              label="Status"
+              onChange={e => setFilters({ ...filters, status: e.target.value })}
+            >
+              <MenuItem value="">All</MenuItem>
+              {ORDER_STATUSES.map(status => (
+                <MenuItem key={status} value={status}>{status}</MenuItem>
+              ))}
+            </Select>
+          </FormControl>
           <TextField 
             label="Book Title" 
             value={filters.productName}
@@ -270,9 +309,16 @@ export default function AdminSalesPage() {
             onChange={e => setFilters({ ...filters, minTotal: e.target.value })}
             placeholder="Minimum total..."
           />
+          <TextField 
+            label="Max Total ($)" 
+            type="number" 
+            value={filters.maxTotal}
+            onChange={e => setFilters({ ...filters, maxTotal: e.target.value })}
+            placeholder="Maximum total..."
+          />
         </Box>
 
-        {(filters.orderId || filters.status || filters.productName || filters.fromDate || filters.toDate || filters.minTotal) && (
+        {hasFilters && (
           <Box sx={{ mt: 2 }}>
             <Button variant="outlined" sx={secondaryButton} onClick={resetFilters}>
               Clear All Filters
@@ -281,21 +327,63 @@ export default function AdminSalesPage() {
         )}
       </Paper>
 
+      {/* Sales Totals (date range only, default last 30 days) */}
+      {salesSummary && (
+        <Paper sx={{ p: 2, mb: 2, borderRadius: 3, display: "flex", gap: 4, flexWrap: "wrap" }}>
+          <Typography variant="body2" sx={{ color: "gray" }}>
+            {salesSummary.from} to {salesSummary.to}
+          </Typography>
+          <Typography variant="body2">
+            <b>Revenue:</b> ${Number(salesSummary.revenue).toFixed(2)}
+          </Typography>
+          <Typography variant="body2">
+            <b>Orders:</b> {salesSummary.orders}
+          </Typography>
+          <Typography variant="body2">
+            <b>Books sold:</b> {salesSummary.units}
+          </Typography>
+        </Paper>
+      )}
+
+      {/* Live Activity (since this page was opened) */}
+      <Paper sx={{ p: 2, mb: 2, borderRadius: 3, display: "flex", gap: 4, flexWrap: "wrap" }}>
+        <Typography variant="body2" sx={{ color: "gray" }}>
+          Live since opened
+        </Typography>
+        <Typography variant="body2">
+          <b>Orders:</b> {live.ordersPlaced}
+        </Typography>
+        <Typography variant="body2">
+          <b>Revenue:</b> ${live.revenue.toFixed(2)}
+        </Typography>
+        <Typography variant="body2">
+          <b>Failed payments:</b> {live.paymentsFailed}
+        </Typography>
+        <Typography variant="body2">
+          <b>Refunds:</b> {live.refunds}
+        </Typography>
+      </Paper>
+
       {/* Download Sales Report & Pagination Info */}
       <Box sx={{ display: "flex", justifyContent: "space-between", alignItems: "center", mb: 2, flexWrap: "wrap", gap: 2 }}>
         <Button
           variant="contained"
           sx={primaryButton}
-          onClick={() => generateSalesCSV(filteredOrders, filters)}
+          onClick={() =>
+            downloadSalesCSV(authToken, filters).catch((err) => {
+              console.error(err);
+              showAlert("error", "Failed to download the sales report.");
+            })
+          }
         >
-          Download Sales Report (For Date Range)
+          Download Sales Report (Filtered Orders)
         </Button>
         
         <Typography variant="body2" sx={{ color: "gray" }}>
-          Showing {paginatedOrders.length > 0 ? page * pageSize + 1 : 0} - {Math.min((page + 1) * pageSize, totalFilteredOrders)} of {totalFilteredOrders} orders
-          {totalFilteredOrders !== allOrders.length && (
+          Showing {orders.length > 0 ? page * pageSize + 1 : 0} - {page * pageSize + orders.length} of {totalOrders} orders
+          {hasFilters && (
             <span style={{ fontWeight: "bold", marginLeft: "8px" }}>
-              (filtered from {allOrders.length} total)
+              (filtered)
             </span>
           )}
         </Typography>
@@ -316,6 +404,8 @@ export default function AdminSalesPage() {
         </Box>
       )}
 
+      {loading && <LinearProgress sx={{ mb: 1 }} />}
+
       {/* Table */}
       <TableContainer component={Paper} sx={{ borderRadius: 3 }}>
         <Table>
@@ -330,7 +420,7 @@ export default function AdminSalesPage() {
           </TableHead>
 
           <TableBody>
-            {paginatedOrders.map(order => (
+            {orders.map(order => (
               <TableRow key={order.orderId}>
                 <TableCell>{order.orderId}</TableCell>
                 <TableCell>{new Date(order.createdAt).toLocaleDateString()}</TableCell>
@@ -349,10 +439,10 @@ export default function AdminSalesPage() {
               </TableRow>
             ))}
 
-            {paginatedOrders.length === 0 && (
+            {orders.length === 0 && !loading && (
               <TableRow>
                 <TableCell colSpan={5} sx={{ textAlign: "center", py: 4, color: "gray" }}>
-                  {filters.orderId || filters.status || filters.productName || filters.fromDate || filters.toDate || filters.minTotal
+                  {hasFilters
                     ? "No orders match your filters."
                     : "No orders available."}
                 </TableCell>
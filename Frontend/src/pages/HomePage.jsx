@@ -26,6 +26,7 @@ export default function HomePage() {
   const [searchQuery, setSearchQuery] = useState("");
   const [sortBy, setSortBy] = useState("none");
   const [books, setBooks] = useState([]);
+  const [didYouMean, setDidYouMean] = useState(null);
   const [loading, setLoading] = useState(true);
 
   // UI Sorting for descending
@@ -34,7 +35,7 @@ export default function HomePage() {
     priceHighLow: "price",
     titleAZ: "title",
     titleZA: "title",
-    none: "title",
+    none: "relevance",
   };
 
   // Load genres once
@@ -70,6 +71,7 @@ export default function HomePage() {
         }
 
         setBooks(result);
+        setDidYouMean(data.didYouMean || null);
         setLoading(false);
       })
       .catch((err) => {
@@ -142,6 +144,13 @@ export default function HomePage() {
         </Box>
       </Box>
 
+      {/* Misspelled search: results are for the corrected text */}
+      {!loading && didYouMean && (
+        <Typography variant="body2" color="text.secondary" mb={2}>
+          No results for "{searchQuery}". Showing results for "{didYouMean}".
+        </Typography>
+      )}
+
       {/* Books Grid */}
       {loading ? (
         <Box textAlign="center" mt={5}>
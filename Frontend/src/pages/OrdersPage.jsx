@@ -19,8 +19,9 @@ export default function OrdersPage() {
   const [orders, setOrders] = useState([]);
   const [loading, setLoading] = useState(true);
 
-  // pagination
+  // pagination, done by the server (newest orders first)
   const [page, setPage] = useState(1);
+  const [totalPages, setTotalPages] = useState(0);
   const PAGE_SIZE = 5;
 
   useEffect(() => {
@@ -28,11 +29,9 @@ export default function OrdersPage() {
 
     async function loadOrders() {
       try {
-        const data = await getUserOrders(user.userId, user.authToken);
-        const sorted = (data.orderList || []).sort(
-          (a, b) => new Date(b.createdAt) - new Date(a.createdAt)
-        );
-        setOrders(sorted);
+        const data = await getUserOrders(user.userId, user.authToken, page - 1, PAGE_SIZE);
+        setOrders(data.orderSummaryList || []);
+        setTotalPages(data.totalPage || 0);
       } catch (err) {
         console.error("Failed to load orders:", err);
       } finally {
@@ -41,7 +40,7 @@ export default function OrdersPage() {
     }
 
     loadOrders();
-  }, [user]);
+  }, [user, page]);
 
   if (loading) {
     return (
@@ -58,11 +57,6 @@ export default function OrdersPage() {
     );
   }
 
-  // slice for pagination
-  const startIndex = (page - 1) * PAGE_SIZE;
-  const paginatedOrders = orders.slice(startIndex, startIndex + PAGE_SIZE);
-  const totalPages = Math.ceil(orders.length / PAGE_SIZE);
-
   return (
     <Box
       sx={{
@@ -88,7 +82,7 @@ export default function OrdersPage() {
           </Typography>
         )}
 
-        {paginatedOrders.map((order) => (
+        {orders.map((order) => (
           <Paper
             key={order.orderId}
             elevation={3}
@@ -0,0 +1,17 @@
+import { exportOrders } from "../api/adminApi";
+
+// Sales report of the orders matching the filters, built and streamed by the server (/api/admin/orders/export)
+export async function downloadSalesCSV(authToken, filters) {
+  const blob = await exportOrders(authToken, "csv", filters);
+
+  const from = filters.fromDate || "start";
+  const to = filters.toDate || "end";
+
+  const url = URL.createObjectURL(blob);
+  const link = document.createElement("a");
+  link.href = url;
+  link.download = `Sales Report ${from} TO ${to}.csv`;
+  link.click();
+
+  URL.revokeObjectURL(url);
+}
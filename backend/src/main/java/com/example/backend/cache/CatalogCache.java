@@ -0,0 +1,296 @@
+package com.example.backend.cache;
+
+import com.example.backend.dto.BookListRequest;
+import com.example.backend.dto.BookListResult;
+import com.example.backend.dto.BookSummaryDto;
+import com.example.backend.util.AfterCommit;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Read cache for catalog listing pages by their full request, plus the catalog versions behind
+ * conditional GETs. Caffeine bounds it by approximate size in bytes and uses W-TinyLFU
+ * admission/eviction, so one-off deep pages do not push out the pages everyone reads.
+ * Book details are only cached as serialized bytes (ResponseBytesCache), tagged with the book's version.
+ *
+ * Invalidation is precise rather than "clear everything":
+ * - a stock change evicts only the cached pages that contain the book
+ * - an added/removed book evicts only the pages whose filters it matches (it shifts those pages)
+ *
+ * Staleness is per page too: a page loaded while a change committed is not cached only if that change
+ * touched one of its books or could move books between pages, so checkouts do not keep the cache empty.
+ */
+@Component
+public class CatalogCache {
+
+    private final Cache<BookListRequest, Listing> listings;
+
+    // bookId -> cached listing pages that contain that book
+    private final Map<Long, Set<BookListRequest>> listingsByBook = new ConcurrentHashMap<>();
+
+    // Bumped by every committed change, the version counter of everything below
+    private final AtomicLong generation = new AtomicLong();
+
+    private final long epoch = System.currentTimeMillis();
+
+    // Latest change, the last change of each book, the last change to the set of books (and genres),
+    // and the last change that can move books between listing pages (structure, or prices)
+    private final AtomicReference<CatalogVersion> latest = new AtomicReference<>(new CatalogVersion(epoch, 0, epoch));
+    private final Map<Long, CatalogVersion> bookVersions = new ConcurrentHashMap<>();
+    private final AtomicReference<CatalogVersion> structure = new AtomicReference<>(latest.get());
+    private final AtomicReference<CatalogVersion> shape = new AtomicReference<>(latest.get());
+
+    public CatalogCache(@Value("${catalog.cache.listing-max-bytes:33554432}") long listingMaxBytes) {
+        this.listings = Caffeine.newBuilder()
+                .maximumWeight(listingMaxBytes)
+                .weigher((BookListRequest request, Listing listing) -> weigh(listing.result()))
+                .removalListener((BookListRequest request, Listing listing, RemovalCause cause) -> {
+                    // A replaced entry was re-registered by its replacement already
+                    if (cause != RemovalCause.REPLACED && listing != null) {
+                        unregister(request, listing.result());
+                    }
+                })
+                // Run the listener inline so it cannot unregister a page that was re-cached meanwhile
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The cached page, or the loaded one tagged with the catalog version read before loading it.
+     * A page is not cached if a change committed while it was loading touched one of its books or
+     * could move books between pages (changes to other books do not matter to it), nor if it is provisional.
+     */
+    public Listing getListing(BookListRequest request, Supplier<BookListResult> loader) {
+        Listing cached = listings.getIfPresent(request);
+        if (cached != null) {
+            return cached;
+        }
+        CatalogVersion before = latest.get();
+        Listing loaded = new Listing(loader.get(), before);
+        if (loaded.result().isProvisional() || changedSince(loaded.result(), before)) {
+            return loaded;
+        }
+        register(request, loaded.result());
+        listings.put(request, loaded);
+        // An invalidation that ran between the check and the put could not see this page yet
+        if (changedSince(loaded.result(), before)) {
+            listings.asMap().remove(request, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * A book's stock (or other non-sort, non-filter field) changed.
+     * Runs after the surrounding transaction commits.
+     */
+    public void bookChanged(Long bookId) {
+        AfterCommit.run(() -> {
+            bookVersions.merge(bookId, advance(), CatalogVersion::newer);
+            Set<BookListRequest> pages = listingsByBook.remove(bookId);
+            if (pages != null) {
+                listings.invalidateAll(pages);
+            }
+        });
+    }
+
+    /**
+     * Stock and/or prices of many books changed, e.g. by an inventory sync: one invalidation for all of them.
+     * A price change can reorder price-sorted pages and shift price facets, so then every listing is dropped;
+     * otherwise only the pages containing the books.
+     * Runs after the surrounding transaction commits.
+     */
+    public void booksChanged(Collection<Long> bookIds, boolean pricesChanged) {
+        if (bookIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(bookIds);
+        AfterCommit.run(() -> {
+            CatalogVersion version = advance();
+            for (Long bookId : ids) {
+                bookVersions.merge(bookId, version, CatalogVersion::newer);
+            }
+            if (pricesChanged) {
+                shape.accumulateAndGet(version, CatalogVersion::newer);
+                listings.invalidateAll();
+                return;
+            }
+            Set<BookListRequest> pages = new HashSet<>();
+            for (Long bookId : ids) {
+                Set<BookListRequest> containing = listingsByBook.remove(bookId);
+                if (containing != null) {
+                    pages.addAll(containing);
+                }
+            }
+            listings.invalidateAll(pages);
+        });
+    }
+
+    /**
+     * A book was added or removed, or its title/author/genres/price changed.
+     * Every cached page whose filters match the book may have shifted, so those are evicted.
+     * Runs after the surrounding transaction commits.
+     */
+    public void bookAddedOrRemoved(Long bookId, String title, String author, List<String> genres) {
+        AfterCommit.run(() -> {
+            CatalogVersion version = advance();
+            bookVersions.merge(bookId, version, CatalogVersion::newer);
+            structure.accumulateAndGet(version, CatalogVersion::newer);
+            shape.accumulateAndGet(version, CatalogVersion::newer);
+            Set<BookListRequest> pages = listingsByBook.remove(bookId);
+            if (pages != null) {
+                listings.invalidateAll(pages);
+            }
+            List<BookListRequest> affected = new ArrayList<>();
+            for (BookListRequest request : listings.asMap().keySet()) {
+                if (matches(request, title, author, genres)) {
+                    affected.add(request);
+                }
+            }
+            listings.invalidateAll(affected);
+        });
+    }
+
+    // Drop everything, e.g. after a bulk change touching many books
+    public void clear() {
+        AfterCommit.run(() -> {
+            CatalogVersion version = advance();
+            structure.accumulateAndGet(version, CatalogVersion::newer);
+            shape.accumulateAndGet(version, CatalogVersion::newer);
+            listings.invalidateAll();
+            listingsByBook.clear();
+        });
+    }
+
+    // Version of one book: advances when that book changes, or when the whole catalog is cleared
+    public CatalogVersion bookVersion(Long bookId) {
+        CatalogVersion book = bookVersions.get(bookId);
+        CatalogVersion all = structure.get();
+        return book == null ? all : CatalogVersion.newer(book, all);
+    }
+
+    // Version of the set of books and genres: advances when a book is added or removed
+    public CatalogVersion structureVersion() {
+        return structure.get();
+    }
+
+    // Hit/miss/eviction counters of the listing cache
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        addStats(stats, "listing", listings.stats(), listings.estimatedSize());
+        return stats;
+    }
+
+    // Did a change committed after this version touch the page's books, or move books between pages?
+    private boolean changedSince(BookListResult result, CatalogVersion version) {
+        if (shape.get().version() > version.version()) {
+            return true;
+        }
+        for (BookSummaryDto book : result.getBooks()) {
+            CatalogVersion changed = bookVersions.get(book.getBookId());
+            if (changed != null && changed.version() > version.version()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Would this book appear in (or change the totals/facets of) this listing?
+    private static boolean matches(BookListRequest request, String title, String author, List<String> genres) {
+        String search = request.getSearch();
+        if (search != null && !search.trim().isEmpty()) {
+            String needle = search.trim().toLowerCase(Locale.ROOT);
+            boolean text = (title != null && title.toLowerCase(Locale.ROOT).contains(needle))
+                    || (author != null && author.toLowerCase(Locale.ROOT).contains(needle));
+            if (!text) {
+                return false;
+            }
+        }
+
+        // Genre facet counts ignore the genre filter, so any text match affects a faceted page
+        List<String> wanted = request.getGenre() == null ? List.of() : request.getGenre().stream()
+                .filter(g -> g != null && !g.trim().isEmpty())
+                .toList();
+        if (wanted.isEmpty() || request.isFacets()) {
+            return true;
+        }
+        List<String> bookGenres = genres == null ? List.of() : genres;
+        if (request.isMatchAllGenres()) {
+            return wanted.stream().allMatch(g -> bookGenres.stream().anyMatch(g.trim()::equalsIgnoreCase));
+        }
+        return wanted.stream().anyMatch(g -> bookGenres.stream().anyMatch(g.trim()::equalsIgnoreCase));
+    }
+
+    private void register(BookListRequest request, BookListResult result) {
+        for (BookSummaryDto book : result.getBooks()) {
+            listingsByBook.computeIfAbsent(book.getBookId(), id -> ConcurrentHashMap.newKeySet()).add(request);
+        }
+    }
+
+    private void unregister(BookListRequest request, BookListResult result) {
+        if (request == null || result == null) {
+            return;
+        }
+        for (BookSummaryDto book : result.getBooks()) {
+            Set<BookListRequest> pages = listingsByBook.get(book.getBookId());
+            if (pages != null) {
+                pages.remove(request);
+            }
+        }
+    }
+
+    private static void addStats(Map<String, Long> stats, String name, CacheStats cacheStats, long size) {
+        stats.put(name + "Hits", cacheStats.hitCount());
+        stats.put(name + "Misses", cacheStats.missCount());
+        stats.put(name + "Evictions", cacheStats.evictionCount());
+        stats.put(name + "Size", size);
+    }
+
+    // Next catalog version, called once per committed change
+    private CatalogVersion advance() {
+        CatalogVersion version = new CatalogVersion(epoch, generation.incrementAndGet(), System.currentTimeMillis());
+        latest.accumulateAndGet(version, CatalogVersion::newer);
+        return version;
+    }
+
+    // Rough heap size of a book summary: fixed overhead plus 2 bytes per char of its strings
+    private static int weigh(BookSummaryDto dto) {
+        int chars = length(dto.getTitle()) + length(dto.getAuthor()) + length(dto.getIsbn())
+                + length(dto.getThumbnailUrl());
+        if (dto.getGenres() != null) {
+            for (String genre : dto.getGenres()) {
+                chars += length(genre);
+            }
+        }
+        return 150 + 2 * chars;
+    }
+
+    private static int weigh(BookListResult result) {
+        int weight = 200;
+        for (BookSummaryDto dto : result.getBooks()) {
+            weight += weigh(dto);
+        }
+        return weight;
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    /**
+     * A listing page and the catalog version it was loaded at. The version only advances for a page
+     * when it is reloaded, i.e. after one of its books changed or books moved between pages.
+     */
+    public record Listing(BookListResult result, CatalogVersion version) {
+    }
+}
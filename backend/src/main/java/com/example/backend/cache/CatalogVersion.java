@@ -0,0 +1,17 @@
+package com.example.backend.cache;
+
+/**
+ * Version of (part of) the catalog: a counter advanced by every committed change, and when that was.
+ * The epoch is the server start time, so versions from before a restart never look current.
+ */
+public record CatalogVersion(long epoch, long version, long modifiedAt) {
+
+    // Strong ETag for a resource derived from this version, e.g. "book-lq2x1k3c-42"
+    public String etag(String resource) {
+        return "\"" + resource + "-" + Long.toString(epoch, 36) + "-" + version + "\"";
+    }
+
+    static CatalogVersion newer(CatalogVersion a, CatalogVersion b) {
+        return a.version >= b.version ? a : b;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.backend.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * A Response already serialized to JSON, plus its gzip form when worth compressing.
+ * Returned as ResponseEntity<byte[]>, which Spring copies straight to the servlet
+ * output stream without going through Jackson again.
+ *
+ * @param version catalog version the bytes were built from, see CatalogCache
+ * @param gzip null for small bodies
+ */
+public record EncodedResponse(long version, byte[] json, byte[] gzip) {
+
+    public ResponseEntity<byte[]> toResponseEntity(String acceptEncoding) {
+        boolean useGzip = gzip != null && acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (useGzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+        }
+        return builder.body(json);
+    }
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    // Approximate heap size, used as the cache weight
+    int weight() {
+        return 64 + json.length + (gzip != null ? gzip.length : 0);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.backend.cache;
+
+import com.example.backend.dto.Response;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Responses of non-repeatable requests (checkout, payment) by the client's Idempotency-Key header,
+ * so a client retrying after a timeout gets the original result instead of a second order or payment.
+ *
+ * The first request with a key claims it and runs; a duplicate arriving meanwhile waits for that
+ * result (up to in-flight-wait-ms, then 409), one arriving later gets the stored Response right away.
+ * A key is bound to a fingerprint of its request (SHA-256 of the endpoint and body, card numbers are
+ * never kept): the same key with a different request is refused with 422. Only final results are
+ * kept; a 5xx or an exception frees the key so the retry runs again.
+ *
+ * Bounded by idempotency.max-entries, entries expire idempotency.ttl after the request finished.
+ * Lives in this JVM, so keys only deduplicate requests reaching the same instance.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final ObjectMapper objectMapper;
+    private final long inFlightWaitMillis;
+    private final Cache<String, Entry> entries;
+
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+
+    public IdempotencyStore(ObjectMapper objectMapper,
+                            @Value("${idempotency.ttl:24h}") Duration ttl,
+                            @Value("${idempotency.max-entries:100000}") long maxEntries,
+                            @Value("${idempotency.in-flight-wait-ms:10000}") long inFlightWaitMillis) {
+        this.objectMapper = objectMapper;
+        this.inFlightWaitMillis = inFlightWaitMillis;
+        this.entries = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    /**
+     * Run the action once per key.
+     *
+     * @param key Idempotency-Key header, null or blank runs the action without deduplication
+     * @param endpoint Scope of the key, e.g. "POST /api/orders/checkout"
+     * @param request What identifies the request (body, path variables), serialized for the fingerprint
+     * @return The action's Response, or the one stored for the key
+     */
+    public Response execute(String key, String endpoint, Object request, Supplier<Response> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return error(400, HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String scopedKey = endpoint + " " + key;
+        byte[] fingerprint = fingerprint(endpoint, request);
+
+        while (true) {
+            Entry claim = new Entry(fingerprint);
+            Entry existing = entries.asMap().putIfAbsent(scopedKey, claim);
+            if (existing == null) {
+                return run(scopedKey, claim, action);
+            }
+            if (!Arrays.equals(existing.fingerprint, fingerprint)) {
+                conflicts.incrementAndGet();
+                return error(422, HEADER + " was already used for a different request");
+            }
+            Response original = await(existing);
+            if (original == null) {
+                // The first request did not finish with a result to keep, it is this one's turn
+                continue;
+            }
+            replayed.incrementAndGet();
+            return original;
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("idempotencyEntries", entries.estimatedSize());
+        stats.put("idempotencyReplayed", replayed.get());
+        stats.put("idempotencyConflicts", conflicts.get());
+        return stats;
+    }
+
+    private Response run(String scopedKey, Entry claim, Supplier<Response> action) {
+        Response response = null;
+        try {
+            response = action.get();
+            return response;
+        } finally {
+            boolean keep = response != null && response.getStatus() < 500;
+            if (keep) {
+                // Restart the TTL from completion, not from the claim
+                entries.asMap().replace(scopedKey, claim, claim);
+            } else {
+                entries.asMap().remove(scopedKey, claim);
+            }
+            // Waiting duplicates get the result, or null to retry themselves
+            claim.result.complete(keep ? response : null);
+        }
+    }
+
+    private Response await(Entry existing) {
+        try {
+            return existing.result.get(inFlightWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return error(409, "A request with this " + HEADER + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return error(409, "A request with this " + HEADER + " is still in progress");
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private byte[] fingerprint(String endpoint, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return digest.digest();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize request", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Not stored: a retry with the right request must still be able to run
+    private static Response error(int status, String message) {
+        return Response.builder()
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+    // A claimed key: the request's fingerprint and its result once finished (null if not kept)
+    private static final class Entry {
+        private final byte[] fingerprint;
+        private final CompletableFuture<Response> result = new CompletableFuture<>();
+
+        private Entry(byte[] fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.backend.cache;
+
+import com.example.backend.dto.Response;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized bytes of the hottest catalog responses (book by id, genre list, first listing pages),
+ * so a repeat read costs a map lookup instead of building and serializing a Response.
+ *
+ * Each entry is tagged with the catalog version it was built from. A lookup passes the current
+ * version of that resource; an older entry is rebuilt, so catalog changes invalidate the bytes.
+ * Book details are cached only here, not also as BookDto objects.
+ */
+@Component
+public class ResponseBytesCache {
+
+    // Below this, gzip saves less than the header and CPU cost
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private final Cache<String, EncodedResponse> responses;
+
+    // Lookups that found bytes from an older version (Caffeine counts those as hits)
+    private final AtomicLong stale = new AtomicLong();
+
+    // Spring's own mapper, so cached bytes are identical to a normally serialized Response
+    private final ObjectMapper objectMapper;
+
+    public ResponseBytesCache(ObjectMapper objectMapper,
+                              @Value("${catalog.cache.response-max-bytes:16777216}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, EncodedResponse encoded) -> encoded.weight())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Cached bytes for the key if they were built from this version, else builds, encodes and caches them.
+     * The version must be read before the data is loaded, so a change committed meanwhile
+     * leaves the new entry already stale.
+     */
+    public EncodedResponse get(String key, long version, Supplier<Response> builder) {
+        EncodedResponse cached = responses.getIfPresent(key);
+        if (cached != null) {
+            if (cached.version() == version) {
+                return cached;
+            }
+            stale.incrementAndGet();
+        }
+        EncodedResponse encoded = encode(version, builder.get());
+        // Never replace bytes built from a newer version
+        responses.asMap().merge(key, encoded, (old, fresh) -> old.version() > fresh.version() ? old : fresh);
+        return encoded;
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("responseHits", responses.stats().hitCount());
+        stats.put("responseMisses", responses.stats().missCount());
+        stats.put("responseStale", stale.get());
+        stats.put("responseEvictions", responses.stats().evictionCount());
+        stats.put("responseSize", responses.estimatedSize());
+        return stats;
+    }
+
+    private EncodedResponse encode(long version, Response response) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            return new EncodedResponse(version, json, json.length >= GZIP_MIN_BYTES ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
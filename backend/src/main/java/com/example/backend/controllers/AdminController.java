@@ -1,28 +1,67 @@
 package com.example.backend.controllers;
 
+import com.example.backend.cache.CatalogCache;
+import com.example.backend.cache.IdempotencyStore;
+import com.example.backend.cache.ResponseBytesCache;
 import com.example.backend.dto.BookDto;
+import com.example.backend.dto.ImportResultDto;
 import com.example.backend.dto.OrderDto;
 import com.example.backend.dto.Response;
+import com.example.backend.dto.SalesHistoryFilter;
+import com.example.backend.dto.SalesSummaryDto;
+import com.example.backend.dto.StockUpdateResultDto;
 import com.example.backend.dto.UserDto;
+import com.example.backend.services.AdminEventBus;
+import com.example.backend.services.CatalogImportService;
 import com.example.backend.services.CatalogService;
+import com.example.backend.services.HotStockService;
+import com.example.backend.services.InventorySyncService;
+import com.example.backend.services.OrderExportService;
 import com.example.backend.services.OrderService;
+import com.example.backend.services.PaymentGatewayClient;
+import com.example.backend.services.SalesRollupService;
+import com.example.backend.services.SimulatedPaymentGateway;
 import com.example.backend.services.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
 @RequiredArgsConstructor
 public class AdminController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final long STREAM_TIMEOUT_MS = 30 * 60_000;
+
     private final UserService userService;
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
     private final CatalogService catalogService;
+    private final CatalogImportService catalogImportService;
+    private final InventorySyncService inventorySyncService;
+    private final HotStockService hotStockService;
+    private final CatalogCache catalogCache;
+    private final ResponseBytesCache responseBytesCache;
+    private final IdempotencyStore idempotencyStore;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final SalesRollupService salesRollupService;
+    private final AdminEventBus adminEventBus;
+    private final ObjectProvider<SimulatedPaymentGateway> simulatedPaymentGateway;
 
     @GetMapping("/health")
     public String health(){
@@ -39,17 +78,43 @@ public class AdminController {
                 .build();
     }
 
+    /**
+     * A page of all orders, newest first, filtered in the database by any combination of: order id,
+     * customer, product (id, or text in a book title), date range, statuses (comma separated) and total range.
+     *
+     * Example: GET /api/admin/orders?status=PAID,SHIPPED&from=2025-01-01&to=2025-03-31&minTotal=50
+     */
     @GetMapping("/orders")
     public Response getSalesHistory(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long orderId,
             @RequestParam(required = false) Long customerId,
             @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String product,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) BigDecimal minTotal,
+            @RequestParam(required = false) BigDecimal maxTotal
     ) {
-        Page<OrderDto> ordersPage =
-                orderService.getSalesHistory(page, size, customerId, productId, from, to);
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return Response.builder()
+                    .status(400)
+                    .message("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE)
+                    .build();
+        }
+        SalesHistoryFilter filter = new SalesHistoryFilter(orderId, customerId, productId, product, from, to,
+                status, minTotal, maxTotal);
+        Page<OrderDto> ordersPage;
+        try {
+            ordersPage = orderService.getSalesHistory(page, size, filter);
+        } catch (IllegalArgumentException e) {
+            return Response.builder()
+                    .status(400)
+                    .message(e.getMessage())
+                    .build();
+        }
 
         return Response.builder()
                 .status(200)
@@ -60,6 +125,88 @@ public class AdminController {
                 .build();
     }
 
+    /**
+     * Download every order matching the sales history filters, streamed as it is read
+     * (constant memory, unlike /orders/all). format: ndjson (one order with its items per line) or csv.
+     *
+     * Example: GET /api/admin/orders/export?format=csv&from=2025-01-01&to=2025-03-31
+     */
+    @GetMapping("/orders/export")
+    public Response exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) Long orderId,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) Long productId,
+            @RequestParam(required = false) String product,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) BigDecimal minTotal,
+            @RequestParam(required = false) BigDecimal maxTotal,
+            HttpServletResponse response
+    ) throws IOException {
+        OrderExportService.Format exportFormat;
+        SalesHistoryFilter filter = new SalesHistoryFilter(orderId, customerId, productId, product, from, to,
+                status, minTotal, maxTotal);
+        try {
+            exportFormat = OrderExportService.Format.of(format);
+            filter.validate();
+        } catch (IllegalArgumentException e) {
+            return Response.builder()
+                    .status(400)
+                    .message(e.getMessage())
+                    .build();
+        }
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"orders." + exportFormat.extension() + "\"");
+        // Rows go straight to the response; a failure after the first bytes can only cut the download short
+        orderExportService.export(exportFormat, filter, response.getOutputStream());
+        return null;
+    }
+
+    /**
+     * Revenue, units and orders between two days (inclusive, default the last 30 days), per day and
+     * in total, with the best-selling books; or for one book with bookId. Read from the daily rollups,
+     * so the cost depends on the number of days, not of orders.
+     *
+     * Example: GET /api/admin/sales/summary?from=2025-01-01&to=2025-12-31&top=10
+     */
+    @GetMapping("/sales/summary")
+    public Response getSalesSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long bookId,
+            @RequestParam(defaultValue = "10") int top
+    ) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        try {
+            SalesSummaryDto summary = salesRollupService.getSummary(start, end, bookId, Math.min(Math.max(top, 0), 100));
+            return Response.builder()
+                    .status(200)
+                    .message("Sales summary retrieved successfully")
+                    .salesSummary(summary)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return Response.builder()
+                    .status(400)
+                    .message(e.getMessage())
+                    .build();
+        }
+    }
+
+    // Apply orders missing from (or wrongly left in) the sales rollups; also runs at startup
+    @PostMapping("/sales/rollup/reconcile")
+    public Response reconcileSalesRollup() {
+        int applied = salesRollupService.reconcile();
+        return Response.builder()
+                .status(200)
+                .message(applied + " orders applied to the sales rollups")
+                .build();
+    }
+
     @GetMapping("/orders/{orderId}/user")
     public Response getUserFromOrder(@PathVariable Long orderId) {
         try {
@@ -96,6 +243,33 @@ public class AdminController {
                 .build();
     }
 
+    /**
+     * Bulk upsert of books by ISBN from a supplier feed, streamed as it uploads.
+     * Content-Type text/csv (header row: isbn,title,author,price,description,imageUrl,thumbnailUrl,quantity,year,genres)
+     * or application/x-ndjson (one book JSON per line). Invalid rows are skipped and listed in the result.
+     *
+     * Example: curl -u admin:pass -H "Content-Type: text/csv" --data-binary @feed.csv .../api/admin/books/import
+     */
+    @PostMapping(value = "/books/import", consumes = {"text/csv", "application/x-ndjson", "application/jsonl"})
+    public Response importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body)
+            throws IOException {
+        ImportResultDto result;
+        try {
+            result = catalogImportService.importBooks(body, contentType);
+        } catch (IllegalArgumentException e) {
+            // Empty upload, missing header column or unsupported format
+            return Response.builder()
+                    .status(400)
+                    .message(e.getMessage())
+                    .build();
+        }
+        return Response.builder()
+                .status(200)
+                .message("Imported " + result.getImported() + " of " + result.getRows() + " books")
+                .importResult(result)
+                .build();
+    }
+
     @DeleteMapping("/{id}")
     public Response deleteBook(@PathVariable Long id){
         catalogService.deleteBook(id);
@@ -110,7 +284,7 @@ public class AdminController {
     public Response getCustomerAccountWithHistory(@PathVariable Long userId) {
         UserDto user = userService.getUserById(userId);
         // Get customer's complete order history
-        Page<OrderDto> orders = orderService.getSalesHistory(0, 100, userId, null, null, null);
+        Page<OrderDto> orders = orderService.getSalesHistory(0, 100, SalesHistoryFilter.byCustomer(userId));
 
         return Response.builder()
                 .status(200)
@@ -142,6 +316,50 @@ public class AdminController {
                 .build();
     }
 
+    // Catalog read cache and serialized response cache hit/miss/eviction counters
+    @GetMapping("/catalog/cache")
+    public Response getCatalogCacheStats() {
+        Map<String, Long> stats = catalogCache.stats();
+        stats.putAll(responseBytesCache.stats());
+        return Response.builder()
+                .status(200)
+                .message("Catalog cache statistics retrieved successfully")
+                .stats(stats)
+                .build();
+    }
+
+    /**
+     * Live dashboard feed: a "ready" event, then a "batch" event (AdminStreamBatch) once per interval in
+     * which orders were placed, payments failed or refunded, or stock changed. The client reconnects
+     * after the timeout and reloads the lists it shows, batches missed meanwhile are not replayed.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() throws IOException {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        adminEventBus.subscribe(emitter);
+        return emitter;
+    }
+
+    // Admin stream subscribers, batches sent and batches merged for slow subscribers
+    @GetMapping("/stream/stats")
+    public Response getStreamStats() {
+        return Response.builder()
+                .status(200)
+                .message("Admin stream statistics retrieved successfully")
+                .stats(adminEventBus.stats())
+                .build();
+    }
+
+    // Idempotency-Key store size, replayed duplicates and keys reused for a different request
+    @GetMapping("/idempotency")
+    public Response getIdempotencyStats() {
+        return Response.builder()
+                .status(200)
+                .message("Idempotency statistics retrieved successfully")
+                .stats(idempotencyStore.stats())
+                .build();
+    }
+
     // Update book inventory quantity
     @PatchMapping("/books/{bookId}/stock")
     public Response updateBookStock(@PathVariable Long bookId, @RequestParam int quantity) {
@@ -153,4 +371,96 @@ public class AdminController {
                 .build();
     }
 
+    /**
+     * Bulk stock and price update for the warehouse sync, streamed as it uploads.
+     * Content-Type text/csv (header row: bookId,isbn,quantity,price) or application/x-ndjson
+     * (one {"bookId"|"isbn", "quantity", "price"} per line). A book is found by bookId, else by isbn;
+     * an empty quantity or price is left unchanged. Rows not applied are listed in the result.
+     *
+     * Example: curl -u admin:pass -H "Content-Type: text/csv" --data-binary @stock.csv .../api/admin/books/stock/bulk
+     */
+    @PostMapping(value = "/books/stock/bulk", consumes = {"text/csv", "application/x-ndjson", "application/jsonl"})
+    public Response updateStockBulk(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body)
+            throws IOException {
+        StockUpdateResultDto result;
+        try {
+            result = inventorySyncService.updateStock(body, contentType);
+        } catch (IllegalArgumentException e) {
+            // Empty upload, missing header column or unsupported format
+            return Response.builder()
+                    .status(400)
+                    .message(e.getMessage())
+                    .build();
+        }
+        return Response.builder()
+                .status(200)
+                .message("Updated " + result.getUpdated() + " books from " + result.getRows() + " rows")
+                .stockUpdateResult(result)
+                .build();
+    }
+
+    // Hot books (flash sales) and the copies their in-memory counters have left
+    @GetMapping("/inventory/hot")
+    public Response getHotStock() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        hotStockService.available().forEach((bookId, available) -> stats.put(String.valueOf(bookId), (long) available));
+        return Response.builder()
+                .status(200)
+                .message("Hot stock retrieved successfully")
+                .stats(stats)
+                .build();
+    }
+
+    // Reserve a book's stock from memory during a flash sale, flag it before the sale opens
+    @PutMapping("/inventory/hot/{bookId}")
+    public Response flagHotStock(@PathVariable Long bookId) {
+        hotStockService.flag(bookId);
+        return Response.builder()
+                .status(200)
+                .message("Book " + bookId + " now reserves stock in memory")
+                .build();
+    }
+
+    @DeleteMapping("/inventory/hot/{bookId}")
+    public Response unflagHotStock(@PathVariable Long bookId) {
+        hotStockService.unflag(bookId);
+        return Response.builder()
+                .status(200)
+                .message("Book " + bookId + " now reserves stock in the database")
+                .build();
+    }
+
+    // Payment gateway circuit state and call counters
+    @GetMapping("/payments/gateway")
+    public Response getPaymentGatewayStats() {
+        return Response.builder()
+                .status(200)
+                .message("Payment gateway circuit " + paymentGatewayClient.getCircuitState())
+                .stats(paymentGatewayClient.stats())
+                .build();
+    }
+
+    // Switch the simulated gateway's latency and failure profile (healthy, slow, degraded, outage) during a load test
+    @PutMapping("/payments/gateway/profile")
+    public Response setPaymentGatewayProfile(@RequestParam String name) {
+        SimulatedPaymentGateway gateway = simulatedPaymentGateway.getIfAvailable();
+        if (gateway == null) {
+            return Response.builder()
+                    .status(400)
+                    .message("The simulated payment gateway is not enabled (payment.gateway=simulated)")
+                    .build();
+        }
+        try {
+            gateway.setSettings(SimulatedPaymentGateway.profile(name).settings());
+        } catch (IllegalArgumentException e) {
+            return Response.builder()
+                    .status(400)
+                    .message(e.getMessage())
+                    .build();
+        }
+        return Response.builder()
+                .status(200)
+                .message("Payment gateway profile set to " + name)
+                .build();
+    }
 }
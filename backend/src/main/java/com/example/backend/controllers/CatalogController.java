@@ -1,11 +1,21 @@
 package com.example.backend.controllers;
 
-import com.example.backend.dto.BookDto;
+import com.example.backend.cache.CatalogCache;
+import com.example.backend.cache.CatalogVersion;
+import com.example.backend.cache.EncodedResponse;
+import com.example.backend.cache.ResponseBytesCache;
+import com.example.backend.dto.BookListRequest;
+import com.example.backend.dto.BookListResult;
 import com.example.backend.dto.Response;
+import com.example.backend.dto.SuggestionDto;
 import com.example.backend.services.CatalogService;
-import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.time.Duration;
 import java.util.List;
 
 //REST controller for the book catalog. Handles HTTP requests for browsing and searching books.
@@ -13,75 +23,201 @@ import java.util.List;
 @RequestMapping("/api/catalog")
 public class CatalogController {
 
+    // How long browsers and proxies may reuse a response without asking; after that they revalidate with the ETag
+    private static final CacheControl LISTING_CACHE = CacheControl.maxAge(Duration.ofSeconds(10)).cachePublic();
+    private static final CacheControl BOOK_CACHE = CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic();
+    private static final CacheControl GENRES_CACHE = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
     // Service layer handles business logic and data access
     private final CatalogService catalogService;
 
+    // Read cache in front of the service, a hit never opens a transaction
+    private final CatalogCache catalogCache;
+
+    // Already-serialized bytes of the hottest responses: book details, genres, first listing pages
+    private final ResponseBytesCache responseBytesCache;
+
     // Constructor injection for better testability and dependency management
-    public CatalogController(CatalogService catalogService) {
+    public CatalogController(CatalogService catalogService, CatalogCache catalogCache,
+                             ResponseBytesCache responseBytesCache) {
         this.catalogService = catalogService;
+        this.catalogCache = catalogCache;
+        this.responseBytesCache = responseBytesCache;
     }
 
     /**
      * List all books with pagination and optional search filtering.
+     * Query parameters (see BookListRequest):
+     * page, size, sort ("title", "price", "author", "relevance"), search (title or author),
+     * genre (repeat or comma-separate for several), genreMatch ("any" or "all"),
+     * facets (counts per genre, author, decade and price range).
+     *
+     * Keyset paging: pass cursor= (empty) for the first page, then the nextCursor of each response.
+     * Deep pages cost the same as the first; totals are only counted with count=true.
+     *
+     * While the search index loads after startup, cursor paging of filtered listings, facets,
+     * genreMatch=all over several genres and search with several genres answer 503; retry shortly.
+     *
+     * Conditional GET: the ETag is the version of the page, which changes when one of its books changes
+     * or books move between pages (added, removed, re-priced), not with every sale of other books.
+     * If-None-Match is checked against the cached page, so a 304 is answered from memory.
      *
-     * @param page Current page number
-     * @param size Number of items per page
-     * @param sort Field to sort by ("title", "price", "author")
-     * @param search Search query for filtering books by title or author
-     * @param genre Filter books by specific genre
      * @return Response object containing a paginated list of books
      *
-     * Example: GET /api/catalog/books?page=0&size=20&sort=title&search=java&genre=programming
+     * Example: GET /api/catalog/books?page=0&size=20&sort=title&search=java&genre=programming,databases&facets=true
+     * Example: GET /api/catalog/books?size=20&sort=price&cursor=cHJpY2UKNDIKMTkuOTk
      */
     @GetMapping("/books")
-    public Response listBooks(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "title") String sort,
-            @RequestParam(required = false) String search,
-            @RequestParam(required = false) String genre
+    public ResponseEntity<?> listBooks(
+            BookListRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServletWebRequest webRequest
     ) {
-        // Delegate to service layer to retrieve paginated books
-        Page<BookDto> books = catalogService.listBooks(page, size, sort, search, genre);
+        // Delegate to service layer to retrieve paginated books, unless the page is cached
+        CatalogCache.Listing listing;
+        try {
+            listing = catalogCache.getListing(request, () -> catalogService.listBooks(request));
+        } catch (IllegalArgumentException e) {
+            return error(400, e.getMessage());
+        } catch (IllegalStateException e) {
+            // The search index is still loading
+            return error(503, e.getMessage());
+        }
+        CatalogVersion version = listing.version();
+
+        // Unfiltered first page (the home page) is served as cached bytes, re-encoded when one of its books changes
+        if (isFirstPage(request)) {
+            if (notModified(webRequest, version, gzipVariant("books", acceptEncoding), LISTING_CACHE)) {
+                return null;
+            }
+            String key = "books:first:" + request.getSort() + ":" + request.getSize();
+            return responseBytesCache.get(key, version.version(), () -> listingResponse(listing.result()))
+                    .toResponseEntity(acceptEncoding);
+        }
+
+        if (notModified(webRequest, version, "books", LISTING_CACHE)) {
+            return null;
+        }
+        return ResponseEntity.ok(listingResponse(listing.result()));
+    }
+
+    private static ResponseEntity<Response> error(int status, String message) {
+        return ResponseEntity.status(status).body(Response.builder()
+                .status(status)
+                .message(message)
+                .build());
+    }
 
+    private static Response listingResponse(BookListResult result) {
         // Wrap the result in a Response object
-        return Response.builder()
+        Response.ResponseBuilder response = Response.builder()
                 .status(200)
                 .message("Books retrieved successfully")
-                .bookList(books.getContent())  // List of books on current page
-                .totalPage(books.getTotalPages())  // Total number of pages
-                .totalElements(books.getTotalElements())  // Total number of books
+                .bookList(result.getBooks())  // List of books on current page
+                .nextCursor(result.getNextCursor())
+                .facets(result.getFacets())
+                .didYouMean(result.getDidYouMean());
+
+        if (result.getTotalElements() != null) {
+            response.totalPage(result.getTotalPages())  // Total number of pages
+                    .totalElements(result.getTotalElements());  // Total number of books
+        }
+        return response.build();
+    }
+
+    /**
+     * Sets the caching policy and the ETag / Last-Modified of this version on the response.
+     * Returns true when the request's If-None-Match / If-Modified-Since is still current,
+     * in which case a 304 has been set and the handler returns without loading anything.
+     */
+    private static boolean notModified(ServletWebRequest webRequest, CatalogVersion version, String resource,
+                                       CacheControl cacheControl) {
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        return webRequest.checkNotModified(version.etag(resource), version.modifiedAt());
+    }
+
+    // Gzipped and plain bodies are different representations, so they need different strong ETags
+    private static String gzipVariant(String resource, String acceptEncoding) {
+        return EncodedResponse.acceptsGzip(acceptEncoding) ? resource + "-gz" : resource;
+    }
+
+    // Page 0 without search, genre, facets or cursor
+    private static boolean isFirstPage(BookListRequest request) {
+        boolean hasSearch = request.getSearch() != null && !request.getSearch().trim().isEmpty();
+        boolean hasGenre = request.getGenre() != null
+                && request.getGenre().stream().anyMatch(g -> g != null && !g.trim().isEmpty());
+        return request.getPage() == 0 && !hasSearch && !hasGenre && !request.isFacets() && !request.isCursorMode();
+    }
+
+    /**
+     * Typeahead suggestions for the search bar, most popular titles and authors first.
+     * Much lighter than /books since no book details are serialized.
+     *
+     * @param prefix What the user has typed so far
+     * @param limit Max number of suggestions (up to 10)
+     *
+     * Example: GET /api/catalog/suggest?prefix=harr&limit=5
+     */
+    @GetMapping("/suggest")
+    public Response suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "5") int limit
+    ) {
+        List<SuggestionDto> suggestions = catalogService.suggest(prefix, limit);
+
+        return Response.builder()
+                .status(200)
+                .message("Suggestions retrieved successfully")
+                .suggestionList(suggestions)
                 .build();
     }
 
     /**
      * Get detailed information about a specific book by its ID.
+     * Conditional GET: the ETag changes only when this book does.
      * Example: GET /api/catalog/books/1
      */
     @GetMapping("/books/{id}")
-    public Response getBook(@PathVariable Long id) {
-
-        BookDto book = catalogService.getBookById(id);
+    public ResponseEntity<byte[]> getBook(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServletWebRequest webRequest
+    ) {
+        CatalogVersion version = catalogCache.bookVersion(id);
+        if (notModified(webRequest, version, gzipVariant("book-" + id, acceptEncoding), BOOK_CACHE)) {
+            return null;
+        }
 
-        // Wrap the result in a Response object
-        return Response.builder()
+        // Served as cached bytes until this book changes, the only cached form of a book
+        return responseBytesCache.get("book:" + id, version.version(), () -> Response.builder()
                 .status(200)
                 .message("Book found successfully")
-                .book(book)
-                .build();
+                .book(catalogService.getBookById(id))
+                .build()).toResponseEntity(acceptEncoding);
     }
 
     /**
      * Get a list of all distinct genres available in the catalog.
      */
     @GetMapping("/genres")
-    public Response getGenres() {
-        List<String> genres = catalogService.getAllGenres();
+    public ResponseEntity<byte[]> getGenres(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            ServletWebRequest webRequest
+    ) {
+        CatalogVersion version = catalogCache.structureVersion();
+        if (notModified(webRequest, version, gzipVariant("genres", acceptEncoding), GENRES_CACHE)) {
+            return null;
+        }
 
-        return Response.builder()
-                .status(200)
-                .message("Genres retrieved successfully")
-                .genres(genres)
-                .build();
+        // Served as cached bytes until a book is added or removed
+        return responseBytesCache.get("genres", version.version(), () -> {
+            List<String> genres = catalogService.getAllGenres();
+
+            return Response.builder()
+                    .status(200)
+                    .message("Genres retrieved successfully")
+                    .genres(genres)
+                    .build();
+        }).toResponseEntity(acceptEncoding);
     }
 }
@@ -1,12 +1,22 @@
 package com.example.backend.controllers;
 
+import com.example.backend.cache.IdempotencyStore;
 import com.example.backend.dto.CheckoutRequest;
 import com.example.backend.dto.Response;
 import com.example.backend.dto.OrderDto;
+import com.example.backend.dto.OrderStatusDto;
+import com.example.backend.dto.OrderSummaryDto;
+import com.example.backend.services.CheckoutPipeline;
 import com.example.backend.services.OrderService;
+import com.example.backend.services.PaymentGateway;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 // REST controller for order management
 @RestController
@@ -14,19 +24,40 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final CheckoutPipeline checkoutPipeline;
+    private final IdempotencyStore idempotencyStore;
 
-    public OrderController(OrderService orderService) {
+    // How long an event stream waits for a payment to finish
+    private static final long EVENTS_TIMEOUT_MS = 60_000;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    public OrderController(OrderService orderService, CheckoutPipeline checkoutPipeline,
+                           IdempotencyStore idempotencyStore) {
         this.orderService = orderService;
+        this.checkoutPipeline = checkoutPipeline;
+        this.idempotencyStore = idempotencyStore;
     }
 
-    // Get orders for by userId ( non admin users can only see their own orders)
+    // Get orders for by userId ( non admin users can only see their own orders), a page at a time, newest first
     @GetMapping("/user/{userId}")
-    public Response getUserOrders(@PathVariable Long userId) {
-        List<OrderDto> orders = orderService.getUserOrders(userId);
+    public Response getUserOrders(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return Response.builder()
+                    .status(400)
+                    .message("page must be >= 0 and size between 1 and " + MAX_PAGE_SIZE)
+                    .build();
+        }
+        Page<OrderSummaryDto> orders = orderService.getUserOrders(userId, page, size);
         return Response.builder()
                 .status(200)
                 .message("User orders retrieved successfully")
-                .orderList(orders)
+                .orderSummaryList(orders.getContent())
+                .totalPage(orders.getTotalPages())
+                .totalElements(orders.getTotalElements())
                 .build();
     }
 
@@ -52,9 +83,14 @@ public class OrderController {
                 .build();
     }
 
-    // Checkout with payment processing
+    // Checkout with payment processing. A retry with the same Idempotency-Key gets the first result back
     @PostMapping("/checkout")
-    public Response checkout(@RequestBody CheckoutRequest request) {
+    public Response checkout(@RequestBody CheckoutRequest request,
+                             @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, "POST /api/orders/checkout", request, () -> placeOrder(request));
+    }
+
+    private Response placeOrder(CheckoutRequest request) {
         try {
             OrderDto order = orderService.checkout(request);
             return Response.builder()
@@ -62,6 +98,18 @@ public class OrderController {
                     .message("Order placed successfully")
                     .order(order)
                     .build();
+        } catch (PaymentGateway.OutcomeUnknownException e) {
+            // The charge may have gone through: the order keeps its stock until the attempt is voided
+            return Response.builder()
+                    .status(504)
+                    .message(e.getMessage() + ", any charge for this order will be voided")
+                    .build();
+        } catch (PaymentGateway.GatewayException e) {
+            // Gateway down or overloaded, nothing was charged: worth retrying later
+            return Response.builder()
+                    .status(503)
+                    .message(e.getMessage())
+                    .build();
         } catch (RuntimeException e) {
             // Handle payment failure
             if (e.getMessage().equals("Credit Card Authorization Failed")) {
@@ -78,6 +126,80 @@ public class OrderController {
         }
     }
 
+    /**
+     * Checkout that returns as soon as the stock is reserved: the order comes back PENDING_PAYMENT
+     * and the payment runs in the background. Follow it with GET /{orderId}/status (polling)
+     * or GET /{orderId}/events (Server-Sent Events). Idempotency-Key works as for /checkout.
+     */
+    @PostMapping("/checkout/async")
+    public Response checkoutAsync(@RequestBody CheckoutRequest request,
+                                  @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, "POST /api/orders/checkout/async", request,
+                () -> submitOrder(request));
+    }
+
+    private Response submitOrder(CheckoutRequest request) {
+        try {
+            OrderStatusDto status = checkoutPipeline.submit(request);
+            return Response.builder()
+                    .status(202)
+                    .message("Order accepted, payment in progress")
+                    .orderStatus(status)
+                    .build();
+        } catch (IllegalStateException e) {
+            return Response.builder()
+                    .status(503)
+                    .message(e.getMessage())
+                    .build();
+        } catch (RuntimeException e) {
+            return Response.builder()
+                    .status(400)
+                    .message(e.getMessage())
+                    .build();
+        }
+    }
+
+    // Poll an order's checkout status: PENDING_PAYMENT, then PAID or PAYMENT_FAILED (PAYMENT_UNKNOWN meanwhile if the gateway timed out)
+    @GetMapping("/{orderId}/status")
+    public Response getOrderStatus(@PathVariable Long orderId) {
+        OrderStatusDto status = checkoutPipeline.status(orderId).orElse(null);
+        if (status == null) {
+            return Response.builder()
+                    .status(404)
+                    .message("Order not found with id: " + orderId)
+                    .build();
+        }
+        return Response.builder()
+                .status(200)
+                .message("Order status retrieved")
+                .orderStatus(status)
+                .build();
+    }
+
+    // Push an order's checkout status: a "status" event now, and one more when the payment finishes.
+    // An unknown order is a plain 404, before any event is sent
+    @GetMapping(value = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getOrderEvents(@PathVariable Long orderId) throws IOException {
+        CompletableFuture<OrderStatusDto> outcome = checkoutPipeline.outcome(orderId).orElse(null);
+        if (outcome == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = new SseEmitter(EVENTS_TIMEOUT_MS);
+        if (!outcome.isDone()) {
+            emitter.send(SseEmitter.event().name("status").data(new OrderStatusDto(orderId, "PENDING_PAYMENT", null)));
+        }
+        outcome.whenComplete((status, error) -> {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(status));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the stream timed out
+                emitter.completeWithError(e);
+            }
+        });
+        return ResponseEntity.ok(emitter);
+    }
+
     // Update order status
     @PutMapping("/{orderId}/status")
     public Response updateOrderStatus(
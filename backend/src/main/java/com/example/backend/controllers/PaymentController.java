@@ -1,5 +1,6 @@
 package com.example.backend.controllers;
 
+import com.example.backend.cache.IdempotencyStore;
 import com.example.backend.dto.Response;
 import com.example.backend.dto.PaymentDto;
 import com.example.backend.services.PaymentService;
@@ -7,6 +8,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 // REST controller for payment operations
 @RestController
@@ -14,9 +16,11 @@ import java.util.List;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final IdempotencyStore idempotencyStore;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, IdempotencyStore idempotencyStore) {
         this.paymentService = paymentService;
+        this.idempotencyStore = idempotencyStore;
     }
 
     // Get all payments (admin function)
@@ -52,17 +56,21 @@ public class PaymentController {
                 .build();
     }
 
-    // Process payment for an order
+    // Process payment for an order. A retry with the same Idempotency-Key gets the first result back
     @PostMapping("/order/{orderId}")
     public Response processPayment(
             @PathVariable Long orderId,
-            @RequestParam BigDecimal amount) {
-        PaymentDto payment = paymentService.processPayment(orderId, amount);
-        return Response.builder()
-                .status(201)
-                .message("Payment processed successfully")
-                .payment(payment)
-                .build();
+            @RequestParam BigDecimal amount,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, "POST /api/payments/order/" + orderId,
+                Map.of("orderId", orderId, "amount", amount), () -> {
+                    PaymentDto payment = paymentService.processPayment(orderId, amount);
+                    return Response.builder()
+                            .status(201)
+                            .message("Payment processed successfully")
+                            .payment(payment)
+                            .build();
+                });
     }
 
     // Refund payment
@@ -0,0 +1,74 @@
+package com.example.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What happened in the store during one interval of the admin stream (about a second, or more
+ * when batches were merged for a slow subscriber).
+ *
+ * @param sequence Number of the last interval included, increasing
+ * @param ordersPlaced Orders paid at checkout
+ * @param revenue Total of the orders placed
+ * @param paymentsFailed Checkouts whose payment was declined or failed
+ * @param refunds Payments refunded
+ * @param orders The order events themselves, oldest first, at most MAX_ORDER_EVENTS
+ * @param ordersOmitted Order events counted above but left out of orders
+ * @param stock Books whose stock changed, one entry per book
+ * @param merged Intervals merged into this batch because the subscriber was behind (0 normally)
+ */
+public record AdminStreamBatch(long sequence, LocalDateTime at, int ordersPlaced, BigDecimal revenue,
+                               int paymentsFailed, int refunds, List<OrderEvent> orders, int ordersOmitted,
+                               List<StockLevel> stock, int merged) {
+
+    public static final int MAX_ORDER_EVENTS = 200;
+
+    public enum OrderEventType { ORDER_PLACED, PAYMENT_FAILED, ORDER_REFUNDED }
+
+    public record OrderEvent(OrderEventType type, Long orderId, Long userId, BigDecimal amount, LocalDateTime at) {
+    }
+
+    /**
+     * A book's stock change over the batch: the new quantity = (quantity, or the one last seen if null) + delta.
+     *
+     * @param quantity Quantity set outright (admin edit, inventory sync), or null if only adjusted
+     * @param delta Copies taken (negative) or put back by checkouts after that
+     */
+    public record StockLevel(Long bookId, Integer quantity, int delta) {
+
+        public StockLevel then(StockLevel next) {
+            return next.quantity() != null ? next : new StockLevel(bookId, quantity, delta + next.delta());
+        }
+    }
+
+    public boolean isEmpty() {
+        return ordersPlaced == 0 && paymentsFailed == 0 && refunds == 0 && stock.isEmpty();
+    }
+
+    // This batch followed by the next one, as if they had been a single interval
+    public AdminStreamBatch merge(AdminStreamBatch next) {
+        List<OrderEvent> events = new ArrayList<>(orders);
+        int omitted = ordersOmitted + next.ordersOmitted();
+        for (OrderEvent event : next.orders()) {
+            if (events.size() < MAX_ORDER_EVENTS) {
+                events.add(event);
+            } else {
+                omitted++;
+            }
+        }
+        Map<Long, StockLevel> levels = new LinkedHashMap<>();
+        for (StockLevel level : stock) {
+            levels.put(level.bookId(), level);
+        }
+        for (StockLevel level : next.stock()) {
+            levels.merge(level.bookId(), level, StockLevel::then);
+        }
+        return new AdminStreamBatch(next.sequence(), next.at(), ordersPlaced + next.ordersPlaced(),
+                revenue.add(next.revenue()), paymentsFailed + next.paymentsFailed(), refunds + next.refunds(),
+                events, omitted, List.copyOf(levels.values()), merged + next.merged() + 1);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Query parameters of GET /api/catalog/books, bound by Spring from the query string
+@Data
+public class BookListRequest {
+
+    // Current page number (offset paging only)
+    private int page = 0;
+
+    // Number of items per page
+    private int size = 20;
+
+    // Field to sort by ("title", "price", "author", "year", or "relevance" for best search matches first)
+    private String sort = "title";
+
+    // Search query for filtering books by title or author
+    private String search;
+
+    // Filter books by genre, repeat or comma-separate for several
+    private List<String> genre;
+
+    // "any" = books in any of the genres, "all" = books in every genre
+    private String genreMatch = "any";
+
+    // Also return counts per genre, author, decade and price range
+    private boolean facets = false;
+
+    // Keyset paging: empty for the first page, then the nextCursor of the previous response
+    private String cursor;
+
+    // Keyset paging only: also compute the total number of matches
+    private boolean count = false;
+
+    public boolean isCursorMode() {
+        return cursor != null;
+    }
+
+    public boolean isMatchAllGenres() {
+        return "all".equalsIgnoreCase(genreMatch);
+    }
+}
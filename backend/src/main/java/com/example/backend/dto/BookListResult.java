@@ -0,0 +1,32 @@
+package com.example.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+// One page of the catalog listing plus anything computed alongside it
+@Data
+@Builder
+public class BookListResult {
+
+    // List-view fields only, the full BookDto is served by /books/{id}
+    private List<BookSummaryDto> books;
+
+    // Null when not counted (keyset paging without count=true)
+    private Long totalElements;
+    private Integer totalPages;
+
+    // Keyset paging only: token for the next page, null on the last page
+    private String nextCursor;
+
+    // Only set when facets were requested
+    private CatalogFacetsDto facets;
+
+    // Corrected search text when the original matched nothing and these are its results
+    private String didYouMean;
+
+    // Built while the search index was still loading (SQL fallback, or relevance without descriptions),
+    // so not cached: the same request is answered differently once the index is complete
+    private boolean provisional;
+}
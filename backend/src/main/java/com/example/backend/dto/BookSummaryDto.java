@@ -0,0 +1,45 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Slim book for list views: no description or full-size image, see BookDto for the details page
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookSummaryDto {
+
+    private Long bookId;
+
+    private String title;
+
+    private String author;
+
+    private BigDecimal price;
+
+    // Thumbnail image URL for cards / lists
+    private String thumbnailUrl;
+
+    private int quantity;
+
+    private int year;
+
+    // Shown in the admin inventory table
+    private String isbn;
+
+    private List<String> genres;
+
+    // Used by the JPQL constructor expressions in BookRepo, genres are batch-loaded afterwards
+    public BookSummaryDto(Long bookId, String title, String author, BigDecimal price, String thumbnailUrl,
+                          int quantity, int year, String isbn) {
+        this(bookId, title, author, price, thumbnailUrl, quantity, year, isbn, null);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Facet counts (label -> number of books) returned alongside a catalog listing
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogFacetsDto {
+
+    // Counted before the genre filter so the panel can show every option
+    private Map<String, Long> genres;
+
+    // Most common authors in the result
+    private Map<String, Long> authors;
+
+    // Publication decade, e.g. "1990s"
+    private Map<String, Long> years;
+
+    private Map<String, Long> prices;
+}
@@ -0,0 +1,22 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A row of a bulk import that was skipped, and why
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportErrorDto {
+
+    // Line of the upload the row starts on
+    private long line;
+
+    // Null if the row could not be parsed far enough to read it
+    private String isbn;
+
+    private String message;
+}
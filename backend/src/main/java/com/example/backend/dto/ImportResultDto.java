@@ -0,0 +1,31 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk catalog import
+@Data
+public class ImportResultDto {
+
+    // Rows read from the upload
+    private long rows;
+
+    // Rows inserted or updated
+    private long imported;
+
+    // Rows skipped because they were invalid or rejected by the database
+    private long failed;
+
+    // Rows replaced by a later row for the same ISBN in the same batch, the book is counted once in imported
+    private long duplicates;
+
+    private long elapsedMillis;
+
+    // The first failed rows, see errorsTruncated
+    private List<ImportErrorDto> errors = new ArrayList<>();
+
+    // More rows failed than are listed in errors
+    private boolean errorsTruncated;
+}
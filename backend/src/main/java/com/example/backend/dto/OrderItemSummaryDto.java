@@ -0,0 +1,40 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Order line for the order history list, its book as a summary (no description or genres)
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderItemSummaryDto {
+
+    // Groups the items of a page of orders, not sent
+    @JsonIgnore
+    private Long orderId;
+
+    private Long orderItemId;
+
+    private BookSummaryDto book;
+
+    private int quantity;
+
+    private BigDecimal price;
+
+    // Used by the JPQL constructor expression in OrderItemRepo, item and book columns in one row
+    public OrderItemSummaryDto(Long orderId, Long orderItemId, int quantity, BigDecimal price,
+                               Long bookId, String title, String author, BigDecimal bookPrice,
+                               String thumbnailUrl, int bookQuantity, int year, String isbn) {
+        this(orderId, orderItemId,
+                new BookSummaryDto(bookId, title, author, bookPrice, thumbnailUrl, bookQuantity, year, isbn),
+                quantity, price);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Where an order is in checkout: PENDING_PAYMENT until its payment completes, then PAID or PAYMENT_FAILED.
+// PAYMENT_UNKNOWN if the gateway did not answer in time, until the attempt is voided and the order fails
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatusDto {
+
+    private Long orderId;
+    private String status;
+
+    // Why the payment failed, if it did
+    private String message;
+}
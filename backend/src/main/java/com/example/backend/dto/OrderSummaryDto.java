@@ -0,0 +1,35 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Slim order for the order history list: no user, payment or shipping address, see OrderDto for the details page
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderSummaryDto {
+
+    private Long orderId;
+
+    private BigDecimal totalPrice;
+
+    private String status;
+
+    private LocalDateTime createdAt;
+
+    private List<OrderItemSummaryDto> orderItemList;
+
+    // Used by the JPQL constructor expression in OrderRepo, items are batch-loaded afterwards
+    public OrderSummaryDto(Long orderId, BigDecimal totalPrice, String status, LocalDateTime createdAt) {
+        this(orderId, totalPrice, status, createdAt, null);
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -21,6 +22,21 @@ public class Response {
     private int totalPage;
     private long totalElements;
 
+    // Keyset paging: pass back to get the next page
+    private String nextCursor;
+
+    // Catalog search: the search matched nothing, results are for this corrected text instead
+    private String didYouMean;
+
+    // Bulk catalog import summary and row errors
+    private ImportResultDto importResult;
+
+    // Bulk stock and price update summary
+    private StockUpdateResultDto stockUpdateResult;
+
+    // Sales totals over a date range, from the daily rollups
+    private SalesSummaryDto salesSummary;
+
     private AddressDto address;
     //user can have multiple addresses. billing, shipping, etc.
     private List<AddressDto> addressList;
@@ -29,10 +45,14 @@ public class Response {
     private List<UserDto> userList;
 
     private BookDto book;
-    private List<BookDto> bookList;
+    // Catalog listing rows, summaries only
+    private List<BookSummaryDto> bookList;
 
     private OrderDto order;
+    private OrderStatusDto orderStatus;
     private List<OrderDto> orderList;
+    // Order history rows, summaries only
+    private List<OrderSummaryDto> orderSummaryList;
 
     private PaymentDto payment;
     private List<PaymentDto> paymentList;
@@ -50,4 +70,10 @@ public class Response {
     private List<CartItemDto> cartItemList;
 
     private List<String> genres;
+    private CatalogFacetsDto facets;
+
+    private List<SuggestionDto> suggestionList;
+
+    // Counters, e.g. catalog cache hits/misses/evictions
+    private Map<String, Long> stats;
 }
@@ -0,0 +1,142 @@
+package com.example.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Filters of the admin sales history and export, each optional (null or empty = no filter).
+ *
+ * @param productId Orders containing this book
+ * @param productTitle Orders containing a book whose title contains this text, ignoring case
+ * @param from First day of the range, inclusive
+ * @param to Last day of the range, inclusive
+ * @param statuses Orders in any of these statuses, ignoring case
+ * @param minTotal Lowest order total, inclusive
+ * @param maxTotal Highest order total, inclusive
+ */
+public record SalesHistoryFilter(Long orderId, Long customerId, Long productId, String productTitle,
+                                 LocalDate from, LocalDate to, List<String> statuses,
+                                 BigDecimal minTotal, BigDecimal maxTotal) {
+
+    public static SalesHistoryFilter none() {
+        return new SalesHistoryFilter(null, null, null, null, null, null, null, null, null);
+    }
+
+    public static SalesHistoryFilter byCustomer(Long customerId) {
+        return new SalesHistoryFilter(null, customerId, null, null, null, null, null, null, null);
+    }
+
+    public boolean hasProductTitle() {
+        return productTitle != null && !productTitle.isBlank();
+    }
+
+    // LIKE pattern (escape character '\\') for lower-cased titles containing productTitle literally
+    public String productTitlePattern() {
+        String text = productTitle.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + text + "%";
+    }
+
+    public boolean hasStatuses() {
+        return statuses != null && statuses.stream().anyMatch(status -> status != null && !status.isBlank());
+    }
+
+    // Statuses are stored upper case
+    public List<String> normalizedStatuses() {
+        return statuses.stream()
+                .filter(status -> status != null && !status.isBlank())
+                .map(status -> status.trim().toUpperCase(Locale.ROOT))
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * The set filters as conditions on orders, in one fixed order. OrderSpecifications (JPA) and
+     * SalesHistoryQueries (SQL) both translate this list with an exhaustive switch, so a filter added
+     * here does not compile until both handle it, and derived values (day bounds, normalized statuses,
+     * the LIKE pattern) are computed once for both.
+     */
+    public List<Condition> conditions() {
+        List<Condition> conditions = new ArrayList<>();
+        if (orderId != null) {
+            conditions.add(new Condition.OrderIdIs(orderId));
+        }
+        if (customerId != null) {
+            conditions.add(new Condition.CustomerIs(customerId));
+        }
+        if (hasStatuses()) {
+            conditions.add(new Condition.StatusIn(normalizedStatuses()));
+        }
+        if (from != null) {
+            conditions.add(new Condition.CreatedFrom(from.atStartOfDay()));
+        }
+        if (to != null) {
+            // Up to the end of the last day
+            conditions.add(new Condition.CreatedBefore(to.plusDays(1).atStartOfDay()));
+        }
+        if (minTotal != null) {
+            conditions.add(new Condition.TotalAtLeast(minTotal));
+        }
+        if (maxTotal != null) {
+            conditions.add(new Condition.TotalAtMost(maxTotal));
+        }
+        if (productId != null) {
+            conditions.add(new Condition.ContainsBook(productId));
+        }
+        if (hasProductTitle()) {
+            conditions.add(new Condition.ContainsTitle(productTitlePattern()));
+        }
+        return conditions;
+    }
+
+    // Rejects ranges that can match nothing, so callers get a 400 rather than an empty page
+    public void validate() {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (minTotal != null && maxTotal != null && minTotal.compareTo(maxTotal) > 0) {
+            throw new IllegalArgumentException("minTotal must not be above maxTotal");
+        }
+    }
+
+    // One condition of the sales history, all of them are ANDed
+    public sealed interface Condition {
+
+        record OrderIdIs(Long orderId) implements Condition {
+        }
+
+        record CustomerIs(Long customerId) implements Condition {
+        }
+
+        record StatusIn(List<String> statuses) implements Condition {
+        }
+
+        // Inclusive
+        record CreatedFrom(LocalDateTime from) implements Condition {
+        }
+
+        // Exclusive
+        record CreatedBefore(LocalDateTime before) implements Condition {
+        }
+
+        record TotalAtLeast(BigDecimal minTotal) implements Condition {
+        }
+
+        record TotalAtMost(BigDecimal maxTotal) implements Condition {
+        }
+
+        // The order has an item of this book
+        record ContainsBook(Long bookId) implements Condition {
+        }
+
+        // The order has an item whose lower-cased title matches this LIKE pattern (escape character '\\')
+        record ContainsTitle(String titlePattern) implements Condition {
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Sales over a date range from the daily rollups: totals, one row per day with sales, best-selling books
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesSummaryDto {
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    // Set when the summary is for a single book
+    private Long bookId;
+
+    private BigDecimal revenue;
+
+    private long units;
+
+    private long orders;
+
+    private List<DailySales> days;
+
+    // Highest revenue first, absent for a single book
+    private List<BookSales> topBooks;
+
+    public record DailySales(LocalDate day, BigDecimal revenue, long units, long orders) {
+    }
+
+    public record BookSales(Long bookId, String title, BigDecimal revenue, long units, long orders) {
+    }
+}
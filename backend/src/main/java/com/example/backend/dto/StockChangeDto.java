@@ -0,0 +1,21 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// A book changed by an inventory sync, with its values before and after
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockChangeDto {
+
+    private Long bookId;
+    private String isbn;
+    private int oldQuantity;
+    private int newQuantity;
+    private BigDecimal oldPrice;
+    private BigDecimal newPrice;
+}
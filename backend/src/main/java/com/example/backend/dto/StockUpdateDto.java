@@ -0,0 +1,19 @@
+package com.example.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// One row of an inventory sync: the book by id or ISBN, and its new quantity and/or price (null keeps the current one)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockUpdateDto {
+
+    private Long bookId;
+    private String isbn;
+    private Integer quantity;
+    private BigDecimal price;
+}
@@ -0,0 +1,39 @@
+package com.example.backend.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a bulk stock and price update
+@Data
+public class StockUpdateResultDto {
+
+    // Rows read from the upload
+    private long rows;
+
+    // Books whose quantity or price changed
+    private long updated;
+
+    // Books found whose values were already the requested ones
+    private long unchanged;
+
+    // Rows naming a book id or ISBN that does not exist
+    private long notFound;
+
+    // Rows skipped because they were invalid or rejected by the database
+    private long failed;
+
+    private long quantityChanges;
+    private long priceChanges;
+
+    private long elapsedMillis;
+
+    // The first changed books, see changesTruncated
+    private List<StockChangeDto> changes = new ArrayList<>();
+    private boolean changesTruncated;
+
+    // The first rows not applied (invalid or not found), see errorsTruncated
+    private List<ImportErrorDto> errors = new ArrayList<>();
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,24 @@
+package com.example.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class SuggestionDto {
+
+    // Title or author name to show in the dropdown
+    private String text;
+
+    // "TITLE" or "AUTHOR"
+    private String type;
+
+    // Most popular book with this title/author
+    private Long bookId;
+}
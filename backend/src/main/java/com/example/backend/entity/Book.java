@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -11,7 +12,12 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        // Keyset paging seeks on (sort key, id)
+        @Index(name = "idx_books_title_id", columnList = "title, bookId"),
+        @Index(name = "idx_books_author_id", columnList = "author, bookId"),
+        @Index(name = "idx_books_price_id", columnList = "price, bookId")
+})
 public class Book {
 
     @Id
@@ -51,7 +57,9 @@ public class Book {
     @NotNull(message = "Year is required")
     private int year;
 
+    // Lazy genre loads for several books are batched into one IN query
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "book_genres", joinColumns = @JoinColumn(name = "book_id"))
     @Column(name = "genre")
     private List<String> genres = new ArrayList<>();
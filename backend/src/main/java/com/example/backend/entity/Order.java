@@ -2,6 +2,7 @@ package com.example.backend.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -10,7 +11,14 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        // Order history: a customer's orders newest first
+        @Index(name = "idx_orders_user_created", columnList = "user_id, created_at"),
+        // Sales history: all orders, or by date range, newest first
+        @Index(name = "idx_orders_created", columnList = "created_at"),
+        // Sales history by status, newest first
+        @Index(name = "idx_orders_status_created", columnList = "status, created_at")
+})
 public class Order {
 
     @Id
@@ -23,7 +31,9 @@ public class Order {
 
     private BigDecimal totalPrice;
 
+    // Lazy item loads for a page of orders are batched into one IN query
     @OneToMany(mappedBy = "order", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<OrderItem> orderItemList = new ArrayList<>();
 
     private String status;
@@ -41,6 +51,10 @@ public class Order {
     @Column(name = "created_at")
     private final LocalDateTime createdAt = LocalDateTime.now();
 
+    // Included in the sales rollups, see SalesRollupService. NOT NULL: orders from before the column got false
+    @Column(name = "sales_counted", nullable = false)
+    private boolean salesCounted;
+
     /*
     // Getters and setters (no setter for final createdAt)
     public Long getOrderId() { return orderId; }
@@ -8,7 +8,14 @@ import java.math.BigDecimal;
 
 @Data
 @Entity
-@Table(name = "order_items")
+@Table(name = "order_items", indexes = {
+        // The hot stock flusher looks up the few items not yet subtracted from books.quantity
+        @Index(name = "idx_order_items_stock_pending", columnList = "stockPending"),
+        // Sales history product filters: does this order contain the book, from the index alone
+        @Index(name = "idx_order_items_order_book", columnList = "order_id, book_id"),
+        // Product-filtered sales history: the orders containing a book, by order id
+        @Index(name = "idx_order_items_book_order", columnList = "book_id, order_id")
+})
 public class OrderItem {
 
     @Id
@@ -26,6 +33,10 @@ public class OrderItem {
     private int quantity;
 
     private BigDecimal price;
+
+    // Reserved from a hot stock counter and not yet subtracted from books.quantity, see HotStockService
+    @Column(name = "stock_pending")
+    private boolean stockPending;
 /*
     // Getters and setters
     public Long getOrderItemId() { return orderItemId; }
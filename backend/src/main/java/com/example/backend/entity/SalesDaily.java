@@ -0,0 +1,43 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales of one day, kept up to date as orders are paid or refunded (see SalesRollupService).
+ * Each day is split over a few slots (order id modulo the slot count) so concurrent checkouts
+ * do not all wait on one row; a day's figures are the sum of its slots.
+ */
+@Data
+@Entity
+@Table(name = "sales_daily")
+@IdClass(SalesDaily.Key.class)
+public class SalesDaily {
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    private int slot;
+
+    @Column(precision = 19, scale = 2, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    private long units;
+
+    private long orderCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private int slot;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Sales of one book on one day, split over slots like SalesDaily
+@Data
+@Entity
+@Table(name = "sales_daily_book", indexes = {
+        // One book's sales over a date range
+        @Index(name = "idx_sales_daily_book_book_day", columnList = "bookId, day")
+})
+@IdClass(SalesDailyBook.Key.class)
+public class SalesDailyBook {
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    private Long bookId;
+
+    @Id
+    private int slot;
+
+    @Column(precision = 19, scale = 2, nullable = false)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    private long units;
+
+    // Orders that had this book
+    private long orderCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long bookId;
+        private int slot;
+    }
+}
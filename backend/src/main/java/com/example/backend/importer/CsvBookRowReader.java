@@ -0,0 +1,46 @@
+package com.example.backend.importer;
+
+import com.example.backend.dto.BookDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Book CSV: isbn, title, author, price, description, imageUrl, thumbnailUrl, quantity, year, genres.
+ * Genres are separated by "|" or ";". Unknown columns are ignored, and a missing genres column
+ * (or a row that stops before it) leaves the genres of existing books untouched.
+ */
+public class CsvBookRowReader extends CsvRowReader<BookDto> {
+
+    public CsvBookRowReader(InputStream in) throws IOException {
+        super(in);
+        requireColumns("isbn", "title", "author", "price");
+    }
+
+    @Override
+    protected BookDto parse(List<String> fields) {
+        BookDto book = new BookDto();
+        book.setIsbn(text(fields, "isbn"));
+        book.setTitle(text(fields, "title"));
+        book.setAuthor(text(fields, "author"));
+        book.setPrice(decimal(fields, "price"));
+        book.setDescription(text(fields, "description"));
+        book.setImageUrl(text(fields, "imageurl"));
+        book.setThumbnailUrl(text(fields, "thumbnailurl"));
+        Integer quantity = integer(fields, "quantity");
+        book.setQuantity(quantity != null ? quantity : 0);
+        Integer year = integer(fields, "year");
+        book.setYear(year != null ? year : 0);
+        if (hasField(fields, "genres")) {
+            String genres = text(fields, "genres");
+            book.setGenres(genres == null ? new ArrayList<>() : Arrays.stream(genres.split("[|;]"))
+                    .map(String::trim)
+                    .filter(g -> !g.isEmpty())
+                    .toList());
+        }
+        return book;
+    }
+}
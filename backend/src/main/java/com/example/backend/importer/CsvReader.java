@@ -0,0 +1,90 @@
+package com.example.backend.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 CSV reader: comma separated, fields optionally in double quotes,
+ * "" for a quote inside a quoted field, and quoted fields may span lines.
+ */
+public class CsvReader {
+
+    private final Reader reader;
+
+    // Own buffer: Reader.read() per char is synchronized and several times slower
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+
+    // Line of the next char, and line the last record started on
+    private long line = 1;
+    private long recordLine;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Fields of the next record, or null at the end of the input
+    public List<String> next() throws IOException {
+        recordLine = line;
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    // Unterminated quote, keep what was read
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next != '"') {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    public long recordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.backend.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV upload with a header row naming the columns, in any order. Header names are matched
+ * ignoring case, spaces and underscores ("imageUrl", "image_url" and "Image URL" are the same).
+ * Subclasses turn the fields of a record into their DTO.
+ */
+public abstract class CsvRowReader<T> implements RowReader<T> {
+
+    private final CsvReader csv;
+    private final Map<String, Integer> columns = new HashMap<>();
+
+    protected CsvRowReader(InputStream in) throws IOException {
+        this.csv = new CsvReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV upload is empty, a header row is required");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            // Also drop a leading byte order mark
+            String name = header.get(i).replace("﻿", "").replaceAll("[\\s_]", "").toLowerCase(Locale.ROOT);
+            columns.put(name, i);
+        }
+    }
+
+    // Build the DTO for one record, throwing IllegalArgumentException for an invalid value
+    protected abstract T parse(List<String> fields);
+
+    @Override
+    public ImportRow<T> next() throws IOException {
+        List<String> fields;
+        do {
+            fields = csv.next();
+            if (fields == null) {
+                return null;
+            }
+        } while (fields.size() == 1 && fields.get(0).isBlank());
+
+        long line = csv.recordLine();
+        try {
+            return ImportRow.parsed(line, parse(fields));
+        } catch (IllegalArgumentException e) {
+            return ImportRow.failed(line, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        // The request body stream is closed by the container
+    }
+
+    protected boolean hasColumn(String column) {
+        return columns.containsKey(column);
+    }
+
+    // Whether this record has a field for the column (a short record may stop before it)
+    protected boolean hasField(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        return index != null && index < fields.size();
+    }
+
+    protected void requireColumns(String... required) {
+        for (String column : required) {
+            if (!hasColumn(column)) {
+                throw new IllegalArgumentException("CSV header is missing column: " + column);
+            }
+        }
+    }
+
+    // Trimmed value of the column, null if absent or empty
+    protected String text(List<String> fields, String column) {
+        if (!hasField(fields, column)) {
+            return null;
+        }
+        String value = fields.get(columns.get(column)).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    protected BigDecimal decimal(List<String> fields, String column) {
+        String value = text(fields, column);
+        try {
+            return value == null ? null : new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    protected Integer integer(List<String> fields, String column) {
+        String value = text(fields, column);
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    protected Long longValue(List<String> fields, String column) {
+        String value = text(fields, column);
+        try {
+            return value == null ? null : Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+}
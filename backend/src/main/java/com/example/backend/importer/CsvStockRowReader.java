@@ -0,0 +1,30 @@
+package com.example.backend.importer;
+
+import com.example.backend.dto.StockUpdateDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Inventory sync CSV: bookId and/or isbn, then quantity and/or price.
+ * An empty field leaves that value of the book unchanged.
+ */
+public class CsvStockRowReader extends CsvRowReader<StockUpdateDto> {
+
+    public CsvStockRowReader(InputStream in) throws IOException {
+        super(in);
+        if (!hasColumn("bookid") && !hasColumn("isbn")) {
+            throw new IllegalArgumentException("CSV header needs a bookId or isbn column");
+        }
+        if (!hasColumn("quantity") && !hasColumn("price")) {
+            throw new IllegalArgumentException("CSV header needs a quantity or price column");
+        }
+    }
+
+    @Override
+    protected StockUpdateDto parse(List<String> fields) {
+        return new StockUpdateDto(longValue(fields, "bookid"), text(fields, "isbn"),
+                integer(fields, "quantity"), decimal(fields, "price"));
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.backend.importer;
+
+/**
+ * One row of a bulk upload.
+ *
+ * @param line line of the upload the row starts on, for error reports
+ * @param value the parsed row, null if the row could not be parsed
+ * @param error why the row could not be parsed, null if it was
+ */
+public record ImportRow<T>(long line, T value, String error) {
+
+    public static <T> ImportRow<T> parsed(long line, T value) {
+        return new ImportRow<>(line, value, null);
+    }
+
+    public static <T> ImportRow<T> failed(long line, String error) {
+        return new ImportRow<>(line, null, error);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.backend.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NDJSON upload: one JSON object per line, bound to the given DTO. Each line is parsed on its own,
+ * so a malformed line is reported and the lines after it still import.
+ */
+public class NdjsonRowReader<T> implements RowReader<T> {
+
+    private final BufferedReader reader;
+    private final ObjectReader rowReader;
+    private long line;
+
+    public NdjsonRowReader(InputStream in, ObjectMapper objectMapper, Class<T> type) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        this.rowReader = objectMapper.readerFor(type);
+    }
+
+    @Override
+    public ImportRow<T> next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+
+        try {
+            return ImportRow.parsed(line, rowReader.readValue(text));
+        } catch (JsonProcessingException e) {
+            return ImportRow.failed(line, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        // The request body stream is closed by the container
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.backend.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the rows of an upload one at a time, so imports never hold the whole file in memory.
+ * A row that cannot be parsed is returned with an error instead of stopping the import.
+ */
+public interface RowReader<T> extends Closeable {
+
+    // The next row, or null at the end of the upload
+    ImportRow<T> next() throws IOException;
+}
@@ -1,20 +1,35 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.BookSummaryDto;
 import com.example.backend.entity.Book;
+import com.example.backend.search.BookDocument;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Book entity using Jpa
  */
 public interface BookRepo extends JpaRepository<Book, Long> {
 
+    // List views select only these columns (never description), see BookSummaryDto.
+    // Books without a thumbnail fall back to their full-size image.
+    String SUMMARY_SELECT = "SELECT new com.example.backend.dto.BookSummaryDto(b.bookId, b.title, b.author, " +
+            "b.price, COALESCE(b.thumbnailUrl, b.imageUrl), b.quantity, b.year, b.isbn) FROM Book b";
+
     Page<Book> findByTitleContainingIgnoreCase(String title, Pageable pageable);
 
     Page<Book> findByAuthorContainingIgnoreCase(String author, Pageable pageable);
@@ -25,6 +40,11 @@ public interface BookRepo extends JpaRepository<Book, Long> {
     @Query("SELECT b FROM Book b JOIN b.genres g WHERE g = :genre")
     Page<Book> findByGenre(@Param("genre") String genre, Pageable pageable);
 
+    // Books having any of the genres
+    @Query(value = "SELECT DISTINCT b FROM Book b JOIN b.genres g WHERE g IN :genres",
+           countQuery = "SELECT COUNT(DISTINCT b) FROM Book b JOIN b.genres g WHERE g IN :genres")
+    Page<Book> findByGenreIn(@Param("genres") List<String> genres, Pageable pageable);
+
     @Query("SELECT b FROM Book b JOIN b.genres g WHERE " +
            "(LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%')) OR " +
            "LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))) AND " +
@@ -35,8 +55,57 @@ public interface BookRepo extends JpaRepository<Book, Long> {
             @Param("genre") String genre,
             Pageable pageable);
 
+    // Keyset (seek) paging: no OFFSET and no COUNT(*), each page starts after the last (key, id) seen.
+    // Backed by the (title|author|price, book_id) indexes declared on Book.
+
+    @Query(SUMMARY_SELECT)
+    List<BookSummaryDto> findFirstKeysetPage(Sort sort, Limit limit);
+
+    @Query(SUMMARY_SELECT + " WHERE b.title > :title OR (b.title = :title AND b.bookId > :bookId) " +
+           "ORDER BY b.title, b.bookId")
+    List<BookSummaryDto> findByTitleAfter(@Param("title") String title, @Param("bookId") Long bookId, Limit limit);
+
+    @Query(SUMMARY_SELECT + " WHERE b.author > :author OR (b.author = :author AND b.bookId > :bookId) " +
+           "ORDER BY b.author, b.bookId")
+    List<BookSummaryDto> findByAuthorAfter(@Param("author") String author, @Param("bookId") Long bookId, Limit limit);
+
+    @Query(SUMMARY_SELECT + " WHERE b.price > :price OR (b.price = :price AND b.bookId > :bookId) " +
+           "ORDER BY b.price, b.bookId")
+    List<BookSummaryDto> findByPriceAfter(@Param("price") BigDecimal price, @Param("bookId") Long bookId, Limit limit);
+
+    // Unfiltered listing page as summaries
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(b) FROM Book b")
+    Page<BookSummaryDto> findAllSummaries(Pageable pageable);
+
+    // Summaries for a page of ids resolved by the search index (order not preserved)
+    @Query(SUMMARY_SELECT + " WHERE b.bookId IN :ids")
+    List<BookSummaryDto> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    // Genres of a whole page of books in one query, instead of one lazy load per book
+    @Query("SELECT b.bookId, g FROM Book b JOIN b.genres g WHERE b.bookId IN :ids")
+    List<Object[]> findGenresByBookIds(@Param("ids") Collection<Long> ids);
+
     Optional<Book> findByIsbn(String isbn);
 
+    // Books with their genres in one query, e.g. to index a batch of imported books
+    @EntityGraph(attributePaths = "genres")
+    List<Book> findByBookIdIn(Collection<Long> ids);
+
     @Query("SELECT DISTINCT g FROM Book b JOIN b.genres g ORDER BY g")
     List<String> findAllDistinctGenres();
+
+    // Only the columns the in-memory search index needs (no description, no genres)
+    @Query("SELECT new com.example.backend.search.BookDocument(b.bookId, b.title, b.author, b.price, b.year) " +
+           "FROM Book b")
+    List<BookDocument> findAllSearchDocuments();
+
+    // (bookId, genre) pairs for every book, loaded in one pass for the search index
+    @Query("SELECT b.bookId, g FROM Book b JOIN b.genres g")
+    List<Object[]> findAllBookGenres();
+
+    // (bookId, description) for every book, streamed row by row (MySQL streams with fetch size MIN_VALUE)
+    // so relevance scoring can index descriptions without holding them all in memory. Needs a transaction.
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"))
+    @Query("SELECT b.bookId, b.description FROM Book b WHERE b.description IS NOT NULL")
+    Stream<Object[]> streamAllDescriptions();
 }
@@ -1,8 +1,25 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.OrderItemSummaryDto;
 import com.example.backend.entity.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderItemRepo extends JpaRepository<OrderItem, Long>, JpaSpecificationExecutor<OrderItem> {
+
+    // (bookId, total units sold) for every book in an order counted in the sales rollups
+    @Query("SELECT oi.book.bookId, SUM(oi.quantity) FROM OrderItem oi WHERE oi.order.salesCounted = true GROUP BY oi.book.bookId")
+    List<Object[]> sumQuantityByBook();
+
+    // Items of a page of orders with their books' list columns, one query for the whole page
+    @Query("SELECT new com.example.backend.dto.OrderItemSummaryDto(oi.order.orderId, oi.orderItemId, oi.quantity, " +
+           "oi.price, b.bookId, b.title, b.author, b.price, COALESCE(b.thumbnailUrl, b.imageUrl), b.quantity, " +
+           "b.year, b.isbn) FROM OrderItem oi JOIN oi.book b WHERE oi.order.orderId IN :orderIds " +
+           "ORDER BY oi.orderItemId")
+    List<OrderItemSummaryDto> findSummariesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
 }
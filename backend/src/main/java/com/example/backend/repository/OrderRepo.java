@@ -1,48 +1,47 @@
 package com.example.backend.repository;
 
+import com.example.backend.dto.OrderSummaryDto;
 import com.example.backend.entity.Order;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 
-public interface OrderRepo extends JpaRepository<Order, Long> {
-
-    Page<Order> findByUser_UserId(Long userId, Pageable pageable);
-
-    Page<Order> findByCreatedAtBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
-
-    Page<Order> findByUser_UserIdAndCreatedAtBetween(
-            Long userId,
-            LocalDateTime start,
-            LocalDateTime end,
-            Pageable pageable
-    );
-
-    @Query("""
-           SELECT DISTINCT o 
-           FROM Order o 
-           JOIN o.orderItemList oi 
-           WHERE oi.book.bookId = :bookId
-           """)
-    Page<Order> findByProduct(@Param("bookId") Long bookId, Pageable pageable);
-
-    @Query("""
-           SELECT DISTINCT o 
-           FROM Order o 
-           JOIN o.orderItemList oi 
-           WHERE oi.book.bookId = :bookId 
-           AND o.createdAt BETWEEN :start AND :end
-           """)
-    Page<Order> findByProductAndDateRange(
-            @Param("bookId") Long bookId,
-            @Param("start") LocalDateTime start,
-            @Param("end") LocalDateTime end,
-            Pageable pageable
-    );
+public interface OrderRepo extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
+
+    // A page of a customer's order history, order columns only (step one, the items come next)
+    @Query(value = "SELECT new com.example.backend.dto.OrderSummaryDto(o.orderId, o.totalPrice, o.status, o.createdAt) " +
+                   "FROM Order o WHERE o.user.userId = :userId",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.userId = :userId")
+    Page<OrderSummaryDto> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Just the status column, for clients polling an order whose payment is in progress
+    @Query("SELECT o.status FROM Order o WHERE o.orderId = :orderId")
+    Optional<String> findStatusByOrderId(@Param("orderId") Long orderId);
+
+    // Orders stuck in one of the statuses since before the cutoff, e.g. PENDING_PAYMENT after a crash (idx_orders_status_created)
+    @Query("SELECT o.orderId FROM Order o WHERE o.status IN :statuses AND o.createdAt < :before")
+    List<Long> findIdsByStatusInCreatedBefore(@Param("statuses") Collection<String> statuses,
+                                              @Param("before") LocalDateTime before);
+
+    // A page of the sales history (OrderSpecifications.salesHistory), with each order's customer in the same query
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Page<Order> findAll(Specification<Order> spec, Pageable pageable);
+
+    // Step two of an id-first page: the orders with their customers, items and books, in one query
+    @Query("SELECT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.orderItemList oi LEFT JOIN FETCH oi.book " +
+           "WHERE o.orderId IN :orderIds")
+    List<Order> findWithItemsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
 
 }
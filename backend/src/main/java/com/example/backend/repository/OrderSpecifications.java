@@ -0,0 +1,68 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.SalesHistoryFilter;
+import com.example.backend.entity.Book;
+import com.example.backend.entity.Order;
+import com.example.backend.entity.OrderItem;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The sales history filters as one Specification: every set filter becomes a predicate of the same
+ * query, whatever the combination.
+ *
+ * Product filters are EXISTS subqueries on order_items rather than a join, so an order is never
+ * repeated by its items and neither the page nor the count query needs DISTINCT; the count is a plain
+ * COUNT over orders. The other filters are columns of orders, covered by its indexes:
+ * (user_id, created_at), (status, created_at) and (created_at).
+ */
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> salesHistory(SalesHistoryFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            for (SalesHistoryFilter.Condition condition : filter.conditions()) {
+                predicates.add(predicate(condition, root, query, cb));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Keep in step with SalesHistoryQueries.condition, SalesHistoryQueriesTest compares the two
+    private static Predicate predicate(SalesHistoryFilter.Condition condition, Root<Order> root,
+                                       CriteriaQuery<?> query, CriteriaBuilder cb) {
+        return switch (condition) {
+            case SalesHistoryFilter.Condition.OrderIdIs c -> cb.equal(root.get("orderId"), c.orderId());
+            // The foreign key column, no join to users
+            case SalesHistoryFilter.Condition.CustomerIs c -> cb.equal(root.get("user").get("userId"), c.customerId());
+            case SalesHistoryFilter.Condition.StatusIn c -> root.get("status").in(c.statuses());
+            case SalesHistoryFilter.Condition.CreatedFrom c -> cb.greaterThanOrEqualTo(root.get("createdAt"), c.from());
+            case SalesHistoryFilter.Condition.CreatedBefore c -> cb.lessThan(root.get("createdAt"), c.before());
+            case SalesHistoryFilter.Condition.TotalAtLeast c -> cb.greaterThanOrEqualTo(root.get("totalPrice"), c.minTotal());
+            case SalesHistoryFilter.Condition.TotalAtMost c -> cb.lessThanOrEqualTo(root.get("totalPrice"), c.maxTotal());
+            case SalesHistoryFilter.Condition.ContainsBook c -> {
+                Subquery<Integer> items = query.subquery(Integer.class);
+                Root<OrderItem> item = items.from(OrderItem.class);
+                items.select(cb.literal(1)).where(
+                        cb.equal(item.get("order"), root),
+                        cb.equal(item.get("book").get("bookId"), c.bookId()));
+                yield cb.exists(items);
+            }
+            case SalesHistoryFilter.Condition.ContainsTitle c -> {
+                Subquery<Integer> items = query.subquery(Integer.class);
+                Root<OrderItem> item = items.from(OrderItem.class);
+                Join<OrderItem, Book> book = item.join("book");
+                items.select(cb.literal(1)).where(
+                        cb.equal(item.get("order"), root),
+                        cb.like(cb.lower(book.get("title")), c.titlePattern(), '\\'));
+                yield cb.exists(items);
+            }
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.backend.search;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BK-tree over the words of every title and author, for typo-tolerant lookups.
+ * Each child edge is labelled with its Levenshtein distance to the parent, so a lookup within
+ * distance k only descends into edges d-k..d+k (triangle inequality) and visits a small part of the tree.
+ *
+ * Words are counted per book so removing a book can drop its words; a word whose count reaches
+ * zero stays in the tree as a tombstone (BK-trees cannot delete) and is skipped by lookups.
+ * Not thread-safe, callers synchronize.
+ */
+public class BkTree {
+
+    private Node root;
+
+    // Every word in the tree, with the number of books using it (0 for tombstones)
+    private final Map<String, Node> nodes = new HashMap<>();
+
+    public void add(String word) {
+        Node node = nodes.get(word);
+        if (node == null) {
+            node = insert(word);
+        }
+        node.count++;
+    }
+
+    public void remove(String word) {
+        Node node = nodes.get(word);
+        if (node != null && node.count > 0) {
+            node.count--;
+        }
+    }
+
+    public void clear() {
+        root = null;
+        nodes.clear();
+    }
+
+    public boolean contains(String word) {
+        Node node = nodes.get(word);
+        return node != null && node.count > 0;
+    }
+
+    /**
+     * The live word closest to the given one, at most maxDistance edits away:
+     * smallest distance first, then the word used by the most books, then alphabetical.
+     *
+     * @return the word, or null if none is close enough
+     */
+    public String closest(String word, int maxDistance) {
+        if (root == null) {
+            return null;
+        }
+        Node best = null;
+        int bestDistance = maxDistance + 1;
+
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int distance = levenshtein(word, node.word);
+            // bestDistance starts one past maxDistance, so ties with it are only taken once something is in range
+            if (node.count > 0 && distance <= maxDistance
+                    && (distance < bestDistance || (distance == bestDistance && better(node, best)))) {
+                best = node;
+                bestDistance = distance;
+            }
+            // Children at edge e hold words whose distance to the query is at least |distance - e|
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= Math.min(maxDistance, bestDistance)) {
+                    stack.push(child.getValue());
+                }
+            }
+        }
+        return best != null ? best.word : null;
+    }
+
+    private Node insert(String word) {
+        Node added = new Node(word);
+        nodes.put(word, added);
+        if (root == null) {
+            root = added;
+            return added;
+        }
+        Node node = root;
+        while (true) {
+            int distance = levenshtein(word, node.word);
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, added);
+                return added;
+            }
+            node = child;
+        }
+    }
+
+    private static boolean better(Node candidate, Node best) {
+        if (best == null) {
+            return true;
+        }
+        if (candidate.count != best.count) {
+            return candidate.count > best.count;
+        }
+        return candidate.word.compareTo(best.word) < 0;
+    }
+
+    // Edit distance (insert, delete, substitute) with two rows of the DP table
+    static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static class Node {
+        private final String word;
+        private final Map<Integer, Node> children = new HashMap<>();
+        private int count;
+
+        private Node(String word) {
+            this.word = word;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.backend.search;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BM25 relevance scores for catalog search, over title, author and description.
+ * Only scores books that already matched, so it keeps a forward index per field
+ * (sorted term ids and counts for each ordinal) plus the document frequency of every term,
+ * instead of postings lists. Each field is scored with its own length normalization and the
+ * scores are summed with per-field weights, title highest. Document frequency counts books having
+ * the term in any field (as in BM25F), so a word that is rare as an author but common in titles
+ * does not get an inflated weight.
+ *
+ * Descriptions are capped at their first words to bound memory.
+ * Not thread-safe, callers synchronize.
+ */
+public class Bm25Index {
+
+    public enum Field {
+        TITLE(3.0), AUTHOR(2.0), DESCRIPTION(1.0);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    // Standard BM25 parameters: term frequency saturation and length normalization
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // About 600 chars, the opening of the description carries most of what it is about
+    private static final int MAX_DESCRIPTION_WORDS = 100;
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final FieldIndex[] fields = new FieldIndex[Field.values().length];
+
+    // Books having the term in at least one field, by term id, and books having any field
+    private int[] documentFrequency = new int[1024];
+    private final BitSet documents = new BitSet();
+
+    public Bm25Index() {
+        for (Field field : Field.values()) {
+            fields[field.ordinal()] = new FieldIndex();
+        }
+    }
+
+    public void clear() {
+        termIds.clear();
+        for (FieldIndex field : fields) {
+            field.clear();
+        }
+        documentFrequency = new int[1024];
+        documents.clear();
+    }
+
+    // Index (or re-index) one field of a book, null or empty text removes it
+    public void set(int ordinal, Field field, String text) {
+        unset(ordinal, field);
+        if (text != null && !text.isEmpty()) {
+            int maxWords = field == Field.DESCRIPTION ? MAX_DESCRIPTION_WORDS : Integer.MAX_VALUE;
+            TermVector vector = vector(text, maxWords);
+            for (int term : vector.terms) {
+                if (!inOtherField(ordinal, field, term)) {
+                    documentFrequency[term]++;
+                }
+            }
+            fields[field.ordinal()].add(ordinal, vector);
+            documents.set(ordinal);
+        }
+    }
+
+    // Drop every field of a book
+    public void remove(int ordinal) {
+        for (Field field : Field.values()) {
+            unset(ordinal, field);
+        }
+    }
+
+    private void unset(int ordinal, Field field) {
+        TermVector old = fields[field.ordinal()].remove(ordinal);
+        if (old == null) {
+            return;
+        }
+        boolean any = false;
+        for (Field other : Field.values()) {
+            any |= fields[other.ordinal()].vector(ordinal) != null;
+        }
+        for (int term : old.terms) {
+            if (!inOtherField(ordinal, field, term)) {
+                documentFrequency[term]--;
+            }
+        }
+        if (!any) {
+            documents.clear(ordinal);
+        }
+    }
+
+    private boolean inOtherField(int ordinal, Field field, int term) {
+        for (Field other : Field.values()) {
+            TermVector vector = fields[other.ordinal()].vector(ordinal);
+            if (other != field && vector != null && vector.frequency(term) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // BM25 idf, always positive so very common words still rank a match above a non-match
+    private double idf(int term) {
+        int n = documents.cardinality();
+        int df = documentFrequency[term];
+        return Math.log(1 + (n - df + 0.5) / (df + 0.5));
+    }
+
+    /**
+     * Term ids of the search words known to the index, the input to idf() and score().
+     * Unknown words are dropped since they cannot add to any score.
+     */
+    public int[] queryTerms(String search) {
+        Set<Integer> terms = new LinkedHashSet<>();
+        Matcher matcher = WORD.matcher(search.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            Integer id = termIds.get(matcher.group());
+            if (id != null) {
+                terms.add(id);
+            }
+        }
+        return terms.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Idf of each query term, computed once per search and passed to score()
+    public double[] idf(int[] queryTerms) {
+        double[] idf = new double[queryTerms.length];
+        for (int i = 0; i < queryTerms.length; i++) {
+            idf[i] = idf(queryTerms[i]);
+        }
+        return idf;
+    }
+
+    // Weighted sum over the fields of the BM25 score of the book for these query terms
+    public double score(int ordinal, int[] queryTerms, double[] idf) {
+        double score = 0;
+        for (Field field : Field.values()) {
+            FieldIndex index = fields[field.ordinal()];
+            TermVector vector = index.vector(ordinal);
+            if (vector == null || index.documents == 0) {
+                continue;
+            }
+            double lengthNorm = K1 * (1 - B + B * vector.length / ((double) index.totalLength / index.documents));
+            for (int i = 0; i < queryTerms.length; i++) {
+                int tf = vector.frequency(queryTerms[i]);
+                if (tf > 0) {
+                    score += field.weight * idf[i] * tf * (K1 + 1) / (tf + lengthNorm);
+                }
+            }
+        }
+        return score;
+    }
+
+    // Sorted distinct term ids with counts, from the words' ids sorted and run-length counted
+    private TermVector vector(String text, int maxWords) {
+        int[] ids = new int[16];
+        int length = 0;
+        Matcher matcher = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (length < maxWords && matcher.find()) {
+            if (length == ids.length) {
+                ids = Arrays.copyOf(ids, length * 2);
+            }
+            ids[length++] = termId(matcher.group());
+        }
+        Arrays.sort(ids, 0, length);
+
+        int[] terms = new int[length];
+        short[] frequencies = new short[length];
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct > 0 && terms[distinct - 1] == ids[i]) {
+                if (frequencies[distinct - 1] < Short.MAX_VALUE) {
+                    frequencies[distinct - 1]++;
+                }
+            } else {
+                terms[distinct] = ids[i];
+                frequencies[distinct++] = 1;
+            }
+        }
+        return new TermVector(Arrays.copyOf(terms, distinct), Arrays.copyOf(frequencies, distinct), length);
+    }
+
+    private int termId(String word) {
+        Integer id = termIds.get(word);
+        if (id == null) {
+            id = termIds.size();
+            termIds.put(word, id);
+            if (id >= documentFrequency.length) {
+                documentFrequency = Arrays.copyOf(documentFrequency, documentFrequency.length * 2);
+            }
+        }
+        return id;
+    }
+
+    // One field: term vector per ordinal, and length totals for the average field length
+    private static class FieldIndex {
+        private final List<TermVector> vectors = new ArrayList<>();
+        private long totalLength;
+        private int documents;
+
+        TermVector vector(int ordinal) {
+            return ordinal < vectors.size() ? vectors.get(ordinal) : null;
+        }
+
+        void add(int ordinal, TermVector vector) {
+            while (vectors.size() <= ordinal) {
+                vectors.add(null);
+            }
+            vectors.set(ordinal, vector);
+            totalLength += vector.length;
+            documents++;
+        }
+
+        // The removed vector, or null if the ordinal had none
+        TermVector remove(int ordinal) {
+            TermVector vector = vector(ordinal);
+            if (vector != null) {
+                vectors.set(ordinal, null);
+                totalLength -= vector.length;
+                documents--;
+            }
+            return vector;
+        }
+
+        void clear() {
+            vectors.clear();
+            totalLength = 0;
+            documents = 0;
+        }
+    }
+
+    // Sorted distinct term ids of one field with their counts, and the field length in words
+    private record TermVector(int[] terms, short[] frequencies, int length) {
+
+        int frequency(int term) {
+            int i = Arrays.binarySearch(terms, term);
+            return i >= 0 ? frequencies[i] : 0;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.backend.search;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in a sorted catalog listing: the sort key and id of the last book returned.
+ * Sent to clients as an opaque URL-safe token so the next page can seek past it
+ * (WHERE key > ? OR (key = ? AND id > ?)) instead of using OFFSET.
+ */
+public record BookCursor(String sort, String key, Long bookId) {
+
+    // Sort fields a cursor can be built for
+    public static final List<String> SORTS = List.of("title", "author", "price");
+
+    public static BookCursor after(String sort, BookDocument last) {
+        return new BookCursor(sort, keyOf(sort, last.title(), last.author(), last.price()), last.bookId());
+    }
+
+    public static BookCursor after(String sort, String title, String author, BigDecimal price, Long bookId) {
+        return new BookCursor(sort, keyOf(sort, title, author, price), bookId);
+    }
+
+    public String encode() {
+        // Key goes last so it may contain the separator
+        String raw = sort + "\n" + bookId + "\n" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookCursor decode(String token, String expectedSort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 3);
+            if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+                throw new IllegalArgumentException("Cursor does not match sort: " + expectedSort);
+            }
+            BookCursor cursor = new BookCursor(parts[0], parts[2], Long.parseLong(parts[1]));
+            if (cursor.sort().equals("price")) {
+                cursor.price();
+            }
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            // Also covers bad Base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public BigDecimal price() {
+        return new BigDecimal(key);
+    }
+
+    // Stand-in document holding only the cursor's sort key, for comparing in memory
+    public BookDocument toProbe() {
+        return switch (sort) {
+            case "title" -> new BookDocument(bookId, key, null, null, 0);
+            case "author" -> new BookDocument(bookId, null, key, null, 0);
+            default -> new BookDocument(bookId, null, null, price(), 0);
+        };
+    }
+
+    private static String keyOf(String sort, String title, String author, BigDecimal price) {
+        return switch (sort) {
+            case "title" -> title;
+            case "author" -> author;
+            case "price" -> price.toPlainString();
+            default -> throw new IllegalArgumentException("Cursor paging supports sort by " + SORTS);
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.backend.search;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Lightweight in-memory snapshot of the book columns the search index needs.
+ * Only fields used for matching, filtering and sorting are kept, never the description.
+ */
+public record BookDocument(Long bookId, String title, String author, BigDecimal price, int year,
+                           List<String> genres) {
+
+    // Used by the JPQL constructor expression, genres are loaded by a separate query
+    public BookDocument(Long bookId, String title, String author, BigDecimal price, int year) {
+        this(bookId, title, author, price, year, List.of());
+    }
+
+    public BookDocument withGenres(List<String> genres) {
+        return new BookDocument(bookId, title, author, price, year, genres);
+    }
+}
@@ -0,0 +1,568 @@
+package com.example.backend.search;
+
+import com.example.backend.cache.CatalogCache;
+import com.example.backend.entity.Book;
+import com.example.backend.repository.BookRepo;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory search index over book titles and authors.
+ * Built once at startup and kept up to date by CatalogService so that
+ * catalog searches never fall back to a LIKE '%term%' table scan.
+ *
+ * Each book gets a dense int ordinal. A trigram index narrows a query down to
+ * candidate ordinals, which are then checked with a case-insensitive contains()
+ * so results are the same as the old SQL substring match. Genre filters and
+ * facet counts are bitmap operations over the same ordinals.
+ *
+ * A search that matches nothing is retried with misspelled words replaced by the closest
+ * title/author word (BK-tree, bounded edit distance), and the corrected text is returned as "did you mean".
+ *
+ * sort=relevance orders matches by BM25 over title, author and description (see Bm25Index).
+ */
+@Component
+public class BookSearchIndex {
+
+    private final BookRepo bookRepo;
+    private final CatalogCache catalogCache;
+
+    public static final String RELEVANCE = "relevance";
+
+    private static final int MAX_AUTHOR_FACETS = 10;
+
+    // Descriptions are indexed this many books per write lock, so searches keep running meanwhile
+    private static final int DESCRIPTION_BATCH = 1000;
+    private static final String[] PRICE_BUCKETS = {"Under $10", "$10 - $25", "$25 - $50", "$50 and up"};
+
+    // Words of a title or author, as indexed for typo correction
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    // Entries by ordinal (null once removed), the ordinals still in use, and the current ordinal of each book id.
+    // Removed ordinals are handed out again, so edits and deletes do not grow the index in a long-running process
+    private final List<Entry> entries = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final TrigramIndex trigrams = new TrigramIndex();
+    private final GenreBitmaps genres = new GenreBitmaps();
+    private final BkTree words = new BkTree();
+    private final Bm25Index relevance = new Bm25Index();
+
+    // Many concurrent searches, rare catalog writes
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+    private volatile boolean descriptionsLoaded = false;
+
+    public BookSearchIndex(BookRepo bookRepo, CatalogCache catalogCache) {
+        this.bookRepo = bookRepo;
+        this.catalogCache = catalogCache;
+    }
+
+    // Load every book once the application has started, then stream in the descriptions for relevance scoring.
+    // Listing pages answered meanwhile are provisional; their ETags are retired once everything is in
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        Map<Long, List<String>> genres = new HashMap<>();
+        for (Object[] row : bookRepo.findAllBookGenres()) {
+            genres.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        List<BookDocument> all = new ArrayList<>();
+        for (BookDocument doc : bookRepo.findAllSearchDocuments()) {
+            all.add(doc.withGenres(genres.getOrDefault(doc.bookId(), List.of())));
+        }
+        load(all);
+
+        try (Stream<Object[]> descriptions = bookRepo.streamAllDescriptions()) {
+            loadDescriptions(descriptions.iterator());
+        }
+        descriptionsLoaded = true;
+        catalogCache.clear();
+    }
+
+    /**
+     * Index (bookId, description) rows for relevance scoring, after load().
+     * Until a book's description is in, it is ranked on title and author only.
+     */
+    public void loadDescriptions(Iterator<Object[]> rows) {
+        while (rows.hasNext()) {
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < DESCRIPTION_BATCH && rows.hasNext(); i++) {
+                    Object[] row = rows.next();
+                    Integer ordinal = ordinals.get((Long) row[0]);
+                    if (ordinal != null) {
+                        relevance.set(ordinal, Bm25Index.Field.DESCRIPTION, (String) row[1]);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Replace the whole index with the given documents
+    public void load(List<BookDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            live.clear();
+            freeOrdinals.clear();
+            ordinals.clear();
+            trigrams.clear();
+            genres.clear();
+            words.clear();
+            relevance.clear();
+            descriptionsLoaded = false;
+            for (BookDocument doc : documents) {
+                addDocument(doc);
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Whether relevance is scored on descriptions too, see rebuild()
+    public boolean hasDescriptions() {
+        return descriptionsLoaded;
+    }
+
+    // Whether results for this sort field can be ordered from the index alone
+    public boolean supportsSort(String sortBy) {
+        return comparatorFor(sortBy) != null;
+    }
+
+    // Add or replace a book after it was saved
+    public void put(Book book) {
+        BookDocument doc = new BookDocument(book.getBookId(), book.getTitle(), book.getAuthor(),
+                book.getPrice(), book.getYear(), List.copyOf(book.getGenres()));
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(doc.bookId());
+            Entry old = ordinal != null ? entries.get(ordinal) : null;
+            if (old != null && old.title().equals(lower(doc.title())) && old.author().equals(lower(doc.author()))) {
+                // Searchable text unchanged (e.g. a stock update), keep the ordinal and its trigram postings
+                genres.remove(ordinal, old.doc().genres());
+                genres.add(ordinal, doc.genres());
+                entries.set(ordinal, new Entry(doc, old.title(), old.author()));
+            } else {
+                removeDocument(doc.bookId());
+                ordinal = addDocument(doc);
+            }
+            relevance.set(ordinal, Bm25Index.Field.DESCRIPTION, book.getDescription());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // New prices for many books under one write lock, e.g. after an inventory sync (unknown ids are ignored)
+    public void updatePrices(Map<Long, BigDecimal> prices) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, BigDecimal> price : prices.entrySet()) {
+                Integer ordinal = ordinals.get(price.getKey());
+                Entry old = ordinal != null ? entries.get(ordinal) : null;
+                if (old != null) {
+                    BookDocument doc = old.doc();
+                    BookDocument updated = new BookDocument(doc.bookId(), doc.title(), doc.author(),
+                            price.getValue(), doc.year(), doc.genres());
+                    entries.set(ordinal, new Entry(updated, old.title(), old.author()));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Catalog lookup answered entirely from memory: substring search over titles and authors,
+     * genre AND/OR filtering with bitmaps, sorting, paging and optional facet counts.
+     *
+     * @param query Text and genre filters, and whether facets are wanted
+     * @param pageable Page number, size and a single sort field
+     * @return Ids for the requested page, in sort order, the total match count and facets (or null)
+     */
+    public SearchHits search(CatalogQuery query, Pageable pageable) {
+        Sort.Order order = pageable.getSort().iterator().next();
+        Comparator<BookDocument> comparator = comparatorFor(order.getProperty());
+        if (order.isDescending()) {
+            comparator = comparator.reversed();
+        }
+        comparator = comparator.thenComparing(BookDocument::bookId);
+        long limit = pageable.getOffset() + pageable.getPageSize();
+
+        lock.readLock().lock();
+        try {
+            Matches matches = match(query);
+            List<BookDocument> top;
+            if (RELEVANCE.equals(order.getProperty()) && query.hasSearch()) {
+                // Score the corrected text if that is what matched
+                String text = matches.didYouMean() != null ? matches.didYouMean() : query.search();
+                top = topByRelevance(matches, relevance.queryTerms(text), comparator, limit);
+            } else {
+                top = top(matches.docs(), comparator, limit, null);
+            }
+
+            List<BookDocument> page = pageable.getOffset() < top.size()
+                    ? top.subList((int) pageable.getOffset(), top.size())
+                    : List.of();
+            return new SearchHits(ids(page), matches.docs().size(), matches.facets(), null, matches.didYouMean());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Same lookup with keyset paging: the page starts right after the cursor's position,
+     * so a deep page costs the same as the first one.
+     *
+     * @param query Text and genre filters, and whether facets are wanted
+     * @param sortBy One of BookCursor.SORTS, ascending
+     * @param after Position of the last book already returned, or null for the first page
+     * @param size Number of ids to return
+     * @return Ids for the page, the total match count, facets (or null) and the next cursor (null on the last page)
+     */
+    public SearchHits searchAfter(CatalogQuery query, String sortBy, BookCursor after, int size) {
+        Comparator<BookDocument> comparator = comparatorFor(sortBy).thenComparing(BookDocument::bookId);
+
+        lock.readLock().lock();
+        try {
+            Matches matches = match(query);
+            // One extra tells us whether there is a next page
+            List<BookDocument> top = top(matches.docs(), comparator, size + 1L,
+                    after != null ? after.toProbe() : null);
+
+            String nextCursor = null;
+            if (top.size() > size) {
+                top = top.subList(0, size);
+                nextCursor = BookCursor.after(sortBy, top.get(size - 1)).encode();
+            }
+            return new SearchHits(ids(top), matches.docs().size(), matches.facets(), nextCursor,
+                    matches.didYouMean());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller must hold the read lock
+    private Matches match(CatalogQuery query) {
+        BitSet textMatches = query.hasSearch() ? matchText(query.search()) : (BitSet) live.clone();
+
+        // Nothing found: retry once with misspelled words corrected
+        String didYouMean = null;
+        if (query.hasSearch() && textMatches.isEmpty()) {
+            String corrected = correct(query.search());
+            if (corrected != null) {
+                BitSet fuzzyMatches = matchText(corrected);
+                if (!fuzzyMatches.isEmpty()) {
+                    textMatches = fuzzyMatches;
+                    didYouMean = corrected;
+                }
+            }
+        }
+
+        BitSet matches = textMatches;
+        if (query.hasGenres()) {
+            matches = genres.filter(query.genres(), query.matchAllGenres());
+            matches.and(textMatches);
+        }
+
+        List<BookDocument> docs = new ArrayList<>(matches.cardinality());
+        int[] matchOrdinals = new int[matches.cardinality()];
+        for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+            matchOrdinals[docs.size()] = ordinal;
+            docs.add(entries.get(ordinal).doc());
+        }
+        return new Matches(docs, matchOrdinals, query.facets() ? facets(textMatches, docs) : null, didYouMean);
+    }
+
+    /**
+     * The search text with every word that appears in no title or author replaced by the closest one that does,
+     * or null if there was nothing to correct. Words under 4 letters are left alone, longer
+     * ones allow 1 edit, and 8 letters or more allow 2.
+     */
+    private String correct(String search) {
+        String text = search.trim().toLowerCase(Locale.ROOT);
+        Matcher matcher = WORD.matcher(text);
+        StringBuilder corrected = new StringBuilder();
+        boolean changed = false;
+        while (matcher.find()) {
+            String word = matcher.group();
+            int maxEdits = word.length() >= 8 ? 2 : word.length() >= 4 ? 1 : 0;
+            String replacement = word;
+            if (maxEdits > 0 && !words.contains(word)) {
+                String closest = words.closest(word, maxEdits);
+                if (closest != null) {
+                    replacement = closest;
+                    changed = true;
+                }
+            }
+            matcher.appendReplacement(corrected, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(corrected);
+        return changed ? corrected.toString() : null;
+    }
+
+    // Every genre that currently has at least one book
+    public List<String> genres() {
+        lock.readLock().lock();
+        try {
+            return genres.names();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ordinals whose title or author contains the text, case-insensitively
+    private BitSet matchText(String search) {
+        String needle = search.trim().toLowerCase(Locale.ROOT);
+        BitSet result = new BitSet();
+
+        if (needle.length() >= TrigramIndex.GRAM) {
+            // Trigrams narrow the candidates, contains() confirms them
+            for (int ordinal : trigrams.candidates(needle)) {
+                if (contains(entries.get(ordinal), needle)) {
+                    result.set(ordinal);
+                }
+            }
+        } else {
+            // Too short to form a trigram, check every book in memory instead
+            for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+                if (contains(entries.get(ordinal), needle)) {
+                    result.set(ordinal);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean contains(Entry entry, String needle) {
+        return entry != null && (entry.title().contains(needle) || entry.author().contains(needle));
+    }
+
+    // Genre counts over the text matches (before the genre filter), the rest over the final result
+    private CatalogFacets facets(BitSet textMatches, List<BookDocument> docs) {
+        Map<String, Long> authors = new HashMap<>();
+        Map<String, Long> years = new TreeMap<>();
+        Map<String, Long> prices = new LinkedHashMap<>();
+        for (String bucket : PRICE_BUCKETS) {
+            prices.put(bucket, 0L);
+        }
+
+        for (BookDocument doc : docs) {
+            if (doc.author() != null) {
+                authors.merge(doc.author(), 1L, Long::sum);
+            }
+            years.merge((doc.year() / 10) * 10 + "s", 1L, Long::sum);
+            prices.merge(priceBucket(doc.price()), 1L, Long::sum);
+        }
+
+        // Only the most common authors, most books first
+        Map<String, Long> topAuthors = new LinkedHashMap<>();
+        authors.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(MAX_AUTHOR_FACETS)
+                .forEach(e -> topAuthors.put(e.getKey(), e.getValue()));
+
+        return new CatalogFacets(genres.counts(textMatches), topAuthors, years, prices);
+    }
+
+    private static String priceBucket(BigDecimal price) {
+        if (price == null || price.compareTo(BigDecimal.TEN) < 0) {
+            return PRICE_BUCKETS[0];
+        } else if (price.compareTo(BigDecimal.valueOf(25)) < 0) {
+            return PRICE_BUCKETS[1];
+        } else if (price.compareTo(BigDecimal.valueOf(50)) < 0) {
+            return PRICE_BUCKETS[2];
+        }
+        return PRICE_BUCKETS[3];
+    }
+
+    /**
+     * The first "limit" matches in sort order, optionally only those after a position.
+     * Uses a bounded heap instead of sorting every match.
+     */
+    private static List<BookDocument> top(List<BookDocument> matches, Comparator<BookDocument> comparator,
+                                          long limit, BookDocument after) {
+        // Max-heap on the sort order: the root is the worst of the best "limit" matches so far
+        PriorityQueue<BookDocument> heap = new PriorityQueue<>(
+                (int) Math.min(limit, matches.size()) + 1, comparator.reversed());
+        for (BookDocument doc : matches) {
+            if (after != null && comparator.compare(doc, after) <= 0) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(doc);
+            } else if (comparator.compare(doc, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(doc);
+            }
+        }
+        List<BookDocument> top = new ArrayList<>(heap);
+        top.sort(comparator);
+        return top;
+    }
+
+    /**
+     * The "limit" highest-scoring matches, best first, ties in the given order.
+     * Same bounded heap as top(), keyed by the BM25 score.
+     */
+    private List<BookDocument> topByRelevance(Matches matches, int[] queryTerms,
+                                              Comparator<BookDocument> tieBreak, long limit) {
+        Comparator<Scored> best = Comparator.comparingDouble(Scored::score).reversed()
+                .thenComparing(Scored::doc, tieBreak);
+        PriorityQueue<Scored> heap = new PriorityQueue<>(
+                (int) Math.min(limit, matches.docs().size()) + 1, best.reversed());
+        double[] idf = relevance.idf(queryTerms);
+        for (int i = 0; i < matches.docs().size(); i++) {
+            double score = relevance.score(matches.ordinals()[i], queryTerms, idf);
+            Scored scored = new Scored(matches.docs().get(i), score);
+            if (heap.size() < limit) {
+                heap.add(scored);
+            } else if (best.compare(scored, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(scored);
+            }
+        }
+        List<Scored> top = new ArrayList<>(heap);
+        top.sort(best);
+        List<BookDocument> docs = new ArrayList<>(top.size());
+        for (Scored scored : top) {
+            docs.add(scored.doc());
+        }
+        return docs;
+    }
+
+    private static List<Long> ids(List<BookDocument> docs) {
+        List<Long> ids = new ArrayList<>(docs.size());
+        for (BookDocument doc : docs) {
+            ids.add(doc.bookId());
+        }
+        return ids;
+    }
+
+    private Comparator<BookDocument> comparatorFor(String sortBy) {
+        return switch (sortBy) {
+            case "title" -> Comparator.comparing(BookDocument::title, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+            case "author" -> Comparator.comparing(BookDocument::author, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+            case "price" -> Comparator.comparing(BookDocument::price, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "year" -> Comparator.comparingInt(BookDocument::year);
+            case "bookId" -> Comparator.comparing(BookDocument::bookId);
+            // Ties between equal scores (and every match of an empty search) go by title
+            case RELEVANCE -> Comparator.comparing(BookDocument::title, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+            default -> null;
+        };
+    }
+
+    // Caller must hold the write lock. A freed ordinal is reused first; posting lists insert it in order
+    private int addDocument(BookDocument doc) {
+        Entry entry = new Entry(doc, lower(doc.title()), lower(doc.author()));
+        Integer free = freeOrdinals.pollLast();
+        int ordinal;
+        if (free != null) {
+            ordinal = free;
+            entries.set(ordinal, entry);
+        } else {
+            ordinal = entries.size();
+            entries.add(entry);
+        }
+        live.set(ordinal);
+        ordinals.put(doc.bookId(), ordinal);
+        trigrams.add(ordinal, entry.title(), entry.author());
+        genres.add(ordinal, doc.genres());
+        for (String word : words(entry)) {
+            words.add(word);
+        }
+        relevance.set(ordinal, Bm25Index.Field.TITLE, entry.title());
+        relevance.set(ordinal, Bm25Index.Field.AUTHOR, entry.author());
+        return ordinal;
+    }
+
+    // Caller must hold the write lock
+    private void removeDocument(Long bookId) {
+        Integer ordinal = ordinals.remove(bookId);
+        if (ordinal == null) {
+            return;
+        }
+        Entry old = entries.set(ordinal, null);
+        live.clear(ordinal);
+        trigrams.remove(ordinal, old.title(), old.author());
+        genres.remove(ordinal, old.doc().genres());
+        for (String word : words(old)) {
+            words.remove(word);
+        }
+        relevance.remove(ordinal);
+        freeOrdinals.addLast(ordinal);
+    }
+
+    // Ordinals allocated so far, in use or free
+    int ordinalCapacity() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Distinct words of a book's title and author
+    private static Set<String> words(Entry entry) {
+        Set<String> result = new HashSet<>();
+        for (String field : new String[]{entry.title(), entry.author()}) {
+            Matcher matcher = WORD.matcher(field);
+            while (matcher.find()) {
+                result.add(matcher.group());
+            }
+        }
+        return result;
+    }
+
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // Document plus its lower-cased fields, so searches do not re-lowercase on every check
+    private record Entry(BookDocument doc, String title, String author) {
+    }
+
+    // Every matching document and its ordinal, facet counts if requested, and the corrected search text if one was used
+    private record Matches(List<BookDocument> docs, int[] ordinals, CatalogFacets facets, String didYouMean) {
+    }
+
+    private record Scored(BookDocument doc, double score) {
+    }
+
+    // One page of matching ids, the total number of matches, facet counts if requested,
+    // for keyset paging the cursor of the next page, and the corrected search text if the original matched nothing
+    public record SearchHits(List<Long> ids, long total, CatalogFacets facets, String nextCursor, String didYouMean) {
+    }
+}
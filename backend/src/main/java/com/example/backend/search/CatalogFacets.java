@@ -0,0 +1,14 @@
+package com.example.backend.search;
+
+import java.util.Map;
+
+/**
+ * Facet counts for one catalog lookup, label -> number of matching books.
+ * Genre counts ignore the genre filter itself so the UI can show what selecting
+ * another genre would give; the other facets count the final result.
+ */
+public record CatalogFacets(Map<String, Long> genres,
+                            Map<String, Long> authors,
+                            Map<String, Long> years,
+                            Map<String, Long> prices) {
+}
@@ -0,0 +1,22 @@
+package com.example.backend.search;
+
+import java.util.List;
+
+/**
+ * Filters for an in-memory catalog lookup.
+ *
+ * @param search Substring to find in title or author, or null for no text filter
+ * @param genres Genres to filter by, empty for all
+ * @param matchAllGenres true = book must have every genre (AND), false = any of them (OR)
+ * @param facets Whether to compute facet counts for the result
+ */
+public record CatalogQuery(String search, List<String> genres, boolean matchAllGenres, boolean facets) {
+
+    public boolean hasSearch() {
+        return search != null && !search.trim().isEmpty();
+    }
+
+    public boolean hasGenres() {
+        return genres != null && !genres.isEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.backend.search;
+
+import java.util.*;
+
+/**
+ * Genre dictionary (genre string -> int id) plus one bitmap of document ordinals per genre.
+ * Ordinals are dense, so a plain BitSet costs one bit per book per genre
+ * (about 125 KB per genre for a million books) and AND/OR filters are word-wise bit operations.
+ * Not thread-safe, callers synchronize.
+ */
+public class GenreBitmaps {
+
+    // Lower-cased genre -> id, and per id the display name and its bitmap
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<BitSet> bitmaps = new ArrayList<>();
+
+    public void add(int ordinal, List<String> genres) {
+        for (String genre : genres) {
+            bitmaps.get(idFor(genre)).set(ordinal);
+        }
+    }
+
+    public void remove(int ordinal, List<String> genres) {
+        for (String genre : genres) {
+            Integer id = ids.get(key(genre));
+            if (id != null) {
+                bitmaps.get(id).clear(ordinal);
+            }
+        }
+    }
+
+    public void clear() {
+        ids.clear();
+        names.clear();
+        bitmaps.clear();
+    }
+
+    /**
+     * Ordinals having all (AND) or any (OR) of the genres.
+     * An unknown genre matches nothing.
+     */
+    public BitSet filter(List<String> genres, boolean matchAll) {
+        BitSet result = null;
+        for (String genre : genres) {
+            Integer id = ids.get(key(genre));
+            BitSet bits = id != null ? bitmaps.get(id) : new BitSet();
+            if (result == null) {
+                result = (BitSet) bits.clone();
+            } else if (matchAll) {
+                result.and(bits);
+            } else {
+                result.or(bits);
+            }
+        }
+        return result != null ? result : new BitSet();
+    }
+
+    // Number of ordinals in the set for every genre that has at least one, by display name
+    public Map<String, Long> counts(BitSet within) {
+        Map<String, Long> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int id = 0; id < bitmaps.size(); id++) {
+            BitSet bits = (BitSet) bitmaps.get(id).clone();
+            bits.and(within);
+            int count = bits.cardinality();
+            if (count > 0) {
+                counts.put(names.get(id), (long) count);
+            }
+        }
+        return counts;
+    }
+
+    // Every genre that still has at least one book, alphabetically
+    public List<String> names() {
+        List<String> result = new ArrayList<>();
+        for (int id = 0; id < bitmaps.size(); id++) {
+            if (!bitmaps.get(id).isEmpty()) {
+                result.add(names.get(id));
+            }
+        }
+        result.sort(String.CASE_INSENSITIVE_ORDER);
+        return result;
+    }
+
+    private int idFor(String genre) {
+        return ids.computeIfAbsent(key(genre), k -> {
+            names.add(genre);
+            bitmaps.add(new BitSet());
+            return names.size() - 1;
+        });
+    }
+
+    private static String key(String genre) {
+        return genre.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.backend.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, growable list of primitive int document ordinals.
+ * Avoids boxing so a posting list costs 4 bytes per entry.
+ */
+public class IntPostingList {
+
+    private int[] values = new int[4];
+    private int size = 0;
+
+    public void add(int value) {
+        // Ordinals are handed out in increasing order, so this is almost always an append
+        if (size == 0 || values[size - 1] < value) {
+            ensureCapacity();
+            values[size++] = value;
+            return;
+        }
+
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos >= 0) {
+            return;
+        }
+        int insertAt = -pos - 1;
+        ensureCapacity();
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        size++;
+    }
+
+    public void remove(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) {
+            return;
+        }
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    // Values present in both this list and the sorted array, in order
+    public int[] intersect(int[] other) {
+        int[] out = new int[Math.min(size, other.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < size && j < other.length) {
+            if (values[i] == other[j]) {
+                out[n++] = values[i];
+                i++;
+                j++;
+            } else if (values[i] < other[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+    }
+}
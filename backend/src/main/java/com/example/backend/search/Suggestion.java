@@ -0,0 +1,76 @@
+package com.example.backend.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One autocomplete entry: a distinct title or author and the books behind it.
+ * Weight is the summed popularity of those books. Uses identity equality on purpose,
+ * the trie keeps these in hash sets while their weight changes.
+ */
+public class Suggestion {
+
+    public enum Type { TITLE, AUTHOR }
+
+    private final String text;
+    private final Type type;
+
+    // bookId -> popularity of that book
+    private final Map<Long, Long> books = new HashMap<>();
+    private long weight = 0;
+
+    public Suggestion(String text, Type type) {
+        this.text = text;
+        this.type = type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public boolean isEmpty() {
+        return books.isEmpty();
+    }
+
+    // The most popular book with this title/author, so the UI can link straight to it. Caller must hold the index lock
+    Long getTopBookId() {
+        Long best = null;
+        long bestPopularity = -1;
+        for (Map.Entry<Long, Long> entry : books.entrySet()) {
+            if (entry.getValue() > bestPopularity) {
+                best = entry.getKey();
+                bestPopularity = entry.getValue();
+            }
+        }
+        return best;
+    }
+
+    // Copy of what a lookup returns, taken under the index lock so it stays valid after the lock is released
+    Match snapshot() {
+        return new Match(text, type, getTopBookId());
+    }
+
+    void addBook(Long bookId, long popularity) {
+        Long previous = books.put(bookId, popularity);
+        weight += popularity - (previous != null ? previous : 0);
+    }
+
+    void removeBook(Long bookId) {
+        Long previous = books.remove(bookId);
+        if (previous != null) {
+            weight -= previous;
+        }
+    }
+
+    // A suggestion as returned to callers: the text, whether it is a title or an author, and its most popular book
+    public record Match(String text, Type type, Long topBookId) {
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.backend.search;
+
+import com.example.backend.entity.Book;
+import com.example.backend.repository.BookRepo;
+import com.example.backend.repository.OrderItemRepo;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typeahead index over book titles and authors, ranked by popularity (units sold).
+ * Every word start of a title or author is a trie key, so "potter" completes
+ * "Harry Potter and the Philosopher's Stone" as well as "harry" does.
+ *
+ * Units sold are loaded at startup from the orders counted in the sales rollups, then kept up
+ * to date by SalesRollupService as orders are sold and refunded.
+ */
+@Component
+public class SuggestionIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private final BookRepo bookRepo;
+    private final OrderItemRepo orderItemRepo;
+
+    private final SuggestionTrie trie = new SuggestionTrie(MAX_SUGGESTIONS);
+
+    // Distinct titles/authors keyed by type + normalized text, and what each book contributes
+    private final Map<String, Suggestion> suggestions = new HashMap<>();
+    private final Map<Long, BookEntry> books = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public SuggestionIndex(BookRepo bookRepo, OrderItemRepo orderItemRepo) {
+        this.bookRepo = bookRepo;
+        this.orderItemRepo = orderItemRepo;
+    }
+
+    // Load titles, authors and units sold once the application has started
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        Map<Long, Long> unitsSold = new HashMap<>();
+        for (Object[] row : orderItemRepo.sumQuantityByBook()) {
+            unitsSold.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        List<BookDocument> all = bookRepo.findAllSearchDocuments();
+
+        lock.writeLock().lock();
+        try {
+            trie.clear();
+            suggestions.clear();
+            books.clear();
+
+            Set<Suggestion> created = new HashSet<>();
+            for (BookDocument doc : all) {
+                long popularity = popularity(unitsSold.getOrDefault(doc.bookId(), 0L));
+                BookEntry entry = new BookEntry(
+                        suggestionFor(doc.title(), Suggestion.Type.TITLE, created),
+                        suggestionFor(doc.author(), Suggestion.Type.AUTHOR, created),
+                        popularity);
+                entry.title().addBook(doc.bookId(), popularity);
+                entry.author().addBook(doc.bookId(), popularity);
+                books.put(doc.bookId(), entry);
+            }
+
+            // Insert every suggestion once, then rank the whole trie bottom-up in one pass
+            for (Suggestion suggestion : created) {
+                for (String key : keys(suggestion.getText())) {
+                    trie.addUnranked(key, suggestion);
+                }
+            }
+            trie.rebuildTopLists();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Add or replace a book after it was saved
+    public void put(Book book) {
+        lock.writeLock().lock();
+        try {
+            BookEntry old = books.get(book.getBookId());
+            // A new book has not sold anything yet, an edited one keeps its popularity
+            long popularity = old != null ? old.popularity() : popularity(0);
+            detach(book.getBookId());
+
+            BookEntry entry = new BookEntry(
+                    attach(book.getTitle(), Suggestion.Type.TITLE, book.getBookId(), popularity),
+                    attach(book.getAuthor(), Suggestion.Type.AUTHOR, book.getBookId(), popularity),
+                    popularity);
+            books.put(book.getBookId(), entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Units sold (negative: taken back by a refund) added to the books' popularity, re-ranking their
+     * titles and authors. Unknown book ids are ignored.
+     */
+    public void addUnitsSold(Map<Long, Long> units) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Long> sold : units.entrySet()) {
+                BookEntry entry = books.get(sold.getKey());
+                if (entry == null) {
+                    continue;
+                }
+                long popularity = Math.max(popularity(0), entry.popularity() + sold.getValue());
+                books.put(sold.getKey(), new BookEntry(entry.title(), entry.author(), popularity));
+                for (Suggestion suggestion : List.of(entry.title(), entry.author())) {
+                    suggestion.addBook(sold.getKey(), popularity);
+                    for (String key : keys(suggestion.getText())) {
+                        trie.refresh(key);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            detach(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Most popular titles and authors starting with the prefix (at any word).
+     *
+     * @param prefix What the user has typed so far
+     * @param limit Max number of suggestions, capped at MAX_SUGGESTIONS (none when not positive)
+     */
+    public List<Suggestion.Match> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Suggestion.Match> matches = new ArrayList<>();
+            // A negative limit asks for nothing rather than failing
+            for (Suggestion suggestion : trie.top(key, Math.max(0, Math.min(limit, MAX_SUGGESTIONS)))) {
+                matches.add(suggestion.snapshot());
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller must hold the write lock
+    private Suggestion attach(String text, Suggestion.Type type, Long bookId, long popularity) {
+        String id = type + ":" + normalize(text);
+        Suggestion suggestion = suggestions.get(id);
+        boolean isNew = suggestion == null;
+        if (isNew) {
+            suggestion = new Suggestion(text, type);
+            suggestions.put(id, suggestion);
+        }
+
+        suggestion.addBook(bookId, popularity);
+        for (String key : keys(text)) {
+            if (isNew) {
+                trie.add(key, suggestion);
+            } else {
+                // Weight went up, re-rank the paths that lead to it
+                trie.refresh(key);
+            }
+        }
+        return suggestion;
+    }
+
+    // Caller must hold the write lock
+    private void detach(Long bookId) {
+        BookEntry entry = books.remove(bookId);
+        if (entry == null) {
+            return;
+        }
+        for (Suggestion suggestion : List.of(entry.title(), entry.author())) {
+            suggestion.removeBook(bookId);
+            boolean gone = suggestion.isEmpty();
+            if (gone) {
+                suggestions.remove(suggestion.getType() + ":" + normalize(suggestion.getText()));
+            }
+            for (String key : keys(suggestion.getText())) {
+                if (gone) {
+                    trie.remove(key, suggestion);
+                } else {
+                    trie.refresh(key);
+                }
+            }
+        }
+    }
+
+    // Used while bulk loading, before the trie is ranked
+    private Suggestion suggestionFor(String text, Suggestion.Type type, Set<Suggestion> created) {
+        return suggestions.computeIfAbsent(type + ":" + normalize(text), id -> {
+            Suggestion suggestion = new Suggestion(text, type);
+            created.add(suggestion);
+            return suggestion;
+        });
+    }
+
+    // The full text plus every suffix that starts at a word boundary
+    private static List<String> keys(String text) {
+        String normalized = normalize(text);
+        List<String> keys = new ArrayList<>();
+        if (normalized.isEmpty()) {
+            return keys;
+        }
+        keys.add(normalized);
+        for (int i = 1; i < normalized.length(); i++) {
+            if (normalized.charAt(i - 1) == ' ') {
+                keys.add(normalized.substring(i));
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    // Every book counts at least once, so unsold books still rank among themselves
+    private static long popularity(long unitsSold) {
+        return unitsSold + 1;
+    }
+
+    private record BookEntry(Suggestion title, Suggestion author, long popularity) {
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.backend.search;
+
+import java.util.*;
+
+/**
+ * Compressed (radix) trie from lower-cased keys to suggestions.
+ * Every node caches the best suggestions below it, so a prefix lookup is a walk down
+ * at most prefix.length() characters plus a copy of a short list, no subtree traversal.
+ * Not thread-safe, callers synchronize.
+ */
+public class SuggestionTrie {
+
+    // Highest weight first, ties broken alphabetically so results are stable
+    private static final Comparator<Suggestion> RANKING =
+            Comparator.comparingLong(Suggestion::getWeight).reversed()
+                    .thenComparing(Suggestion::getText, String.CASE_INSENSITIVE_ORDER);
+
+    private final int maxSuggestions;
+    private Node root = new Node("");
+
+    public SuggestionTrie(int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    public void add(String key, Suggestion suggestion) {
+        insertPath(key).values.add(suggestion);
+        refresh(key);
+    }
+
+    // Bulk loading: add without maintaining top lists, then call rebuildTopLists() once
+    public void addUnranked(String key, Suggestion suggestion) {
+        insertPath(key).values.add(suggestion);
+    }
+
+    public void rebuildTopLists() {
+        rebuildTopLists(root);
+    }
+
+    public void remove(String key, Suggestion suggestion) {
+        List<Node> path = path(key);
+        if (!spellsKey(path, key)) {
+            return;
+        }
+        path.get(path.size() - 1).values.remove(suggestion);
+        refresh(key);
+    }
+
+    public void clear() {
+        root = new Node("");
+    }
+
+    /**
+     * Recompute the cached top lists on the path to a key, deepest node first.
+     * Call after a suggestion stored under this key changed weight.
+     */
+    public void refresh(String key) {
+        List<Node> path = path(key);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            if (i > 0 && node.values.isEmpty() && node.children.isEmpty()) {
+                // Nothing left below this node, drop it
+                path.get(i - 1).children.remove(node.edge.charAt(0));
+                continue;
+            }
+            node.top = best(node);
+        }
+    }
+
+    // Best suggestions whose key starts with the prefix
+    public List<Suggestion> top(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.children.get(prefix.charAt(i));
+            if (child == null) {
+                return List.of();
+            }
+            int common = commonPrefix(child.edge, prefix, i);
+            if (common < child.edge.length() && i + common < prefix.length()) {
+                // Prefix diverges in the middle of this edge
+                return List.of();
+            }
+            node = child;
+            i += common;
+        }
+        return List.copyOf(node.top.subList(0, Math.min(limit, node.top.size())));
+    }
+
+    private Node insertPath(String key) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            char c = key.charAt(i);
+            Node child = node.children.get(c);
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.children.put(c, child);
+                return child;
+            }
+            int common = commonPrefix(child.edge, key, i);
+            if (common < child.edge.length()) {
+                // Split the edge so the key ends (or branches) at a node
+                Node middle = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                middle.children.put(child.edge.charAt(0), child);
+                node.children.put(c, middle);
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        return node;
+    }
+
+    // Nodes from the root along the key, stopping where the key leaves the trie
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.children.get(key.charAt(i));
+            if (child == null) {
+                break;
+            }
+            int common = commonPrefix(child.edge, key, i);
+            if (common < child.edge.length()) {
+                break;
+            }
+            path.add(child);
+            node = child;
+            i += common;
+        }
+        return path;
+    }
+
+    // Post-order so every child's list is ready before its parent merges it
+    private void rebuildTopLists(Node node) {
+        for (Node child : node.children.values()) {
+            rebuildTopLists(child);
+        }
+        node.top = best(node);
+    }
+
+    // Merge this node's own values with each child's cached top list
+    private List<Suggestion> best(Node node) {
+        Set<Suggestion> candidates = new HashSet<>(node.values);
+        for (Node child : node.children.values()) {
+            candidates.addAll(child.top);
+        }
+        List<Suggestion> ranked = new ArrayList<>(candidates);
+        ranked.sort(RANKING);
+        return ranked.size() > maxSuggestions ? new ArrayList<>(ranked.subList(0, maxSuggestions)) : ranked;
+    }
+
+    // True when the path reaches a node for the whole key, not just part of it
+    private static boolean spellsKey(List<Node> path, String key) {
+        int length = 0;
+        for (Node node : path) {
+            length += node.edge.length();
+        }
+        return length == key.length();
+    }
+
+    private static int commonPrefix(String edge, String key, int offset) {
+        int max = Math.min(edge.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && edge.charAt(n) == key.charAt(offset + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static class Node {
+        private String edge;
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final Set<Suggestion> values = new HashSet<>(2);
+        private List<Suggestion> top = List.of();
+
+        Node(String edge) {
+            this.edge = edge;
+        }
+    }
+}
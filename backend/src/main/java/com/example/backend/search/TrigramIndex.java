@@ -0,0 +1,82 @@
+package com.example.backend.search;
+
+import java.util.*;
+
+/**
+ * Trigram posting lists used to narrow substring searches.
+ * Every 3-character window of a field points at the ordinals of the documents containing it,
+ * so a query's candidates are the intersection of the lists for its own trigrams.
+ * Candidates still have to be checked with a real contains() by the caller.
+ */
+public class TrigramIndex {
+
+    public static final int GRAM = 3;
+
+    private final Map<Long, IntPostingList> postings = new HashMap<>();
+
+    // Fields must already be lower-cased
+    public void add(int ordinal, String... fields) {
+        for (long key : trigrams(fields)) {
+            postings.computeIfAbsent(key, k -> new IntPostingList()).add(ordinal);
+        }
+    }
+
+    public void remove(int ordinal, String... fields) {
+        for (long key : trigrams(fields)) {
+            IntPostingList list = postings.get(key);
+            if (list != null) {
+                list.remove(ordinal);
+                if (list.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * Ordinals of documents that contain every trigram of the query.
+     *
+     * @param query Lower-cased search text, at least GRAM characters long
+     * @return Sorted candidate ordinals (possibly empty)
+     */
+    public int[] candidates(String query) {
+        List<IntPostingList> lists = new ArrayList<>();
+        for (long key : trigrams(query)) {
+            IntPostingList list = postings.get(key);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+
+        // Start from the shortest list so intermediate results stay small
+        lists.sort(Comparator.comparingInt(IntPostingList::size));
+        int[] result = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = lists.get(i).intersect(result);
+        }
+        return result;
+    }
+
+    private static Set<Long> trigrams(String... fields) {
+        Set<Long> keys = new HashSet<>();
+        for (String field : fields) {
+            if (field == null) {
+                continue;
+            }
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                keys.add(key(field.charAt(i), field.charAt(i + 1), field.charAt(i + 2)));
+            }
+        }
+        return keys;
+    }
+
+    // Pack three UTF-16 chars into one long so keys need no String allocation
+    private static long key(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.AdminStreamBatch;
+import com.example.backend.dto.AdminStreamBatch.OrderEvent;
+import com.example.backend.dto.AdminStreamBatch.OrderEventType;
+import com.example.backend.dto.AdminStreamBatch.StockLevel;
+import com.example.backend.util.AfterCommit;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process feed of what happens in the store (orders placed, failed payments, refunds, stock changes)
+ * for the admin dashboard stream (GET /api/admin/stream), instead of dashboards re-running the sales
+ * and inventory queries on a timer.
+ *
+ * Services publish events after their transaction commits, so rolled back changes are never shown.
+ * Events are not sent one by one: they are added up into the current interval, and every batch-ms
+ * the interval is closed and sent to every subscriber as one "batch" event (AdminStreamBatch), or
+ * nothing if it is empty. Publishing only takes a short lock, whatever the subscribers do.
+ *
+ * Backpressure: each subscriber has its own sender (a virtual thread) and at most max-queued batches
+ * waiting. When a slow client's queue is full, new batches are merged into the last waiting one,
+ * so it gets fewer, bigger batches and the memory it holds stays bounded; nothing waits on it.
+ * Single instance only, like the hot stock counters.
+ */
+@Service
+public class AdminEventBus {
+
+    // SSE comment sent when nothing happened for this long, so proxies keep the connection open
+    private static final long KEEPALIVE_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final int maxSubscribers;
+    private final int maxQueued;
+    private final long batchMillis;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // Slots taken, reserved before a subscriber is added so concurrent connects cannot exceed max-subscribers
+    private final AtomicInteger connected = new AtomicInteger();
+
+    // Sends to subscribers, one task at a time per subscriber
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("admin-stream-", 0).factory());
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong batchesMerged = new AtomicLong();
+    private final AtomicLong subscribersRejected = new AtomicLong();
+
+    // The interval being collected, guarded by this
+    private int ordersPlaced;
+    private BigDecimal revenue = BigDecimal.ZERO;
+    private int paymentsFailed;
+    private int refunds;
+    private List<OrderEvent> orders = new ArrayList<>();
+    private int ordersOmitted;
+    private Map<Long, StockLevel> stock = new LinkedHashMap<>();
+    private long lastSentNanos = System.nanoTime();
+
+    public AdminEventBus(@Value("${admin.stream.max-subscribers:20}") int maxSubscribers,
+                         @Value("${admin.stream.max-queued:5}") int maxQueued,
+                         @Value("${admin.stream.batch-ms:1000}") long batchMillis) {
+        this.maxSubscribers = maxSubscribers;
+        this.maxQueued = maxQueued;
+        this.batchMillis = batchMillis;
+    }
+
+    public void orderPlaced(Long orderId, Long userId, BigDecimal total) {
+        AfterCommit.run(() -> addOrderEvent(new OrderEvent(OrderEventType.ORDER_PLACED, orderId, userId, total, LocalDateTime.now())));
+    }
+
+    public void paymentFailed(Long orderId, Long userId, BigDecimal total) {
+        AfterCommit.run(() -> addOrderEvent(new OrderEvent(OrderEventType.PAYMENT_FAILED, orderId, userId, total, LocalDateTime.now())));
+    }
+
+    public void orderRefunded(Long orderId, Long userId, BigDecimal amount) {
+        AfterCommit.run(() -> addOrderEvent(new OrderEvent(OrderEventType.ORDER_REFUNDED, orderId, userId, amount, LocalDateTime.now())));
+    }
+
+    // Copies taken from (negative) or put back in stock, by book id
+    public void stockAdjusted(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> copy = Map.copyOf(deltas);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                for (Map.Entry<Long, Integer> delta : copy.entrySet()) {
+                    addStock(new StockLevel(delta.getKey(), null, delta.getValue()));
+                }
+            }
+        });
+    }
+
+    // Stock set outright, by book id
+    public void stockSet(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> copy = Map.copyOf(quantities);
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                for (Map.Entry<Long, Integer> quantity : copy.entrySet()) {
+                    addStock(new StockLevel(quantity.getKey(), quantity.getValue(), 0));
+                }
+            }
+        });
+    }
+
+    /**
+     * Start sending batches to the emitter, until it completes, times out or fails.
+     * Beyond max-subscribers it gets a "rejected" event and is completed.
+     */
+    public void subscribe(SseEmitter emitter) throws IOException {
+        if (!reserveSlot()) {
+            subscribersRejected.incrementAndGet();
+            emitter.send(SseEmitter.event().name("rejected").data("Too many admin stream subscribers"));
+            emitter.complete();
+            return;
+        }
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        try {
+            emitter.send(SseEmitter.event().name("ready").data(Map.of("batchMs", batchMillis)));
+        } catch (IOException | RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+        subscribers.add(subscriber);
+        if (subscriber.closed.get()) {
+            // Closed while connecting
+            subscribers.remove(subscriber);
+        }
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int taken = connected.get();
+            if (taken >= maxSubscribers) {
+                return false;
+            }
+            if (connected.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("streamSubscribers", (long) connected.get());
+        stats.put("streamBatchesSent", batchesSent.get());
+        stats.put("streamBatchesMerged", batchesMerged.get());
+        stats.put("streamSubscribersRejected", subscribersRejected.get());
+        return stats;
+    }
+
+    // Close the interval and hand its batch to every subscriber
+    @Scheduled(fixedRateString = "${admin.stream.batch-ms:1000}")
+    public void flush() {
+        AdminStreamBatch batch = drain();
+        long now = System.nanoTime();
+        if (batch.isEmpty()) {
+            if (now - lastSentNanos >= KEEPALIVE_NANOS) {
+                lastSentNanos = now;
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.offer(null);
+                }
+            }
+            return;
+        }
+        lastSentNanos = now;
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(batch);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        senders.shutdownNow();
+    }
+
+    private synchronized void addOrderEvent(OrderEvent event) {
+        switch (event.type()) {
+            case ORDER_PLACED -> {
+                ordersPlaced++;
+                revenue = revenue.add(event.amount());
+            }
+            case PAYMENT_FAILED -> paymentsFailed++;
+            case ORDER_REFUNDED -> refunds++;
+        }
+        if (orders.size() < AdminStreamBatch.MAX_ORDER_EVENTS) {
+            orders.add(event);
+        } else {
+            ordersOmitted++;
+        }
+    }
+
+    // Called holding the lock
+    private void addStock(StockLevel level) {
+        stock.merge(level.bookId(), level, StockLevel::then);
+    }
+
+    private synchronized AdminStreamBatch drain() {
+        AdminStreamBatch batch = new AdminStreamBatch(sequence.incrementAndGet(), LocalDateTime.now(), ordersPlaced,
+                revenue, paymentsFailed, refunds, orders, ordersOmitted, List.copyOf(stock.values()), 0);
+        ordersPlaced = 0;
+        revenue = BigDecimal.ZERO;
+        paymentsFailed = 0;
+        refunds = 0;
+        orders = new ArrayList<>();
+        ordersOmitted = 0;
+        stock = new LinkedHashMap<>();
+        return batch;
+    }
+
+    // One connected dashboard: its waiting batches and whether its sender is running
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Deque<AdminStreamBatch> queue = new ArrayDeque<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean keepalive;
+        private boolean sending;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        // Gives back its slot, once however many of completion, timeout and errors report it
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                connected.decrementAndGet();
+            }
+        }
+
+        // A batch to send, or null for a keepalive
+        void offer(AdminStreamBatch batch) {
+            synchronized (this) {
+                if (batch == null) {
+                    keepalive = true;
+                } else if (queue.size() >= maxQueued) {
+                    queue.addLast(queue.pollLast().merge(batch));
+                    batchesMerged.incrementAndGet();
+                } else {
+                    queue.addLast(batch);
+                }
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            try {
+                senders.execute(this::send);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                close();
+            }
+        }
+
+        private void send() {
+            while (true) {
+                AdminStreamBatch batch;
+                boolean ping;
+                synchronized (this) {
+                    batch = queue.pollFirst();
+                    ping = batch == null && keepalive;
+                    keepalive = false;
+                    if (batch == null && !ping) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    if (batch != null) {
+                        emitter.send(SseEmitter.event().name("batch").id(Long.toString(batch.sequence())).data(batch));
+                        batchesSent.incrementAndGet();
+                    } else {
+                        emitter.send(SseEmitter.event().comment("keepalive"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away or the stream timed out
+                    close();
+                    emitter.completeWithError(e);
+                    synchronized (this) {
+                        queue.clear();
+                        sending = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
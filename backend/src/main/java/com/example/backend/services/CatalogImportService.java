@@ -0,0 +1,289 @@
+package com.example.backend.services;
+
+import com.example.backend.cache.CatalogCache;
+import com.example.backend.dto.BookDto;
+import com.example.backend.dto.ImportErrorDto;
+import com.example.backend.dto.ImportResultDto;
+import com.example.backend.entity.Book;
+import com.example.backend.importer.CsvBookRowReader;
+import com.example.backend.importer.ImportRow;
+import com.example.backend.importer.NdjsonRowReader;
+import com.example.backend.importer.RowReader;
+import com.example.backend.repository.BookRepo;
+import com.example.backend.search.BookSearchIndex;
+import com.example.backend.search.SuggestionIndex;
+import com.example.backend.util.AfterCommit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Bulk catalog import: streams a CSV or NDJSON upload, validates each row as it arrives
+ * and upserts books by ISBN in JDBC batches, one transaction per batch.
+ *
+ * Goes around JPA on purpose: IDENTITY ids make Hibernate insert books one statement at a time,
+ * while here a batch of books is one INSERT ... ON DUPLICATE KEY UPDATE batch (rewritten into
+ * multi-row statements by the MySQL driver), one id lookup and one genre batch.
+ * Memory is bounded by the batch size whatever the upload size.
+ *
+ * The search and suggestion indexes are updated with each batch's books once that batch commits,
+ * so an import costs about its own size in index work, not a rebuild of the whole catalog.
+ */
+@Service
+public class CatalogImportService {
+
+    static final int BATCH_SIZE = 1000;
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    // Optional text columns keep their value when the feed leaves them empty.
+    // Row alias (MySQL 8.0.19+) rather than VALUES(col), which is deprecated in ON DUPLICATE KEY UPDATE
+    private static final String UPSERT_BOOK = """
+            INSERT INTO books (isbn, title, author, price, description, image_url, thumbnail_url, quantity, year_published)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) AS imported
+            ON DUPLICATE KEY UPDATE
+                title = imported.title,
+                author = imported.author,
+                price = imported.price,
+                description = COALESCE(imported.description, description),
+                image_url = COALESCE(imported.image_url, image_url),
+                thumbnail_url = COALESCE(imported.thumbnail_url, thumbnail_url),
+                quantity = imported.quantity,
+                year_published = imported.year_published
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BookRepo bookRepo;
+
+    private final BookSearchIndex bookSearchIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final CatalogCache catalogCache;
+    private final HotStockService hotStockService;
+
+    public CatalogImportService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                TransactionTemplate transactionTemplate, ObjectMapper objectMapper, BookRepo bookRepo,
+                                BookSearchIndex bookSearchIndex, SuggestionIndex suggestionIndex,
+                                CatalogCache catalogCache, HotStockService hotStockService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.bookRepo = bookRepo;
+        this.bookSearchIndex = bookSearchIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.catalogCache = catalogCache;
+        this.hotStockService = hotStockService;
+    }
+
+    /**
+     * Import books from an upload.
+     *
+     * @param in Request body, read once from start to end
+     * @param contentType "text/csv" (header row required) or "application/x-ndjson"
+     * @return Counts and the first row errors
+     * @throws IllegalArgumentException if the upload is empty, its header lacks a required column,
+     *         or the content type is not supported; nothing is imported then
+     */
+    public ImportResultDto importBooks(InputStream in, String contentType) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportResultDto result = new ImportResultDto();
+
+        try (RowReader<BookDto> reader = readerFor(in, contentType)) {
+            // Keyed by ISBN: a book repeated within one batch is written once, last row wins
+            Map<String, ImportRow<BookDto>> batch = new LinkedHashMap<>();
+            ImportRow<BookDto> row;
+            while ((row = reader.next()) != null) {
+                result.setRows(result.getRows() + 1);
+                String error = row.error() != null ? row.error() : validate(row.value());
+                if (error != null) {
+                    fail(result, row, error);
+                    continue;
+                }
+                ImportRow<BookDto> previous = batch.put(row.value().getIsbn(), row);
+                if (previous != null) {
+                    // Superseded by the later row for the same ISBN, the book is counted once
+                    result.setDuplicates(result.getDuplicates() + 1);
+                }
+                if (batch.size() >= BATCH_SIZE) {
+                    write(new ArrayList<>(batch.values()), result);
+                    batch.clear();
+                }
+            }
+            write(new ArrayList<>(batch.values()), result);
+        } finally {
+            // Indexes and hot counters followed each batch, cached pages are dropped once
+            if (result.getImported() > 0) {
+                catalogCache.clear();
+            }
+            result.setElapsedMillis(System.currentTimeMillis() - start);
+        }
+        return result;
+    }
+
+    private RowReader<BookDto> readerFor(InputStream in, String contentType) throws IOException {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("text/csv")) {
+            return new CsvBookRowReader(in);
+        }
+        if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+            return new NdjsonRowReader<>(in, objectMapper, BookDto.class);
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + contentType
+                + ", use text/csv or application/x-ndjson");
+    }
+
+    // Same rules as the Book entity and its column sizes, null if the book is valid
+    private static String validate(BookDto book) {
+        if (isBlank(book.getIsbn())) {
+            return "ISBN is required";
+        }
+        if (isBlank(book.getTitle())) {
+            return "Title is required";
+        }
+        if (isBlank(book.getAuthor())) {
+            return "Author is required";
+        }
+        if (book.getPrice() == null) {
+            return "Price is required";
+        }
+        if (book.getPrice().signum() < 0 || book.getPrice().compareTo(new BigDecimal("99999999.99")) > 0) {
+            return "Price out of range: " + book.getPrice();
+        }
+        if (book.getQuantity() < 0) {
+            return "Quantity cannot be negative";
+        }
+        if (tooLong(book.getIsbn(), 255) || tooLong(book.getTitle(), 255) || tooLong(book.getAuthor(), 255)
+                || tooLong(book.getImageUrl(), 255) || tooLong(book.getThumbnailUrl(), 255)) {
+            return "Text longer than 255 characters";
+        }
+        if (tooLong(book.getDescription(), 2000)) {
+            return "Description longer than 2000 characters";
+        }
+        if (book.getGenres() != null && book.getGenres().stream().anyMatch(g -> isBlank(g) || tooLong(g, 255))) {
+            return "Invalid genre";
+        }
+        return null;
+    }
+
+    /**
+     * Write one batch in its own transaction. If the database rejects the batch,
+     * its rows are retried one by one so only the offending rows are reported.
+     */
+    private void write(List<ImportRow<BookDto>> rows, ImportResultDto result) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> refreshAfterCommit(upsert(rows)));
+            result.setImported(result.getImported() + rows.size());
+        } catch (DataAccessException batchError) {
+            for (ImportRow<BookDto> row : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> refreshAfterCommit(upsert(List.of(row))));
+                    result.setImported(result.getImported() + 1);
+                } catch (DataAccessException e) {
+                    fail(result, row, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                }
+            }
+        }
+    }
+
+    // Books, then their ids by ISBN, then their genres (replaced only for rows that list genres).
+    // Returns the ids of the written books.
+    private Collection<Long> upsert(List<ImportRow<BookDto>> rows) {
+        jdbcTemplate.batchUpdate(UPSERT_BOOK, rows, rows.size(), (ps, row) -> {
+            BookDto book = row.value();
+            ps.setString(1, book.getIsbn());
+            ps.setString(2, book.getTitle());
+            ps.setString(3, book.getAuthor());
+            ps.setBigDecimal(4, book.getPrice());
+            setNullable(ps, 5, book.getDescription());
+            setNullable(ps, 6, book.getImageUrl());
+            setNullable(ps, 7, book.getThumbnailUrl());
+            ps.setInt(8, book.getQuantity());
+            ps.setInt(9, book.getYear());
+        });
+
+        Map<String, Long> ids = new HashMap<>();
+        namedJdbcTemplate.query("SELECT book_id, isbn FROM books WHERE isbn IN (:isbns)",
+                Map.of("isbns", rows.stream().map(row -> row.value().getIsbn()).toList()),
+                rs -> {
+                    ids.put(rs.getString("isbn"), rs.getLong("book_id"));
+                });
+
+        List<BookDto> withGenres = rows.stream()
+                .map(ImportRow::value)
+                .filter(book -> book.getGenres() != null)
+                .toList();
+        if (withGenres.isEmpty()) {
+            return ids.values();
+        }
+
+        List<Object[]> genreRows = new ArrayList<>();
+        for (BookDto book : withGenres) {
+            Long id = ids.get(book.getIsbn());
+            for (String genre : new LinkedHashSet<>(book.getGenres())) {
+                genreRows.add(new Object[]{id, genre.trim()});
+            }
+        }
+        List<Long> genreIds = withGenres.stream()
+                .map(book -> ids.get(book.getIsbn()))
+                .filter(Objects::nonNull)
+                .toList();
+        namedJdbcTemplate.update("DELETE FROM book_genres WHERE book_id IN (:ids)", Map.of("ids", genreIds));
+        jdbcTemplate.batchUpdate("INSERT INTO book_genres (book_id, genre) VALUES (?, ?)", genreRows);
+        return ids.values();
+    }
+
+    // Read the written books back in the batch transaction, index them once it commits
+    private void refreshAfterCommit(Collection<Long> bookIds) {
+        List<Book> books = bookRepo.findByBookIdIn(bookIds);
+        AfterCommit.run(() -> {
+            for (Book book : books) {
+                bookSearchIndex.put(book);
+                suggestionIndex.put(book);
+            }
+        });
+        hotStockService.refresh(bookIds);
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+
+    private static void fail(ImportResultDto result, ImportRow<BookDto> row, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            String isbn = row.value() != null ? row.value().getIsbn() : null;
+            result.getErrors().add(new ImportErrorDto(row.line(), isbn, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+
+    private static boolean tooLong(String text, int max) {
+        return text != null && text.length() > max;
+    }
+}
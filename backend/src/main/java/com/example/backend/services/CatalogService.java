@@ -1,17 +1,36 @@
 package com.example.backend.services;
 
+import com.example.backend.cache.CatalogCache;
 import com.example.backend.dto.BookDto;
+import com.example.backend.dto.BookListRequest;
+import com.example.backend.dto.BookListResult;
+import com.example.backend.dto.BookSummaryDto;
+import com.example.backend.dto.CatalogFacetsDto;
+import com.example.backend.dto.SuggestionDto;
 import com.example.backend.entity.Book;
 import com.example.backend.repository.BookRepo;
+import com.example.backend.search.BookCursor;
+import com.example.backend.search.BookSearchIndex;
+import com.example.backend.search.CatalogFacets;
+import com.example.backend.search.CatalogQuery;
+import com.example.backend.search.SuggestionIndex;
+import com.example.backend.util.AfterCommit;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service layer for catalog operations.
@@ -24,34 +43,216 @@ public class CatalogService {
     // Repo for db access. Spring Data JPA providing CRUD operations
     private final BookRepo bookRepo;
 
-    public CatalogService(BookRepo bookRepo) {
+    // In-memory title/author index used to answer search queries
+    private final BookSearchIndex bookSearchIndex;
+
+    // In-memory typeahead trie over titles and authors
+    private final SuggestionIndex suggestionIndex;
+
+    // Read cache, told exactly which books changed
+    private final CatalogCache catalogCache;
+
+    // In-memory stock of hot books, re-read when their stock is set here
+    private final HotStockService hotStockService;
+
+    // Live admin dashboards, told about stock edits
+    private final AdminEventBus adminEventBus;
+
+    public CatalogService(BookRepo bookRepo, BookSearchIndex bookSearchIndex, SuggestionIndex suggestionIndex,
+                          CatalogCache catalogCache, HotStockService hotStockService, AdminEventBus adminEventBus) {
         this.bookRepo = bookRepo;
+        this.bookSearchIndex = bookSearchIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.catalogCache = catalogCache;
+        this.hotStockService = hotStockService;
+        this.adminEventBus = adminEventBus;
     }
 
-    public Page<BookDto> listBooks(int page, int size, String sortBy, String search, String genre) {
+    public BookListResult listBooks(BookListRequest request) {
+        String sortBy = request.getSort();
+        String search = request.getSearch();
+        boolean hasSearch = search != null && !search.trim().isEmpty();
+        List<String> genreFilter = request.getGenre() == null ? List.of() : request.getGenre().stream()
+                .filter(g -> g != null && !g.trim().isEmpty())
+                .map(String::trim)
+                .collect(Collectors.toList());
+        boolean hasGenre = !genreFilter.isEmpty();
+
+        // Searches, genre filters and facets are answered from the in-memory index, only the page itself is loaded
+        boolean useIndex = hasSearch || hasGenre || request.isFacets();
+        CatalogQuery query = new CatalogQuery(search, genreFilter, request.isMatchAllGenres(), request.isFacets());
+
+        if (request.isCursorMode()) {
+            return listBooksAfterCursor(request, query, useIndex);
+        }
+
         //Create pagination configuration. PageRequest combines page number, size, and sort order
-        Pageable pageable = PageRequest.of(page, size, Sort.by(sortBy));
+        Pageable pageable = PageRequest.of(request.getPage(), request.getSize(), Sort.by(sortBy));
+
+        if (useIndex && bookSearchIndex.isReady() && bookSearchIndex.supportsSort(sortBy)) {
+            BookSearchIndex.SearchHits hits = bookSearchIndex.search(query, pageable);
+            Page<BookSummaryDto> page = new PageImpl<>(loadInOrder(hits.ids()), pageable, hits.total());
+            return BookListResult.builder()
+                    .books(page.getContent())
+                    .totalElements(page.getTotalElements())
+                    .totalPages(page.getTotalPages())
+                    .facets(hits.facets() != null ? convertFacetsToDto(hits.facets()) : null)
+                    .didYouMean(hits.didYouMean())
+                    .provisional(hasSearch && BookSearchIndex.RELEVANCE.equals(sortBy) && !bookSearchIndex.hasDescriptions())
+                    .build();
+        }
+
+        // Index still loading: what SQL cannot answer the same way is refused, as in cursor mode
+        if (request.isFacets()) {
+            throw new IllegalStateException("Search index is still loading, retry without facets");
+        }
+        if (genreFilter.size() > 1 && (hasSearch || request.isMatchAllGenres())) {
+            throw new IllegalStateException("Search index is still loading, retry with one genre");
+        }
+
+        // Relevance is only scored by the index, the SQL queries below order by title instead
+        if (BookSearchIndex.RELEVANCE.equals(sortBy)) {
+            pageable = PageRequest.of(request.getPage(), request.getSize(), Sort.by("title"));
+        }
+
+        if (!hasSearch && !hasGenre) {
+            // No filters. retrieve all books with pagination, only the summary columns
+            Page<BookSummaryDto> summaryPage = bookRepo.findAllSummaries(pageable);
+            return BookListResult.builder()
+                    .books(withGenres(summaryPage.getContent()))
+                    .totalElements(summaryPage.getTotalElements())
+                    .totalPages(summaryPage.getTotalPages())
+                    .build();
+        }
 
         Page<Book> bookPage;
 
-        // Apply filters based on provided parameters. Check search and genre to decide which query method to use
-        if (genre != null && !genre.trim().isEmpty() && search != null && !search.trim().isEmpty()) {
+        // Index still loading: apply filters in SQL. Check search and genre to decide which query method to use
+        if (hasGenre && hasSearch) {
             // Both search and genre filter are applied, search in both title and author fields, filtered by genre
-            bookPage = bookRepo.findByTitleOrAuthorAndGenre(search, search, genre, pageable);
-        } else if (genre != null && !genre.trim().isEmpty()) {
+            bookPage = bookRepo.findByTitleOrAuthorAndGenre(search, search, genreFilter.get(0), pageable);
+        } else if (genreFilter.size() > 1) {
+            // Several genres before the index is loaded: any of them
+            bookPage = bookRepo.findByGenreIn(genreFilter, pageable);
+        } else if (hasGenre) {
             // Only the genre filter applied
-            bookPage = bookRepo.findByGenre(genre, pageable);
-        } else if (search != null && !search.trim().isEmpty()) {
+            bookPage = bookRepo.findByGenre(genreFilter.get(0), pageable);
+        } else {
             // Only search term applied. search in both title and author fields
             bookPage = bookRepo.findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(
                     search, search, pageable);
+        }
+
+        // Convert Page<Book> to summaries (genres of the page are batch-fetched, see Book.genres)
+        return BookListResult.builder()
+                .books(bookPage.map(this::convertToSummaryDto).getContent())
+                .totalElements(bookPage.getTotalElements())
+                .totalPages(bookPage.getTotalPages())
+                .provisional(true)
+                .build();
+    }
+
+    // Keyset paging: seek past the cursor instead of OFFSET, and only COUNT when asked to
+    private BookListResult listBooksAfterCursor(BookListRequest request, CatalogQuery query, boolean useIndex) {
+        String sortBy = request.getSort();
+        int size = request.getSize();
+        if (!BookCursor.SORTS.contains(sortBy)) {
+            throw new IllegalArgumentException("Cursor paging supports sort by " + BookCursor.SORTS);
+        }
+        BookCursor after = request.getCursor().isEmpty() ? null : BookCursor.decode(request.getCursor(), sortBy);
+
+        BookListResult.BookListResultBuilder result = BookListResult.builder();
+
+        if (useIndex) {
+            // Filtered listings: the index already knows the total, so it is always returned
+            if (!bookSearchIndex.isReady()) {
+                throw new IllegalStateException("Search index is still loading, retry without cursor");
+            }
+            BookSearchIndex.SearchHits hits = bookSearchIndex.searchAfter(query, sortBy, after, size);
+            return result
+                    .books(loadInOrder(hits.ids()))
+                    .totalElements(hits.total())
+                    .totalPages(totalPages(hits.total(), size))
+                    .nextCursor(hits.nextCursor())
+                    .facets(hits.facets() != null ? convertFacetsToDto(hits.facets()) : null)
+                    .didYouMean(hits.didYouMean())
+                    .build();
+        }
+
+        // Unfiltered browse: one extra row tells us whether there is a next page
+        Limit limit = Limit.of(size + 1);
+        List<BookSummaryDto> books;
+        if (after == null) {
+            books = bookRepo.findFirstKeysetPage(Sort.by(sortBy, "bookId"), limit);
         } else {
-            // No filters. retrieve all books with pagination.
-            bookPage = bookRepo.findAll(pageable);
+            books = switch (sortBy) {
+                case "title" -> bookRepo.findByTitleAfter(after.key(), after.bookId(), limit);
+                case "author" -> bookRepo.findByAuthorAfter(after.key(), after.bookId(), limit);
+                default -> bookRepo.findByPriceAfter(after.price(), after.bookId(), limit);
+            };
         }
 
-        // Convert Page<Book> to Page<BookDto>, transforms each Book entity to BookDto.
-        return bookPage.map(this::convertToDto);
+        if (books.size() > size) {
+            books = books.subList(0, size);
+            BookSummaryDto last = books.get(size - 1);
+            result.nextCursor(BookCursor.after(sortBy, last.getTitle(), last.getAuthor(), last.getPrice(),
+                    last.getBookId()).encode());
+        }
+
+        if (request.isCount()) {
+            long total = bookRepo.count();
+            result.totalElements(total).totalPages(totalPages(total, size));
+        }
+
+        return result
+                .books(withGenres(books))
+                .build();
+    }
+
+    // Load summaries of just these books by primary key, in the given order (IN (...) does not keep it)
+    private List<BookSummaryDto> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, BookSummaryDto> books = bookRepo.findSummariesByIds(ids).stream()
+                .collect(Collectors.toMap(BookSummaryDto::getBookId, Function.identity()));
+
+        List<BookSummaryDto> content = new ArrayList<>();
+        for (Long id : ids) {
+            BookSummaryDto book = books.get(id);
+            if (book != null) {
+                content.add(book);
+            }
+        }
+        return withGenres(content);
+    }
+
+    // Fill in the genres of a page of summaries with a single query
+    private List<BookSummaryDto> withGenres(List<BookSummaryDto> books) {
+        if (books.isEmpty()) {
+            return books;
+        }
+        Map<Long, List<String>> genres = new HashMap<>();
+        List<Long> ids = books.stream().map(BookSummaryDto::getBookId).collect(Collectors.toList());
+        for (Object[] row : bookRepo.findGenresByBookIds(ids)) {
+            genres.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        for (BookSummaryDto book : books) {
+            book.setGenres(genres.getOrDefault(book.getBookId(), new ArrayList<>()));
+        }
+        return books;
+    }
+
+    private static int totalPages(long total, int size) {
+        return size == 0 ? 1 : (int) Math.ceil((double) total / size);
+    }
+
+    // Typeahead completions, served from memory so no transaction or connection is needed
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        return suggestionIndex.suggest(prefix, limit).stream()
+                .map(s -> new SuggestionDto(s.text(), s.type().name(), s.topBookId()))
+                .collect(Collectors.toList());
     }
 
     public BookDto getBookById(Long id) {
@@ -80,18 +281,33 @@ public class CatalogService {
         book.setGenres(bookDto.getGenres() != null ? bookDto.getGenres() : new ArrayList<>());
 
         Book saved = bookRepo.save(book);
+        AfterCommit.run(() -> {
+            bookSearchIndex.put(saved);
+            suggestionIndex.put(saved);
+        });
+        catalogCache.bookAddedOrRemoved(saved.getBookId(), saved.getTitle(), saved.getAuthor(), saved.getGenres());
 
         return convertToDto(saved);
     }
 
     public void deleteBook(Long id){
-        if (!bookRepo.existsById(id)) {
-            throw new RuntimeException("Book not found with id: " + id);
-        }
-        bookRepo.deleteById(id);
+        // Loaded (not just checked) so the cache knows which listings the book was part of
+        Book book = bookRepo.findById(id)
+                .orElseThrow(() -> new RuntimeException("Book not found with id: " + id));
+        catalogCache.bookAddedOrRemoved(id, book.getTitle(), book.getAuthor(), List.copyOf(book.getGenres()));
+
+        bookRepo.delete(book);
+        AfterCommit.run(() -> {
+            bookSearchIndex.remove(id);
+            suggestionIndex.remove(id);
+        });
     }
 
     public List<String> getAllGenres() {
+        // Genre dictionary is kept in memory, no DISTINCT over book_genres needed
+        if (bookSearchIndex.isReady()) {
+            return bookSearchIndex.genres();
+        }
         return bookRepo.findAllDistinctGenres();
     }
 
@@ -106,9 +322,24 @@ public class CatalogService {
 
         book.setQuantity(quantity);
         Book updatedBook = bookRepo.save(book);
+        AfterCommit.run(() -> bookSearchIndex.put(updatedBook));
+        catalogCache.bookChanged(bookId);
+        hotStockService.refresh(List.of(bookId));
+        adminEventBus.stockSet(Map.of(bookId, quantity));
         return convertToDto(updatedBook);
     }
 
+    private CatalogFacetsDto convertFacetsToDto(CatalogFacets facets) {
+        return new CatalogFacetsDto(facets.genres(), facets.authors(), facets.years(), facets.prices());
+    }
+
+    // List-view fields only, used when the page was loaded as entities
+    private BookSummaryDto convertToSummaryDto(Book book) {
+        String thumbnail = book.getThumbnailUrl() != null ? book.getThumbnailUrl() : book.getImageUrl();
+        return new BookSummaryDto(book.getBookId(), book.getTitle(), book.getAuthor(), book.getPrice(), thumbnail,
+                book.getQuantity(), book.getYear(), book.getIsbn(), List.copyOf(book.getGenres()));
+    }
+
     //Helper method to convert Book entity to BookDto.
     //DTOs are used to control what data is exposed via the API.
     private BookDto convertToDto(Book book) {
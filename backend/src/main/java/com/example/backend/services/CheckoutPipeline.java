@@ -0,0 +1,122 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.CheckoutRequest;
+import com.example.backend.dto.OrderStatusDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Asynchronous checkout: the request thread only runs the reservation phase of
+ * OrderService.startCheckout and returns the PENDING_PAYMENT order; payment and finalization
+ * (OrderService.completeCheckout, the same code as the synchronous checkout) run on a virtual thread.
+ *
+ * Bounded: at most max-in-flight checkouts are accepted and not yet finished, beyond that
+ * submit() refuses before anything is reserved. More can be in flight than the payment client's
+ * bulkhead lets call the gateway at once, so their payments wait up to gateway-wait-ms for a slot
+ * instead of failing right away. Outcomes are kept for a while for polling and Server-Sent Events subscribers.
+ */
+@Service
+public class CheckoutPipeline {
+
+    private final OrderService orderService;
+    private final Semaphore inFlight;
+    private final long gatewayWaitMillis;
+    private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("checkout-", 0).factory());
+
+    // orderId -> outcome, completed when the payment phase ends
+    private final Cache<Long, CompletableFuture<OrderStatusDto>> outcomes = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .maximumSize(100_000)
+            .build();
+
+    public CheckoutPipeline(OrderService orderService,
+                            @Value("${checkout.async.max-in-flight:500}") int maxInFlight,
+                            @Value("${checkout.async.gateway-wait-ms:${payment.client.deadline-ms:5000}}") long gatewayWaitMillis) {
+        this.orderService = orderService;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.gatewayWaitMillis = gatewayWaitMillis;
+    }
+
+    /**
+     * Reserve now, pay in the background.
+     *
+     * @return The order, PENDING_PAYMENT
+     * @throws IllegalStateException if the pipeline is full
+     * @throws RuntimeException for the same validation errors as a synchronous checkout
+     */
+    public OrderStatusDto submit(CheckoutRequest request) {
+        if (!inFlight.tryAcquire()) {
+            throw new IllegalStateException("Too many checkouts in progress, please try again");
+        }
+        OrderService.PendingCheckout pending;
+        try {
+            pending = orderService.startCheckout(request);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+
+        Long orderId = pending.orderId();
+        CompletableFuture<OrderStatusDto> outcome = new CompletableFuture<>();
+        outcomes.put(orderId, outcome);
+        workers.execute(() -> {
+            try {
+                orderService.completeCheckout(request, pending, gatewayWaitMillis);
+                outcome.complete(new OrderStatusDto(orderId, "PAID", null));
+            } catch (RuntimeException e) {
+                outcome.complete(new OrderStatusDto(orderId, currentStatus(orderId), e.getMessage()));
+            } finally {
+                // Subscribers are never left waiting, whatever was thrown
+                outcome.complete(new OrderStatusDto(orderId, currentStatus(orderId), null));
+                inFlight.release();
+            }
+        });
+        return new OrderStatusDto(orderId, "PENDING_PAYMENT", null);
+    }
+
+    // Latest status: the outcome if the pipeline has it, else what the database says; empty for an unknown order
+    public Optional<OrderStatusDto> status(Long orderId) {
+        CompletableFuture<OrderStatusDto> outcome = outcomes.getIfPresent(orderId);
+        if (outcome != null && outcome.isDone()) {
+            return Optional.of(outcome.join());
+        }
+        return orderService.findOrderStatus(orderId).map(status -> new OrderStatusDto(orderId, status, null));
+    }
+
+    /**
+     * Completes with the final status: when the payment phase ends, or right away if the order
+     * is not in the pipeline (synchronous checkout, or finished long ago). Empty for an unknown order.
+     */
+    public Optional<CompletableFuture<OrderStatusDto>> outcome(Long orderId) {
+        CompletableFuture<OrderStatusDto> outcome = outcomes.getIfPresent(orderId);
+        if (outcome != null) {
+            return Optional.of(outcome);
+        }
+        return status(orderId).map(CompletableFuture::completedFuture);
+    }
+
+    // Let accepted checkouts finish on shutdown, their stock is already reserved
+    @PreDestroy
+    public void shutdown() {
+        workers.close();
+    }
+
+    private String currentStatus(Long orderId) {
+        try {
+            return orderService.findOrderStatus(orderId).orElse("PAYMENT_FAILED");
+        } catch (RuntimeException e) {
+            return "PAYMENT_FAILED";
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.backend.services;
+
+import com.example.backend.cache.CatalogCache;
+import com.example.backend.util.AfterCommit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional in-memory stock for books flagged as hot (flash sales), so checkouts for them do not
+ * all queue on the same books row. Each hot book has a lock-free counter: a reservation is a
+ * compare-and-set on it and succeeds or fails in microseconds, without touching the database.
+ *
+ * Write-behind: the order items of a hot reservation are committed with stock_pending set, and
+ * a single flusher periodically subtracts the pending items from books.quantity and clears the
+ * flag in the same transaction, so every item is applied exactly once. The pending rows are the
+ * durable record, not the counters: on startup, before any counter exists, every pending row is
+ * flushed (reconciling books.quantity after a crash) and the counters start from books.quantity.
+ *
+ * Counters live in this JVM, so the mode is for a single application instance.
+ * Enable with inventory.hot-stock.enabled; inventory.hot-stock.book-ids flags books at startup.
+ */
+@Service
+public class HotStockService {
+
+    static final int FLUSH_BATCH = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogCache catalogCache;
+    private final boolean enabled;
+    private final List<Long> startupBookIds;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    public HotStockService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                           TransactionTemplate transactionTemplate, CatalogCache catalogCache,
+                           @Value("${inventory.hot-stock.enabled:false}") boolean enabled,
+                           @Value("${inventory.hot-stock.book-ids:}") List<Long> startupBookIds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.catalogCache = catalogCache;
+        this.enabled = enabled;
+        this.startupBookIds = startupBookIds;
+    }
+
+    // Apply what a previous run left pending, then flag the configured books
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        flush();
+        if (enabled) {
+            startupBookIds.forEach(this::flag);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Serve a book's stock from memory from now on, starting from its committed quantity.
+     * Flag before the sale opens: a database checkout of the book still running at this moment
+     * is not seen by the counter until the next refresh.
+     */
+    public void flag(Long bookId) {
+        if (!enabled) {
+            throw new IllegalStateException("Hot stock mode is disabled (inventory.hot-stock.enabled)");
+        }
+        if (!counters.containsKey(bookId)) {
+            Counter counter = new Counter();
+            counter.available.set(committedAvailable(bookId));
+            counters.putIfAbsent(bookId, counter);
+        }
+    }
+
+    // Back to database reservations, once its pending items are applied
+    public void unflag(Long bookId) {
+        if (counters.remove(bookId) != null) {
+            flush();
+        }
+    }
+
+    // Hot books and the copies their counters still have
+    public Map<Long, Integer> available() {
+        Map<Long, Integer> available = new TreeMap<>();
+        counters.forEach((bookId, counter) -> available.put(bookId, counter.available.get()));
+        return available;
+    }
+
+    /**
+     * Take the hot lines of a cart from the counters, all or nothing. Must run in the checkout
+     * transaction: a rollback puts the copies back, a commit leaves them taken, and the caller
+     * marks the order items of the returned books stock_pending for the flusher.
+     *
+     * @param quantities Copies wanted by book id, lines of books that are not hot are ignored
+     * @return The lines taken from counters
+     * @throws StockService.InsufficientStockException listing the hot books short of copies
+     */
+    public Map<Long, Integer> reserve(Map<Long, Integer> quantities) {
+        if (counters.isEmpty()) {
+            return Map.of();
+        }
+        // The counters themselves are kept, so an unflag meanwhile cannot lose the settlement
+        Map<Long, Integer> taken = new TreeMap<>();
+        Map<Long, Counter> reserved = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            Counter counter = counters.get(line.getKey());
+            if (counter == null || line.getValue() <= 0) {
+                continue;
+            }
+            if (counter.tryTake(line.getValue())) {
+                taken.put(line.getKey(), line.getValue());
+                reserved.put(line.getKey(), counter);
+            } else {
+                missing.add(line.getKey());
+            }
+        }
+        if (!missing.isEmpty()) {
+            reserved.forEach((bookId, counter) -> counter.settle(taken.get(bookId), false));
+            throw new StockService.InsufficientStockException(missing);
+        }
+        if (!taken.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    reserved.forEach((bookId, counter) -> counter.settle(taken.get(bookId), status == STATUS_COMMITTED));
+                }
+            });
+        }
+        return taken;
+    }
+
+    // Copies of a committed hot reservation given back (order not paid). Runs after the surrounding transaction commits
+    public void release(Map<Long, Integer> quantities) {
+        Map<Long, Integer> hot = new HashMap<>(quantities);
+        hot.keySet().retainAll(counters.keySet());
+        if (hot.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> hot.forEach((bookId, quantity) -> {
+            Counter counter = counters.get(bookId);
+            if (counter != null) {
+                counter.available.addAndGet(quantity);
+            }
+        }));
+    }
+
+    /**
+     * Re-read hot counters after their books' stock was set outside checkout (admin edit, inventory sync).
+     * Runs after the surrounding transaction commits.
+     */
+    public void refresh(Collection<Long> bookIds) {
+        List<Long> hot = bookIds.stream().filter(counters::containsKey).toList();
+        if (hot.isEmpty()) {
+            return;
+        }
+        AfterCommit.run(() -> hot.forEach(bookId -> {
+            Counter counter = counters.get(bookId);
+            if (counter != null) {
+                counter.available.set(committedAvailable(bookId) - counter.inFlight.get());
+            }
+        }));
+    }
+
+    // Every hot counter, e.g. after a bulk import replaced quantities
+    public void refreshAll() {
+        refresh(List.copyOf(counters.keySet()));
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.hot-stock.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    /**
+     * Subtract every committed pending order item from books.quantity.
+     * Each batch updates the books and clears the items' flags in one transaction.
+     *
+     * @return Order items applied
+     */
+    public synchronized int flush() {
+        int total = 0;
+        int applied;
+        do {
+            applied = transactionTemplate.execute(status -> flushBatch());
+            total += applied;
+        } while (applied == FLUSH_BATCH);
+        return total;
+    }
+
+    // A plain read of the pending items is enough: this is the only writer of the flag, and items are never flagged after insert
+    private int flushBatch() {
+        List<long[]> items = jdbcTemplate.query(
+                "SELECT order_item_id, book_id, quantity FROM order_items WHERE stock_pending = TRUE ORDER BY order_item_id LIMIT ?",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getInt(3)},
+                FLUSH_BATCH);
+        if (items.isEmpty()) {
+            return 0;
+        }
+
+        // Book id order, the lock order checkouts use too
+        Map<Long, Integer> perBook = new TreeMap<>();
+        List<Long> itemIds = new ArrayList<>(items.size());
+        for (long[] item : items) {
+            itemIds.add(item[0]);
+            perBook.merge(item[1], (int) item[2], Integer::sum);
+        }
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(perBook.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE books SET quantity = quantity - ? WHERE book_id = ?", lines, lines.size(),
+                (ps, line) -> {
+                    ps.setInt(1, line.getValue());
+                    ps.setLong(2, line.getKey());
+                });
+        namedJdbcTemplate.update("UPDATE order_items SET stock_pending = FALSE WHERE order_item_id IN (:ids)",
+                Map.of("ids", itemIds));
+        catalogCache.booksChanged(perBook.keySet(), false);
+        return items.size();
+    }
+
+    // Committed quantity minus committed items not yet flushed
+    private int committedAvailable(Long bookId) {
+        List<Integer> quantity = jdbcTemplate.queryForList(
+                "SELECT b.quantity - COALESCE((SELECT SUM(i.quantity) FROM order_items i "
+                        + "WHERE i.book_id = b.book_id AND i.stock_pending = TRUE), 0) FROM books b WHERE b.book_id = ?",
+                Integer.class, bookId);
+        if (quantity.isEmpty()) {
+            throw new RuntimeException("Book not found with id: " + bookId);
+        }
+        return quantity.get(0);
+    }
+
+    // Copies left to reserve, and copies reserved by checkouts not yet committed or rolled back
+    private static class Counter {
+        private final AtomicInteger available = new AtomicInteger();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        boolean tryTake(int quantity) {
+            while (true) {
+                int current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    inFlight.addAndGet(quantity);
+                    return true;
+                }
+            }
+        }
+
+        // The checkout holding these copies ended: they stay taken if it committed
+        void settle(int quantity, boolean committed) {
+            inFlight.addAndGet(-quantity);
+            if (!committed) {
+                available.addAndGet(quantity);
+            }
+        }
+    }
+}
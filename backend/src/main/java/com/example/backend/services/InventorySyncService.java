@@ -0,0 +1,298 @@
+package com.example.backend.services;
+
+import com.example.backend.cache.CatalogCache;
+import com.example.backend.dto.ImportErrorDto;
+import com.example.backend.dto.StockChangeDto;
+import com.example.backend.dto.StockUpdateDto;
+import com.example.backend.dto.StockUpdateResultDto;
+import com.example.backend.importer.CsvStockRowReader;
+import com.example.backend.importer.ImportRow;
+import com.example.backend.importer.NdjsonRowReader;
+import com.example.backend.importer.RowReader;
+import com.example.backend.search.BookSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Bulk stock and price updates from the warehouse sync, streamed as the upload arrives.
+ *
+ * Each chunk of rows is one transaction: one locking read of the current values by book id, a diff
+ * in memory, and one set-based UPDATE of only the books that actually change (joined to the new
+ * values as a derived table). Caches are invalidated once per chunk and the search index gets the new prices
+ * in one write lock, instead of a load, save and invalidation per book.
+ */
+@Service
+public class InventorySyncService {
+
+    static final int CHUNK_SIZE = 1000;
+    static final int MAX_REPORTED_ROWS = 1000;
+
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BookSearchIndex bookSearchIndex;
+    private final CatalogCache catalogCache;
+    private final HotStockService hotStockService;
+    private final AdminEventBus adminEventBus;
+
+    public InventorySyncService(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                BookSearchIndex bookSearchIndex, CatalogCache catalogCache,
+                                HotStockService hotStockService, AdminEventBus adminEventBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.bookSearchIndex = bookSearchIndex;
+        this.catalogCache = catalogCache;
+        this.hotStockService = hotStockService;
+        this.adminEventBus = adminEventBus;
+    }
+
+    /**
+     * Apply stock and price updates from an upload.
+     *
+     * @param in Request body, read once from start to end
+     * @param contentType "text/csv" (header row required) or "application/x-ndjson"
+     * @return Counts, the first changed books and the first rows not applied
+     * @throws IllegalArgumentException if the upload is empty, its header lacks a required column,
+     *         or the content type is not supported; nothing is updated then
+     */
+    public StockUpdateResultDto updateStock(InputStream in, String contentType) throws IOException {
+        long start = System.currentTimeMillis();
+        StockUpdateResultDto result = new StockUpdateResultDto();
+
+        try (RowReader<StockUpdateDto> reader = readerFor(in, contentType)) {
+            List<ImportRow<StockUpdateDto>> chunk = new ArrayList<>(CHUNK_SIZE);
+            ImportRow<StockUpdateDto> row;
+            while ((row = reader.next()) != null) {
+                result.setRows(result.getRows() + 1);
+                String error = row.error() != null ? row.error() : validate(row.value());
+                if (error != null) {
+                    fail(result, row, error);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() >= CHUNK_SIZE) {
+                    apply(chunk, result);
+                    chunk.clear();
+                }
+            }
+            apply(chunk, result);
+        } finally {
+            result.setElapsedMillis(System.currentTimeMillis() - start);
+        }
+        return result;
+    }
+
+    private RowReader<StockUpdateDto> readerFor(InputStream in, String contentType) throws IOException {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("text/csv")) {
+            return new CsvStockRowReader(in);
+        }
+        if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")) {
+            return new NdjsonRowReader<>(in, objectMapper, StockUpdateDto.class);
+        }
+        throw new IllegalArgumentException("Unsupported update format: " + contentType
+                + ", use text/csv or application/x-ndjson");
+    }
+
+    // Null if the row is valid
+    private static String validate(StockUpdateDto update) {
+        if (update.getBookId() == null && (update.getIsbn() == null || update.getIsbn().isBlank())) {
+            return "Book id or ISBN is required";
+        }
+        if (update.getQuantity() == null && update.getPrice() == null) {
+            return "Quantity or price is required";
+        }
+        if (update.getQuantity() != null && update.getQuantity() < 0) {
+            return "Quantity cannot be negative";
+        }
+        if (update.getPrice() != null
+                && (update.getPrice().signum() < 0 || update.getPrice().compareTo(MAX_PRICE) > 0)) {
+            return "Price out of range: " + update.getPrice();
+        }
+        return null;
+    }
+
+    /**
+     * Apply one chunk in its own transaction. If the database rejects it,
+     * the chunk is retried one row at a time so only the offending rows are reported.
+     */
+    private void apply(List<ImportRow<StockUpdateDto>> rows, StockUpdateResultDto result) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        ChunkResult chunk;
+        try {
+            chunk = transactionTemplate.execute(status -> update(rows));
+        } catch (DataAccessException chunkError) {
+            for (ImportRow<StockUpdateDto> row : rows) {
+                try {
+                    record(transactionTemplate.execute(status -> update(List.of(row))), result);
+                } catch (DataAccessException e) {
+                    fail(result, row, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                }
+            }
+            return;
+        }
+        record(chunk, result);
+    }
+
+    private ChunkResult update(List<ImportRow<StockUpdateDto>> rows) {
+        Map<Long, Current> byId = new HashMap<>();
+        Map<String, Current> byIsbn = new HashMap<>();
+        for (Current current : lockCurrent(rows)) {
+            byId.put(current.bookId(), current);
+            byIsbn.put(current.isbn(), current);
+        }
+
+        // New values per book; a book listed twice in the chunk gets the later row's values
+        Map<Long, Current> target = new LinkedHashMap<>();
+        List<ImportRow<StockUpdateDto>> notFound = new ArrayList<>();
+        for (ImportRow<StockUpdateDto> row : rows) {
+            StockUpdateDto update = row.value();
+            Current current = update.getBookId() != null ? byId.get(update.getBookId()) : byIsbn.get(update.getIsbn().trim());
+            if (current == null) {
+                notFound.add(row);
+                continue;
+            }
+            Current before = target.getOrDefault(current.bookId(), current);
+            int quantity = update.getQuantity() != null ? update.getQuantity() : before.quantity();
+            BigDecimal price = update.getPrice() != null ? update.getPrice() : before.price();
+            target.put(current.bookId(), new Current(current.bookId(), current.isbn(), quantity, price));
+        }
+
+        List<StockChangeDto> changes = new ArrayList<>();
+        for (Current after : target.values()) {
+            Current before = byId.get(after.bookId());
+            // compareTo: 12.5 and 12.50 are the same price
+            if (before.quantity() != after.quantity() || before.price().compareTo(after.price()) != 0) {
+                changes.add(new StockChangeDto(after.bookId(), after.isbn(), before.quantity(), after.quantity(),
+                        before.price(), after.price()));
+            }
+        }
+
+        write(changes);
+        boolean pricesChanged = changes.stream().anyMatch(c -> c.getOldPrice().compareTo(c.getNewPrice()) != 0);
+        List<Long> changed = changes.stream().map(StockChangeDto::getBookId).toList();
+        catalogCache.booksChanged(changed, pricesChanged);
+        hotStockService.refresh(changed);
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (StockChangeDto change : changes) {
+            if (change.getOldQuantity() != change.getNewQuantity()) {
+                quantities.put(change.getBookId(), change.getNewQuantity());
+            }
+        }
+        adminEventBus.stockSet(quantities);
+        return new ChunkResult(changes, target.size() - changes.size(), notFound);
+    }
+
+    /**
+     * Current values of the books the rows name, locked until the chunk commits. ISBNs are resolved to
+     * ids by a plain read first, so the lock is taken by primary key only and in book id order, the
+     * lock order checkouts use too. A book whose ISBN changes in between is reported as not found.
+     */
+    private List<Current> lockCurrent(List<ImportRow<StockUpdateDto>> rows) {
+        Set<Long> ids = new TreeSet<>();
+        Set<String> isbns = new HashSet<>();
+        for (ImportRow<StockUpdateDto> row : rows) {
+            if (row.value().getBookId() != null) {
+                ids.add(row.value().getBookId());
+            } else {
+                isbns.add(row.value().getIsbn().trim());
+            }
+        }
+        if (!isbns.isEmpty()) {
+            ids.addAll(namedJdbcTemplate.queryForList("SELECT book_id FROM books WHERE isbn IN (:isbns)",
+                    Map.of("isbns", isbns), Long.class));
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return namedJdbcTemplate.query(
+                "SELECT book_id, isbn, quantity, price FROM books WHERE book_id IN (:ids) ORDER BY book_id FOR UPDATE",
+                Map.of("ids", ids),
+                (rs, i) -> new Current(rs.getLong("book_id"), rs.getString("isbn"), rs.getInt("quantity"),
+                        rs.getBigDecimal("price")));
+    }
+
+    // One UPDATE for the whole chunk, joined to its new values
+    private void write(List<StockChangeDto> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("UPDATE books b JOIN (");
+        List<Object> args = new ArrayList<>(changes.size() * 3);
+        for (int i = 0; i < changes.size(); i++) {
+            sql.append(i == 0 ? "SELECT ? AS book_id, ? AS quantity, ? AS price" : " UNION ALL SELECT ?, ?, ?");
+            StockChangeDto change = changes.get(i);
+            args.add(change.getBookId());
+            args.add(change.getNewQuantity());
+            args.add(change.getNewPrice());
+        }
+        sql.append(") v ON v.book_id = b.book_id SET b.quantity = v.quantity, b.price = v.price");
+        jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    // Committed chunk: counts, report entries, and the new prices for the search index
+    private void record(ChunkResult chunk, StockUpdateResultDto result) {
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        for (StockChangeDto change : chunk.changes()) {
+            if (change.getOldQuantity() != change.getNewQuantity()) {
+                result.setQuantityChanges(result.getQuantityChanges() + 1);
+            }
+            if (change.getOldPrice().compareTo(change.getNewPrice()) != 0) {
+                result.setPriceChanges(result.getPriceChanges() + 1);
+                prices.put(change.getBookId(), change.getNewPrice());
+            }
+            if (result.getChanges().size() < MAX_REPORTED_ROWS) {
+                result.getChanges().add(change);
+            } else {
+                result.setChangesTruncated(true);
+            }
+        }
+        result.setUpdated(result.getUpdated() + chunk.changes().size());
+        result.setUnchanged(result.getUnchanged() + chunk.unchanged());
+        for (ImportRow<StockUpdateDto> row : chunk.notFound()) {
+            result.setNotFound(result.getNotFound() + 1);
+            report(result, row, "Book not found");
+        }
+        if (!prices.isEmpty()) {
+            bookSearchIndex.updatePrices(prices);
+        }
+    }
+
+    private static void fail(StockUpdateResultDto result, ImportRow<StockUpdateDto> row, String message) {
+        result.setFailed(result.getFailed() + 1);
+        report(result, row, message);
+    }
+
+    private static void report(StockUpdateResultDto result, ImportRow<StockUpdateDto> row, String message) {
+        if (result.getErrors().size() < MAX_REPORTED_ROWS) {
+            String isbn = row.value() != null ? row.value().getIsbn() : null;
+            result.getErrors().add(new ImportErrorDto(row.line(), isbn, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private record Current(Long bookId, String isbn, int quantity, BigDecimal price) {
+    }
+
+    private record ChunkResult(List<StockChangeDto> changes, long unchanged, List<ImportRow<StockUpdateDto>> notFound) {
+    }
+}
@@ -1,18 +1,32 @@
 package com.example.backend.services;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
 
 @Service
-public class MockPaymentProcessor {
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "mock", matchIfMissing = true)
+public class MockPaymentProcessor implements PaymentGateway {
 
     // Counter to track payment attempts
     private final AtomicInteger paymentAttemptCounter = new AtomicInteger(0);
 
-    // Returns true if payment accepted, false if denied
-    public boolean processPayment(String cardNumber, String cardBrand, String cvv, String expiryMonth, String expiryYear, double amount) {
+    // Counter to track voided payments
+    private final AtomicInteger voidCounter = new AtomicInteger(0);
+
+    // Simulated gateway round trip in ms, 0 for none
+    private volatile long latencyMillis;
+
+    public MockPaymentProcessor(@Value("${payment.mock.latency-ms:0}") long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public boolean processPayment(String reference, String cardNumber, String cardBrand, String cvv, String expiryMonth, String expiryYear, double amount) {
+        simulateLatency();
 
         int attemptNumber = paymentAttemptCounter.incrementAndGet();
 
@@ -22,37 +36,12 @@ public class MockPaymentProcessor {
         }
 
         // Basic validation checks that fail payment
-        if (cardNumber == null || cardNumber.length() < 13) {
-            return false;
-        }
-
-        if (amount <= 0) {
-            return false;
-        }
-
-        // Check if card is expired
-        try {
-            int expMonth = Integer.parseInt(expiryMonth);
-            int expYear = Integer.parseInt(expiryYear);
-
-            if (expMonth < 1 || expMonth > 12) {
-                return false;
-            }
-
-            // accept cards expiring in 2025 or later
-            if (expYear < 2025) {
-                return false;
-            }
-        } catch (NumberFormatException e) {
-            return false;
-        }
-
-        // Payment accepted
-        return true;
+        return isValidCard(cardNumber, expiryMonth, expiryYear, amount);
     }
 
-    // for saved payment methods (using token rather than card )
-    public boolean processPaymentWithToken(String paymentToken, double amount) {
+    @Override
+    public boolean processPaymentWithToken(String reference, String paymentToken, double amount) {
+        simulateLatency();
 
         int attemptNumber = paymentAttemptCounter.incrementAndGet();
 
@@ -74,6 +63,12 @@ public class MockPaymentProcessor {
         return true;
     }
 
+    @Override
+    public void voidPayment(String reference) {
+        simulateLatency();
+        voidCounter.incrementAndGet();
+    }
+
     // Reset counter
     public void resetCounter() {
         paymentAttemptCounter.set(0);
@@ -83,5 +78,56 @@ public class MockPaymentProcessor {
     public int getAttemptCount() {
         return paymentAttemptCounter.get();
     }
+
+    // Get current void count
+    public int getVoidCount() {
+        return voidCounter.get();
+    }
+
+    // Change the simulated latency, e.g. between load test runs
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    // Card checks any gateway would decline on, shared with SimulatedPaymentGateway
+    static boolean isValidCard(String cardNumber, String expiryMonth, String expiryYear, double amount) {
+        if (cardNumber == null || cardNumber.length() < 13) {
+            return false;
+        }
+
+        if (amount <= 0) {
+            return false;
+        }
+
+        // Check if card is expired
+        try {
+            int expMonth = Integer.parseInt(expiryMonth);
+            int expYear = Integer.parseInt(expiryYear);
+
+            if (expMonth < 1 || expMonth > 12) {
+                return false;
+            }
+
+            // accept cards expiring in 2025 or later
+            if (expYear < 2025) {
+                return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    private void simulateLatency() {
+        if (latencyMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
 
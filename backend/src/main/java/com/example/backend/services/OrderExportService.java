@@ -0,0 +1,255 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.SalesHistoryFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Admin export of orders, written to the response as the rows come out of the database.
+ *
+ * One query joins orders, customers, items and books, ordered by order id, and is read through a
+ * forward-only streaming result set (MySQL streams row by row with fetch size Integer.MIN_VALUE,
+ * as in BookRepo.streamAllDescriptions). Only the order being read is held in memory: it is written
+ * as soon as the next order's first row arrives, so memory stays flat however many orders match.
+ *
+ * NDJSON: one JSON object per order with its items. CSV: one row per order with item and unit counts.
+ * Filters are those of the sales history (SalesHistoryFilter), each optional.
+ */
+@Service
+public class OrderExportService {
+
+    // Written to the client every this many orders, so a long export shows progress
+    private static final int FLUSH_EVERY = 1000;
+
+    private static final String[] CSV_HEADER = {"order_id", "created_at", "user_id", "customer_email", "status",
+            "total_price", "items", "units", "shipping_street", "shipping_city", "shipping_province",
+            "shipping_postal_code", "shipping_country"};
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format of(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Unknown export format: " + name + " (ndjson or csv)");
+            }
+        }
+    }
+
+    public record ExportedItem(Long orderItemId, Long bookId, String isbn, String title, int quantity, BigDecimal price) {
+    }
+
+    public record ExportedOrder(Long orderId, LocalDateTime createdAt, Long userId, String customerEmail,
+                                String status, BigDecimal totalPrice, String shippingStreet, String shippingCity,
+                                String shippingProvince, String shippingPostalCode, String shippingCountry,
+                                List<ExportedItem> items) {
+
+        int units() {
+            return items.stream().mapToInt(ExportedItem::quantity).sum();
+        }
+    }
+
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public OrderExportService(DataSource dataSource, ObjectMapper objectMapper) {
+        // Its own template: the shared one must keep the default fetch size
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Write every matching order to out, oldest first.
+     *
+     * @return Orders written
+     * @throws UncheckedIOException if the client went away
+     */
+    public long export(Format format, SalesHistoryFilter filter, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        OrderSink sink = format == Format.CSV ? new CsvSink(writer) : new NdjsonSink(writer, objectMapper);
+
+        StringBuilder sql = new StringBuilder("""
+                SELECT o.order_id, o.created_at, o.user_id, u.email, o.status, o.total_price,
+                       o.shipping_street, o.shipping_city, o.shipping_province, o.shipping_postal_code, o.shipping_country,
+                       oi.order_item_id, oi.book_id, b.isbn, b.title, oi.quantity, oi.price
+                FROM orders o
+                JOIN users u ON u.user_id = o.user_id
+                LEFT JOIN order_items oi ON oi.order_id = o.order_id
+                LEFT JOIN books b ON b.book_id = oi.book_id
+                WHERE 1 = 1
+                """);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        SalesHistoryQueries.appendConditions(filter, true, sql, params);
+        sql.append(" ORDER BY o.order_id, oi.order_item_id");
+
+        sink.start();
+        Grouper grouper = new Grouper(sink);
+        streamingJdbcTemplate.query(sql.toString(), params, (RowCallbackHandler) grouper::row);
+        grouper.finish();
+        writer.flush();
+        return grouper.written;
+    }
+
+    // Collects the rows of one order, hands it to the sink when the next order starts
+    private static final class Grouper {
+        private final OrderSink sink;
+        private ExportedOrder current;
+        private long written;
+
+        Grouper(OrderSink sink) {
+            this.sink = sink;
+        }
+
+        void row(ResultSet rs) throws SQLException {
+            long orderId = rs.getLong("order_id");
+            if (current == null || current.orderId() != orderId) {
+                finish();
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                current = new ExportedOrder(orderId, createdAt != null ? createdAt.toLocalDateTime() : null,
+                        rs.getLong("user_id"), rs.getString("email"), rs.getString("status"),
+                        rs.getBigDecimal("total_price"), rs.getString("shipping_street"), rs.getString("shipping_city"),
+                        rs.getString("shipping_province"), rs.getString("shipping_postal_code"),
+                        rs.getString("shipping_country"), new ArrayList<>());
+            }
+            long orderItemId = rs.getLong("order_item_id");
+            if (!rs.wasNull()) {
+                current.items().add(new ExportedItem(orderItemId, rs.getLong("book_id"), rs.getString("isbn"),
+                        rs.getString("title"), rs.getInt("quantity"), rs.getBigDecimal("price")));
+            }
+        }
+
+        void finish() {
+            if (current == null) {
+                return;
+            }
+            try {
+                sink.write(current);
+                if (++written % FLUSH_EVERY == 0) {
+                    sink.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+    }
+
+    private interface OrderSink {
+        void start() throws IOException;
+
+        void write(ExportedOrder order) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static final class NdjsonSink implements OrderSink {
+        private final Writer writer;
+        private final JsonGenerator generator;
+
+        NdjsonSink(Writer writer, ObjectMapper objectMapper) throws IOException {
+            this.writer = writer;
+            this.generator = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated by '\n' below, not by Jackson's default space between root values
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void write(ExportedOrder order) throws IOException {
+            generator.writeObject(order);
+            generator.flush();
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static final class CsvSink implements OrderSink {
+        private final Writer writer;
+
+        CsvSink(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start() throws IOException {
+            writer.write(String.join(",", CSV_HEADER));
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ExportedOrder order) throws IOException {
+            Object[] values = {order.orderId(), order.createdAt(), order.userId(), order.customerEmail(),
+                    order.status(), order.totalPrice(), order.items().size(), order.units(), order.shippingStreet(),
+                    order.shippingCity(), order.shippingProvince(), order.shippingPostalCode(), order.shippingCountry()};
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        // Quoted only when needed, quotes doubled (RFC 4180)
+        private static String escape(Object value) {
+            if (value == null) {
+                return "";
+            }
+            String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                return text;
+            }
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -3,18 +3,30 @@ package com.example.backend.services;
 import com.example.backend.dto.*;
 import com.example.backend.entity.*;
 import com.example.backend.repository.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 // Service for order management - creating orders, viewing order history
@@ -22,6 +34,15 @@ import java.util.stream.Collectors;
 @Transactional
 public class OrderService {
 
+    // Finalization attempts for a payment the gateway accepted, before it is voided instead
+    private static final int FINALIZE_ATTEMPTS = 3;
+
+    // Void attempts for an accepted payment whose order expired meanwhile
+    private static final int VOID_ATTEMPTS = 3;
+
+    // Stock taken, not paid yet: in checkout, or waiting for a payment the gateway may have taken to be voided
+    private static final Set<String> AWAITING_PAYMENT = Set.of("PENDING_PAYMENT", "PAYMENT_UNKNOWN");
+
     private final OrderRepo orderRepo;
     private final UserRepo userRepo;
     private final CartRepo cartRepo;
@@ -29,7 +50,14 @@ public class OrderService {
     private final PaymentMethodRepository paymentMethodRepository;
     private final AddressRepo addressRepo;
     private final BookRepo bookRepo;
-    private final MockPaymentProcessor mockPaymentProcessor;
+    private final OrderItemRepo orderItemRepo;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final StockService stockService;
+    private final SalesRollupService salesRollupService;
+    private final SalesHistoryQueries salesHistoryQueries;
+    private final AdminEventBus adminEventBus;
+    private final TransactionTemplate transactionTemplate;
+    private final long pendingPaymentTimeoutMillis;
 
     public OrderService(OrderRepo orderRepo,
                        UserRepo userRepo,
@@ -38,7 +66,14 @@ public class OrderService {
                        PaymentMethodRepository paymentMethodRepository,
                        AddressRepo addressRepo,
                        BookRepo bookRepo,
-                       MockPaymentProcessor mockPaymentProcessor) {
+                       OrderItemRepo orderItemRepo,
+                       PaymentGatewayClient paymentGatewayClient,
+                       StockService stockService,
+                       SalesRollupService salesRollupService,
+                       SalesHistoryQueries salesHistoryQueries,
+                       AdminEventBus adminEventBus,
+                       TransactionTemplate transactionTemplate,
+                       @Value("${checkout.pending-payment-timeout-ms:60000}") long pendingPaymentTimeoutMillis) {
         this.orderRepo = orderRepo;
         this.userRepo = userRepo;
         this.cartRepo = cartRepo;
@@ -46,7 +81,14 @@ public class OrderService {
         this.paymentMethodRepository = paymentMethodRepository;
         this.addressRepo = addressRepo;
         this.bookRepo = bookRepo;
-        this.mockPaymentProcessor = mockPaymentProcessor;
+        this.orderItemRepo = orderItemRepo;
+        this.paymentGatewayClient = paymentGatewayClient;
+        this.stockService = stockService;
+        this.salesRollupService = salesRollupService;
+        this.salesHistoryQueries = salesHistoryQueries;
+        this.adminEventBus = adminEventBus;
+        this.transactionTemplate = transactionTemplate;
+        this.pendingPaymentTimeoutMillis = pendingPaymentTimeoutMillis;
     }
 
     // Get all orders (admin function)
@@ -56,14 +98,31 @@ public class OrderService {
                 .collect(Collectors.toList());
     }
 
-    public List<OrderDto> getUserOrders(Long userId) {
-        User user = userRepo.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found with id: " + userId));
+    /**
+     * A page of a customer's order history, newest first, in two steps instead of lazy loads per order:
+     * the page of orders (order columns only), then the items of all those orders with their books in one query.
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderSummaryDto> getUserOrders(Long userId, int page, int size) {
+        if (!userRepo.existsById(userId)) {
+            throw new RuntimeException("User not found with id: " + userId);
+        }
+        Pageable pageable = PageRequest.of(page, size,
+                Sort.by("createdAt").descending().and(Sort.by("orderId").descending()));
+        Page<OrderSummaryDto> orders = orderRepo.findSummariesByUserId(userId, pageable);
+        if (orders.isEmpty()) {
+            return orders;
+        }
 
-        Page<Order> orders = orderRepo.findByUser_UserId(userId, Pageable.unpaged());
-        return orders.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        List<Long> orderIds = orders.stream().map(OrderSummaryDto::getOrderId).collect(Collectors.toList());
+        Map<Long, List<OrderItemSummaryDto>> items = new HashMap<>();
+        for (OrderItemSummaryDto item : orderItemRepo.findSummariesByOrderIds(orderIds)) {
+            items.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+        }
+        for (OrderSummaryDto order : orders) {
+            order.setOrderItemList(items.getOrDefault(order.getOrderId(), new ArrayList<>()));
+        }
+        return orders;
     }
 
     // Get specific order by ID
@@ -117,8 +176,136 @@ public class OrderService {
         return convertToDto(savedOrder);
     }
 
-    // Checkout with payment processing
+    /**
+     * Checkout with payment processing, in phases so no connection or row lock is held while the
+     * payment gateway works:
+     * 1. one short transaction validates the request, reserves stock and saves the order as PENDING_PAYMENT
+     * 2. the payment is authorized with no transaction open
+     * 3. a second short transaction finalizes the order (PAID, payment saved, cart cleared),
+     *    or compensates (stock released, PAYMENT_FAILED) if the payment was declined or failed
+     *
+     * An accepted payment whose order cannot be finalized is voided before the order is compensated.
+     * A payment given up on at the deadline may still be accepted by the gateway, so its order becomes
+     * PAYMENT_UNKNOWN and keeps its stock until expireStalePayments has voided it; orders left
+     * PENDING_PAYMENT by a crash between the phases are handled there too.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public OrderDto checkout(CheckoutRequest request) {
+        return completeCheckout(request, startCheckout(request), 0);
+    }
+
+    /**
+     * Phase 1 on its own, for checkouts whose payment completes later (see CheckoutPipeline).
+     * Validation errors and sold-out books are thrown here, before the order exists.
+     *
+     * @return The saved PENDING_PAYMENT order, to pass to completeCheckout
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PendingCheckout startCheckout(CheckoutRequest request) {
+        return transactionTemplate.execute(status -> reserveCheckout(request));
+    }
+
+    /**
+     * Phases 2 and 3 for an order from startCheckout.
+     *
+     * @param gatewayWaitMillis How long the payment may wait for a free gateway slot, 0 to be refused right away
+     * @return The PAID order
+     * @throws RuntimeException "Credit Card Authorization Failed" if declined; the order is then PAYMENT_FAILED
+     * @throws PaymentGateway.OutcomeUnknownException if the gateway did not answer in time; the order is then PAYMENT_UNKNOWN
+     * @throws PaymentGateway.GatewayException if the gateway failed or is refusing calls; PAYMENT_FAILED too
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OrderDto completeCheckout(CheckoutRequest request, PendingCheckout pending, long gatewayWaitMillis) {
+        boolean paymentAccepted;
+        try {
+            paymentAccepted = authorizePayment(request, pending, gatewayWaitMillis);
+        } catch (PaymentGateway.OutcomeUnknownException e) {
+            transactionTemplate.executeWithoutResult(status -> markPaymentUnknown(pending.orderId()));
+            throw e;
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> compensateCheckout(pending));
+            throw e;
+        }
+        if (!paymentAccepted) {
+            transactionTemplate.executeWithoutResult(status -> compensateCheckout(pending));
+            throw new RuntimeException("Credit Card Authorization Failed");
+        }
+
+        // The customer has been charged from here on: retry what may pass on a second try, else void the charge
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> finalizeCheckout(request, pending));
+            } catch (TransientDataAccessException e) {
+                if (attempt < FINALIZE_ATTEMPTS) {
+                    continue;
+                }
+                voidUnlessPaid(pending.orderId(), e);
+                throw e;
+            } catch (RuntimeException e) {
+                voidUnlessPaid(pending.orderId(), e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * An accepted payment whose order could not be finalized: void it unless the order is PAID after all.
+     * An order still awaiting payment is compensated too; one expired by expireStalePayments meanwhile has
+     * its stock back already, but the sweep voided before this payment was accepted, so it is voided here,
+     * with a few tries as nothing comes back for it later. A void that still fails is added to cause.
+     */
+    private void voidUnlessPaid(Long orderId, RuntimeException cause) {
+        String status = orderRepo.findStatusByOrderId(orderId).orElse(null);
+        if ("PAID".equals(status)) {
+            return;
+        }
+        if (AWAITING_PAYMENT.contains(status)) {
+            voidAndCompensate(orderId);
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                paymentGatewayClient.voidPayment(paymentReference(orderId));
+                return;
+            } catch (PaymentGateway.GatewayException e) {
+                if (attempt == VOID_ATTEMPTS) {
+                    cause.addSuppressed(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reconcile orders still PENDING_PAYMENT or PAYMENT_UNKNOWN after checkout.pending-payment-timeout-ms,
+     * e.g. left by a crash between the reservation and the end of checkout, or by a gateway that did not
+     * answer in time: a payment the gateway may have accepted for them is voided, then their stock is put
+     * back and they become PAYMENT_FAILED. Runs at startup and then every checkout.pending-sweep-ms;
+     * the timeout must be longer than a whole payment phase.
+     */
+    @Scheduled(fixedDelayString = "${checkout.pending-sweep-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void expireStalePayments() {
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(pendingPaymentTimeoutMillis * 1_000_000);
+        for (Long orderId : orderRepo.findIdsByStatusInCreatedBefore(AWAITING_PAYMENT, cutoff)) {
+            voidAndCompensate(orderId);
+        }
+    }
+
+    // Orders a previous run left in the middle of checkout
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void start() {
+        expireStalePayments();
+    }
+
+    // Current status of an order, e.g. while its payment is processed; empty if there is no such order
+    public Optional<String> findOrderStatus(Long orderId) {
+        return orderRepo.findStatusByOrderId(orderId);
+    }
+
+    // Phase 1: validate, save the order as PENDING_PAYMENT and take its stock
+    private PendingCheckout reserveCheckout(CheckoutRequest request) {
         User user = userRepo.findById(request.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
@@ -176,9 +363,21 @@ public class OrderService {
             throw new RuntimeException("No address information provided");
         }
 
+        // Check the payment details before anything is reserved
+        PaymentMethod savedMethod = null;
+        if (request.getPaymentMethodId() != null) {
+            savedMethod = paymentMethodRepository
+                    .findByPaymentMethodIdAndUser_UserId(request.getPaymentMethodId(), request.getUserId())
+                    .orElseThrow(() -> new RuntimeException("Payment method not found"));
+        } else if (request.getTemporaryPayment() == null) {
+            throw new RuntimeException("No payment information provided");
+        }
+
         BigDecimal totalPrice = BigDecimal.ZERO;
+        Map<Long, Integer> quantities = new HashMap<>();
+        List<Long> cartItemIds = new ArrayList<>();
         for (CartItem cartItem : cart.getCartItemList()) {
-            // Check if book has enough stock
+            // Early out on a stale read; the stock is only taken by the reservation below
             Book book = cartItem.getBook();
             if (book.getQuantity() < cartItem.getQuantity()) {
                 throw new RuntimeException("Insufficient stock for book: " + book.getTitle());
@@ -194,46 +393,78 @@ public class OrderService {
 
             BigDecimal itemTotal = book.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
             totalPrice = totalPrice.add(itemTotal);
+            quantities.merge(book.getBookId(), cartItem.getQuantity(), Integer::sum);
+            cartItemIds.add(cartItem.getCartItemId());
         }
 
         order.setTotalPrice(totalPrice);
 
-        // Process payment
-        boolean paymentAccepted = false;
+        // Conditional updates: a book sold out meanwhile fails the checkout and the rollback restores the other lines
+        try {
+            Set<Long> hot = stockService.reserve(quantities);
+            for (OrderItem orderItem : order.getOrderItemList()) {
+                orderItem.setStockPending(hot.contains(orderItem.getBook().getBookId()));
+            }
+        } catch (StockService.InsufficientStockException e) {
+            String title = cart.getCartItemList().stream()
+                    .map(CartItem::getBook)
+                    .filter(book -> e.getBookIds().contains(book.getBookId()))
+                    .map(Book::getTitle)
+                    .findFirst()
+                    .orElse(null);
+            throw new RuntimeException("Insufficient stock for book: " + title);
+        }
+
+        Order savedOrder = orderRepo.save(order);
+        return new PendingCheckout(savedOrder.getOrderId(), user.getUserId(), totalPrice, quantities, cartItemIds,
+                savedMethod == null ? null : savedMethod.getPaymentMethodId(),
+                savedMethod == null ? null : savedMethod.getPaymentToken());
+    }
+
+    // Phase 2: call the payment gateway, outside any transaction. Throws PaymentGateway.GatewayException if it gave no answer
+    private boolean authorizePayment(CheckoutRequest request, PendingCheckout pending, long gatewayWaitMillis) {
+        if (pending.paymentMethodId() != null) {
+            return paymentGatewayClient.authorizeToken(paymentReference(pending.orderId()), pending.paymentToken(),
+                    pending.totalPrice().doubleValue(), gatewayWaitMillis);
+        }
+        CheckoutRequest.TemporaryPaymentInfo tempPayment = request.getTemporaryPayment();
+        return paymentGatewayClient.authorizeCard(
+                paymentReference(pending.orderId()),
+                tempPayment.getCardNumber(),
+                tempPayment.getCardBrand(),
+                tempPayment.getCvv(),
+                tempPayment.getExpiryMonth(),
+                tempPayment.getExpiryYear(),
+                pending.totalPrice().doubleValue(),
+                gatewayWaitMillis
+        );
+    }
+
+    // Phase 3, payment accepted: record it, mark the order PAID and remove the ordered items from the cart
+    private OrderDto finalizeCheckout(CheckoutRequest request, PendingCheckout pending) {
+        Order order = orderRepo.findById(pending.orderId())
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + pending.orderId()));
+        if (!"PENDING_PAYMENT".equals(order.getStatus())) {
+            // Expired meanwhile, its stock is already back
+            throw new IllegalStateException("Order " + order.getOrderId() + " is no longer awaiting payment");
+        }
+
         Payment payment = new Payment();
-        payment.setPaymentAmount(totalPrice);
+        payment.setPaymentAmount(pending.totalPrice());
         payment.setOrder(order);
 
-        // Check if using saved payment method or temporary payment info
-        if (request.getPaymentMethodId() != null) {
+        if (pending.paymentMethodId() != null) {
             // Using saved payment method
-            PaymentMethod paymentMethod = paymentMethodRepository
-                    .findByPaymentMethodIdAndUser_UserId(request.getPaymentMethodId(), request.getUserId())
-                    .orElseThrow(() -> new RuntimeException("Payment method not found"));
-
-            paymentAccepted = mockPaymentProcessor.processPaymentWithToken(
-                    paymentMethod.getPaymentToken(),
-                    totalPrice.doubleValue()
-            );
-
+            PaymentMethod paymentMethod = paymentMethodRepository.getReferenceById(pending.paymentMethodId());
             payment.setPaymentMethod(paymentMethod);
             payment.setCardLast4(paymentMethod.getCardLast4());
             payment.setCardBrand(paymentMethod.getCardBrand());
             payment.setPaymentToken(paymentMethod.getPaymentToken());
 
-        } else if (request.getTemporaryPayment() != null) {
+        } else {
             // Using temporary payment info
             CheckoutRequest.TemporaryPaymentInfo tempPayment = request.getTemporaryPayment();
 
-            paymentAccepted = mockPaymentProcessor.processPayment(
-                    tempPayment.getCardNumber(),
-                    tempPayment.getCardBrand(),
-                    tempPayment.getCvv(),
-                    tempPayment.getExpiryMonth(),
-                    tempPayment.getExpiryYear(),
-                    totalPrice.doubleValue()
-            );
-
             // Extract last 4 digits for record
             String last4 = tempPayment.getCardNumber().substring(
                     Math.max(0, tempPayment.getCardNumber().length() - 4)
@@ -246,7 +477,7 @@ public class OrderService {
             // Save payment info if user requested it
             if (request.isSavePaymentMethod()) {
                 PaymentMethod newMethod = new PaymentMethod();
-                newMethod.setUser(user);
+                newMethod.setUser(order.getUser());
                 newMethod.setCardLast4(last4);
                 newMethod.setCardBrand(tempPayment.getCardBrand());
                 newMethod.setExpiryMonth(tempPayment.getExpiryMonth());
@@ -254,41 +485,80 @@ public class OrderService {
                 newMethod.setPaymentToken(payment.getPaymentToken());
 
                 // Set as default if user has no payment methods
-                List<PaymentMethod> existingMethods = paymentMethodRepository.findByUser_UserId(request.getUserId());
+                List<PaymentMethod> existingMethods = paymentMethodRepository.findByUser_UserId(pending.userId());
                 newMethod.setDefault(existingMethods.isEmpty());
 
                 PaymentMethod savedMethod = paymentMethodRepository.save(newMethod);
                 payment.setPaymentMethod(savedMethod);
             }
-
-        } else {
-            throw new RuntimeException("No payment information provided");
-        }
-
-        // Handle payment result
-        if (!paymentAccepted) {
-            throw new RuntimeException("Credit Card Authorization Failed");
         }
 
         // Payment accepted - complete the order
         order.setStatus("PAID");
+        salesRollupService.statusChanged(order);
         order.setPayment(payment);
+        Order savedOrder = orderRepo.save(order);
 
-        // Reduce book quantities
-        for (CartItem cartItem : cart.getCartItemList()) {
-            Book book = cartItem.getBook();
-            book.setQuantity(book.getQuantity() - cartItem.getQuantity());
-            bookRepo.save(book);
+        // Clear the ordered items from the cart, anything added since stays
+        cartRepo.findByUserUserId(pending.userId()).ifPresent(cart -> {
+            cart.getCartItemList().removeIf(item -> pending.cartItemIds().contains(item.getCartItemId()));
+            cartRepo.save(cart);
+        });
+
+        adminEventBus.orderPlaced(savedOrder.getOrderId(), pending.userId(), pending.totalPrice());
+        return convertToDto(savedOrder);
+    }
+
+    // Phase 3, payment declined or failed: put the stock back and keep the order as PAYMENT_FAILED
+    private void compensateCheckout(PendingCheckout pending) {
+        Order order = orderRepo.findById(pending.orderId())
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + pending.orderId()));
+        if (!AWAITING_PAYMENT.contains(order.getStatus())) {
+            return;
         }
+        order.setStatus("PAYMENT_FAILED");
+        orderRepo.save(order);
+        stockService.release(pending.quantities());
+        adminEventBus.paymentFailed(order.getOrderId(), pending.userId(), pending.totalPrice());
+    }
 
-        // Save order
-        Order savedOrder = orderRepo.save(order);
+    // Phase 3, no answer from the gateway: keep the stock until the payment is voided
+    private void markPaymentUnknown(Long orderId) {
+        orderRepo.findById(orderId).ifPresent(order -> {
+            if ("PENDING_PAYMENT".equals(order.getStatus())) {
+                order.setStatus("PAYMENT_UNKNOWN");
+                orderRepo.save(order);
+            }
+        });
+    }
 
-        // Clear cart
-        cart.getCartItemList().clear();
-        cartRepo.save(cart);
+    /**
+     * Void whatever the gateway authorized for the order, then compensate it from its saved items.
+     * If the void fails the order is left as it is, for the next expireStalePayments to try again.
+     */
+    private void voidAndCompensate(Long orderId) {
+        // Finalized after all (e.g. the commit went through but its answer was lost): keep the payment
+        if (!AWAITING_PAYMENT.contains(orderRepo.findStatusByOrderId(orderId).orElse(null))) {
+            return;
+        }
+        try {
+            paymentGatewayClient.voidPayment(paymentReference(orderId));
+        } catch (PaymentGateway.GatewayException e) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> orderRepo.findById(orderId).ifPresent(order -> {
+            Map<Long, Integer> quantities = new HashMap<>();
+            for (OrderItem item : order.getOrderItemList()) {
+                quantities.merge(item.getBook().getBookId(), item.getQuantity(), Integer::sum);
+            }
+            compensateCheckout(new PendingCheckout(orderId, order.getUser().getUserId(), order.getTotalPrice(),
+                    quantities, List.of(), null, null));
+        }));
+    }
 
-        return convertToDto(savedOrder);
+    // Names an order's payment attempt at the gateway, so it can be voided later
+    private static String paymentReference(Long orderId) {
+        return "order-" + orderId;
     }
 
     // Update order status
@@ -297,6 +567,7 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
 
         order.setStatus(status);
+        salesRollupService.statusChanged(order);
         Order updatedOrder = orderRepo.save(order);
         return convertToDto(updatedOrder);
     }
@@ -313,47 +584,41 @@ public class OrderService {
         orderRepo.delete(order);
     }
 
-    // Get the sales history based on the user, products, and time frame
-    public Page<OrderDto> getSalesHistory(
-            int page,
-            int size,
-            Long customerId,
-            Long productId,
-            LocalDate from,
-            LocalDate to
-    ) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-
-        LocalDateTime startDateTime = null;
-        LocalDateTime endDateTime = null;
-
-        if (from != null && to != null) {
-            startDateTime = from.atStartOfDay();
-            endDateTime = to.atTime(LocalTime.MAX);
+    // Get a page of the sales history, newest first, filtered by any combination of the filters in one query
+    @Transactional(readOnly = true)
+    public Page<OrderDto> getSalesHistory(int page, int size, SalesHistoryFilter filter) {
+        filter.validate();
+        if (filter.productId() != null) {
+            return getSalesHistoryByProduct(PageRequest.of(page, size), filter);
         }
+        Pageable pageable = PageRequest.of(page, size,
+                Sort.by("createdAt").descending().and(Sort.by("orderId").descending()));
+        return orderRepo.findAll(OrderSpecifications.salesHistory(filter), pageable).map(this::convertToDto);
+    }
 
-        Page<Order> ordersPage;
-
-        // Decide which repo method to call based on what filters are provided
-        if (customerId != null && startDateTime != null && productId == null) {
-            ordersPage = orderRepo.findByUser_UserIdAndCreatedAtBetween(customerId, startDateTime, endDateTime, pageable);
-        } else if (customerId != null && productId == null) {
-            ordersPage = orderRepo.findByUser_UserId(customerId, pageable);
-        } else if (productId != null && startDateTime != null) {
-            ordersPage = orderRepo.findByProductAndDateRange(productId, startDateTime, endDateTime, pageable);
-        } else if (productId != null) {
-            ordersPage = orderRepo.findByProduct(productId, pageable);
-        } else if (startDateTime != null) {
-            ordersPage = orderRepo.findByCreatedAtBetween(startDateTime, endDateTime, pageable);
-        } else {
-            // No filters, return all orders
-            ordersPage = orderRepo.findAll(pageable);
+    /**
+     * Id-first for a product filter: a page of order ids from the book's order items, then those orders
+     * with their items in one query, so the orders loaded follow the page size rather than the orders of
+     * the book. Sorted by orderId only, see SalesHistoryQueries.findOrderIdsByProduct.
+     */
+    private Page<OrderDto> getSalesHistoryByProduct(Pageable pageable, SalesHistoryFilter filter) {
+        Page<Long> ids = salesHistoryQueries.findOrderIdsByProduct(filter, pageable);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, ids.getTotalElements());
+        }
+        Map<Long, Order> orders = new HashMap<>();
+        for (Order order : orderRepo.findWithItemsByOrderIdIn(ids.getContent())) {
+            orders.put(order.getOrderId(), order);
         }
-        return ordersPage.map(this::convertToDto);
+        // In the order of the ids; one deleted in between is left out
+        List<OrderDto> content = ids.stream()
+                .map(orders::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
     }
 
-
-
     // Convert Order entity to OrderDto
     private OrderDto convertToDto(Order order) {
         OrderDto dto = new OrderDto();
@@ -424,5 +689,9 @@ public class OrderService {
         // Don't set password for security
         return dto;
     }
-}
 
+    // What the phases after the reservation need: the saved order, what it reserved and how it is paid
+    public record PendingCheckout(Long orderId, Long userId, BigDecimal totalPrice, Map<Long, Integer> quantities,
+                                   List<Long> cartItemIds, Long paymentMethodId, String paymentToken) {
+    }
+}
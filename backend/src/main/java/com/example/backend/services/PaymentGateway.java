@@ -0,0 +1,34 @@
+package com.example.backend.services;
+
+/**
+ * A card payment gateway. Checkout talks to it through PaymentGatewayClient, which adds the
+ * concurrency cap, per-call deadline and circuit breaker. Pick the implementation with payment.gateway:
+ * "mock" (MockPaymentProcessor, the default) or "simulated" (SimulatedPaymentGateway, for load tests).
+ */
+public interface PaymentGateway {
+
+    // Returns true if payment accepted, false if denied. The reference names the attempt for voidPayment
+    boolean processPayment(String reference, String cardNumber, String cardBrand, String cvv, String expiryMonth, String expiryYear, double amount);
+
+    // For saved payment methods (using token rather than card)
+    boolean processPaymentWithToken(String reference, String paymentToken, double amount);
+
+    // Cancel whatever was authorized under the reference; nothing authorized is not an error
+    void voidPayment(String reference);
+
+    // The gateway could not give an answer (error, timeout, overloaded), as opposed to a declined card
+    class GatewayException extends RuntimeException {
+
+        public GatewayException(String message) {
+            super(message);
+        }
+    }
+
+    // The call was given up on (deadline, interrupt) after it was sent: the gateway may still have accepted it
+    class OutcomeUnknownException extends GatewayException {
+
+        public OutcomeUnknownException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.backend.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What checkout calls to authorize or void a payment: the configured PaymentGateway behind three guards,
+ * so a slow or failing gateway costs checkouts a fast error instead of a thread stuck on it.
+ *
+ * - Bulkhead: at most max-concurrent gateway calls run at once, the next one is refused right away,
+ *   or after waiting up to its caller's wait for a permit (background checkouts queue this way).
+ *   A permit is held until the gateway call itself returns, also after its caller gave up on it,
+ *   so calls hanging on the gateway cannot pile up past the cap.
+ * - Deadline: the caller waits at most deadline-ms for the answer.
+ * - Circuit breaker: once at least min-calls of the last window calls ended in a gateway error
+ *   or a missed deadline, failure-rate percent or more, calls are refused for open-ms; then a single
+ *   probe call goes through, and closes the circuit if it succeeds or opens it again if not.
+ *   Declined cards are answers, not failures.
+ *
+ * Every refusal or failure is a PaymentGateway.GatewayException. A call given up on at the deadline
+ * may still go through at the gateway, so it is a PaymentGateway.OutcomeUnknownException: checkout keeps
+ * such an order (PAYMENT_UNKNOWN, stock still taken) until its payment is voided, see OrderService.
+ */
+@Service
+public class PaymentGatewayClient {
+
+    private final PaymentGateway gateway;
+    private final int maxConcurrent;
+    private final Semaphore bulkhead;
+    private final long deadlineMillis;
+    private final CircuitBreaker breaker;
+
+    // Gateway calls run here so the caller can stop waiting at the deadline
+    private final ExecutorService calls = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("payment-", 0).factory());
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong rejectedBusy = new AtomicLong();
+    private final AtomicLong rejectedOpen = new AtomicLong();
+
+    public PaymentGatewayClient(PaymentGateway gateway,
+                                @Value("${payment.client.max-concurrent:50}") int maxConcurrent,
+                                @Value("${payment.client.deadline-ms:5000}") long deadlineMillis,
+                                @Value("${payment.client.breaker.window:20}") int window,
+                                @Value("${payment.client.breaker.min-calls:10}") int minCalls,
+                                @Value("${payment.client.breaker.failure-rate:50}") int failureRate,
+                                @Value("${payment.client.breaker.open-ms:10000}") long openMillis) {
+        this.gateway = gateway;
+        this.maxConcurrent = maxConcurrent;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.deadlineMillis = deadlineMillis;
+        this.breaker = new CircuitBreaker(window, minCalls, failureRate, openMillis);
+    }
+
+    /**
+     * @param waitMillis How long to wait for a bulkhead permit when max-concurrent calls are running, 0 for not at all
+     * @return true if payment accepted, false if denied
+     */
+    public boolean authorizeCard(String reference, String cardNumber, String cardBrand, String cvv,
+                                 String expiryMonth, String expiryYear, double amount, long waitMillis) {
+        return call(() -> gateway.processPayment(reference, cardNumber, cardBrand, cvv, expiryMonth, expiryYear, amount),
+                waitMillis);
+    }
+
+    // Same for a saved payment method
+    public boolean authorizeToken(String reference, String paymentToken, double amount, long waitMillis) {
+        return call(() -> gateway.processPaymentWithToken(reference, paymentToken, amount), waitMillis);
+    }
+
+    // Cancel what was authorized under the reference, behind the same guards
+    public void voidPayment(String reference) {
+        call(() -> {
+            gateway.voidPayment(reference);
+            return null;
+        }, 0);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.state();
+    }
+
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("paymentSucceeded", succeeded.get());
+        stats.put("paymentFailed", failed.get());
+        stats.put("paymentTimedOut", timedOut.get());
+        stats.put("paymentRejectedBusy", rejectedBusy.get());
+        stats.put("paymentRejectedOpen", rejectedOpen.get());
+        // Including calls still running after their caller's deadline
+        stats.put("paymentInFlight", (long) (maxConcurrent - bulkhead.availablePermits()));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        calls.shutdownNow();
+    }
+
+    private <T> T call(Callable<T> call, long waitMillis) {
+        if (!acquireBulkhead(waitMillis)) {
+            rejectedBusy.incrementAndGet();
+            throw new PaymentGateway.GatewayException("Payment gateway busy, please try again");
+        }
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null) {
+            bulkhead.release();
+            rejectedOpen.incrementAndGet();
+            throw new PaymentGateway.GatewayException("Payment gateway unavailable, please try again later");
+        }
+
+        Future<T> answer;
+        try {
+            answer = calls.submit(() -> {
+                try {
+                    return call.call();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            throw new PaymentGateway.GatewayException("Payment gateway client is shut down");
+        }
+
+        try {
+            T result = answer.get(deadlineMillis, TimeUnit.MILLISECONDS);
+            breaker.record(permit, true);
+            succeeded.incrementAndGet();
+            return result;
+        } catch (TimeoutException e) {
+            answer.cancel(true);
+            breaker.record(permit, false);
+            timedOut.incrementAndGet();
+            throw new PaymentGateway.OutcomeUnknownException("Payment gateway timed out");
+        } catch (ExecutionException e) {
+            breaker.record(permit, false);
+            failed.incrementAndGet();
+            throw new PaymentGateway.GatewayException(e.getCause() instanceof PaymentGateway.GatewayException
+                    ? e.getCause().getMessage() : "Payment gateway error");
+        } catch (InterruptedException e) {
+            answer.cancel(true);
+            breaker.abandon(permit);
+            Thread.currentThread().interrupt();
+            throw new PaymentGateway.OutcomeUnknownException("Payment gateway call interrupted");
+        }
+    }
+
+    private boolean acquireBulkhead(long waitMillis) {
+        if (waitMillis <= 0) {
+            return bulkhead.tryAcquire();
+        }
+        try {
+            return bulkhead.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Count-based circuit breaker over the outcomes of the last calls. Synchronized: it is touched
+     * once before and once after a gateway round trip, which is far longer than the lock.
+     */
+    public static class CircuitBreaker {
+
+        public enum State { CLOSED, OPEN, HALF_OPEN }
+
+        // What a call was let through as: a normal call, or the single probe of a half-open circuit
+        enum Permit { NORMAL, PROBE }
+
+        private final boolean[] outcomes;
+        private final int minCalls;
+        private final int failureRate;
+        private final long openNanos;
+
+        private State state = State.CLOSED;
+        private int next;
+        private int calls;
+        private int failures;
+        private long openedAt;
+        private boolean probing;
+
+        CircuitBreaker(int window, int minCalls, int failureRate, long openMillis) {
+            if (window < 1 || minCalls < 1 || minCalls > window || failureRate < 1 || failureRate > 100) {
+                throw new IllegalArgumentException("Invalid circuit breaker settings");
+            }
+            this.outcomes = new boolean[window];
+            this.minCalls = minCalls;
+            this.failureRate = failureRate;
+            this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        }
+
+        // Null if the call must be refused
+        synchronized Permit tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return null;
+                }
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) {
+                    return null;
+                }
+                probing = true;
+                return Permit.PROBE;
+            }
+            return Permit.NORMAL;
+        }
+
+        synchronized void record(Permit permit, boolean success) {
+            if (permit == Permit.PROBE) {
+                if (success) {
+                    close();
+                } else {
+                    open();
+                }
+                return;
+            }
+            // Calls let through before the circuit opened no longer count
+            if (state != State.CLOSED) {
+                return;
+            }
+            if (calls == outcomes.length) {
+                if (!outcomes[next]) {
+                    failures--;
+                }
+            } else {
+                calls++;
+            }
+            outcomes[next] = success;
+            if (!success) {
+                failures++;
+            }
+            next = (next + 1) % outcomes.length;
+            if (calls >= minCalls && failures * 100 >= failureRate * calls) {
+                open();
+            }
+        }
+
+        // The call ended without telling anything about the gateway
+        synchronized void abandon(Permit permit) {
+            if (permit == Permit.PROBE && state == State.HALF_OPEN) {
+                probing = false;
+            }
+        }
+
+        synchronized State state() {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            probing = false;
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            probing = false;
+            next = 0;
+            calls = 0;
+            failures = 0;
+        }
+    }
+}
@@ -19,10 +19,15 @@ public class PaymentService {
 
     private final PaymentRepo paymentRepo;
     private final OrderRepo orderRepo;
+    private final SalesRollupService salesRollupService;
+    private final AdminEventBus adminEventBus;
 
-    public PaymentService(PaymentRepo paymentRepo, OrderRepo orderRepo) {
+    public PaymentService(PaymentRepo paymentRepo, OrderRepo orderRepo, SalesRollupService salesRollupService,
+                          AdminEventBus adminEventBus) {
         this.paymentRepo = paymentRepo;
         this.orderRepo = orderRepo;
+        this.salesRollupService = salesRollupService;
+        this.adminEventBus = adminEventBus;
     }
 
     public List<PaymentDto> getAllPayments() {
@@ -65,6 +70,7 @@ public class PaymentService {
 
         // update the order status after a successful payment
         order.setStatus("PAID");
+        salesRollupService.statusChanged(order);
         orderRepo.save(order);
 
         return convertToDto(savedPayment);
@@ -78,10 +84,14 @@ public class PaymentService {
         if (order != null) {
             // mark the order as refunded when the payment is removed
             order.setStatus("REFUNDED");
+            salesRollupService.statusChanged(order);
             orderRepo.save(order);
         }
 
         paymentRepo.delete(payment);
+        adminEventBus.orderRefunded(order != null ? order.getOrderId() : null,
+                order != null && order.getUser() != null ? order.getUser().getUserId() : null,
+                payment.getPaymentAmount());
     }
 
     private PaymentDto convertToDto(Payment payment) {
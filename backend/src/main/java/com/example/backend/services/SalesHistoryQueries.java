@@ -0,0 +1,113 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.SalesHistoryFilter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * SQL for the sales history filters: the same conditions as OrderSpecifications.salesHistory, for the
+ * queries that are not JPA criteria (the export, the id-first page of product-filtered orders).
+ *
+ * Id-first: a product filter pages over order ids straight from order_items (book_id, order_id),
+ * newest first, instead of over orders joined to all their items. The index hands out the book's
+ * order ids in order, so grouping them needs no sort and no orders row is read for the skipped ones;
+ * the orders of the page are then loaded by id in one query. Paging is LIMIT/OFFSET, so a page still
+ * walks offset + page-size index entries (more when other filters skip some): page n costs about n
+ * times the first, in index entries only.
+ */
+@Service
+public class SalesHistoryQueries {
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public SalesHistoryQueries(NamedParameterJdbcTemplate namedJdbcTemplate) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+    }
+
+    /**
+     * Step one of a product-filtered page: the ids of the orders containing filter.productId that match
+     * the other filters, newest (highest id) first.
+     *
+     * Sorted by order_id alone, where the other sales history pages sort by created_at, order_id: ids are
+     * assigned on insert and created_at when the Order is built, so the two orders agree except for
+     * checkouts that overlap by a few milliseconds. Sorting by created_at here would mean joining and
+     * sorting every order of the book.
+     */
+    public Page<Long> findOrderIdsByProduct(SalesHistoryFilter filter, Pageable pageable) {
+        StringBuilder from = new StringBuilder(" FROM order_items oi");
+        MapSqlParameterSource params = new MapSqlParameterSource("productId", filter.productId());
+        StringBuilder conditions = new StringBuilder();
+        appendConditions(filter, false, conditions, params);
+        if (!conditions.isEmpty()) {
+            // Only for filters on the order itself, probed by primary key per candidate id
+            from.append(" JOIN orders o ON o.order_id = oi.order_id");
+        }
+        from.append(" WHERE oi.book_id = :productId").append(conditions);
+
+        params.addValue("limit", pageable.getPageSize());
+        params.addValue("offset", pageable.getOffset());
+        List<Long> ids = namedJdbcTemplate.queryForList(
+                "SELECT oi.order_id" + from + " GROUP BY oi.order_id ORDER BY oi.order_id DESC LIMIT :limit OFFSET :offset",
+                params, Long.class);
+        return PageableExecutionUtils.getPage(ids, pageable, () -> namedJdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT oi.order_id)" + from, params, Long.class));
+    }
+
+    /**
+     * Appends " AND ..." for every condition of the filter, on orders aliased o. Parameters are named
+     * c0, c1, ... by position, apart from any the caller binds.
+     *
+     * @param productId Whether to filter by filter.productId too (with an EXISTS on order_items)
+     */
+    static void appendConditions(SalesHistoryFilter filter, boolean productId, StringBuilder sql,
+                                 MapSqlParameterSource params) {
+        List<SalesHistoryFilter.Condition> conditions = filter.conditions();
+        for (int i = 0; i < conditions.size(); i++) {
+            SalesHistoryFilter.Condition condition = conditions.get(i);
+            if (!productId && condition instanceof SalesHistoryFilter.Condition.ContainsBook) {
+                continue;
+            }
+            String param = "c" + i;
+            sql.append(" AND ").append(condition(condition, param));
+            params.addValue(param, value(condition));
+        }
+    }
+
+    // Keep in step with OrderSpecifications.predicate, SalesHistoryQueriesTest compares the two
+    private static String condition(SalesHistoryFilter.Condition condition, String param) {
+        return switch (condition) {
+            case SalesHistoryFilter.Condition.OrderIdIs c -> "o.order_id = :" + param;
+            case SalesHistoryFilter.Condition.CustomerIs c -> "o.user_id = :" + param;
+            case SalesHistoryFilter.Condition.StatusIn c -> "o.status IN (:" + param + ")";
+            case SalesHistoryFilter.Condition.CreatedFrom c -> "o.created_at >= :" + param;
+            case SalesHistoryFilter.Condition.CreatedBefore c -> "o.created_at < :" + param;
+            case SalesHistoryFilter.Condition.TotalAtLeast c -> "o.total_price >= :" + param;
+            case SalesHistoryFilter.Condition.TotalAtMost c -> "o.total_price <= :" + param;
+            case SalesHistoryFilter.Condition.ContainsBook c ->
+                    "EXISTS (SELECT 1 FROM order_items p WHERE p.order_id = o.order_id AND p.book_id = :" + param + ")";
+            case SalesHistoryFilter.Condition.ContainsTitle c ->
+                    "EXISTS (SELECT 1 FROM order_items p JOIN books pb ON pb.book_id = p.book_id " +
+                    "WHERE p.order_id = o.order_id AND LOWER(pb.title) LIKE :" + param + " ESCAPE '\\\\')";
+        };
+    }
+
+    private static Object value(SalesHistoryFilter.Condition condition) {
+        return switch (condition) {
+            case SalesHistoryFilter.Condition.OrderIdIs c -> c.orderId();
+            case SalesHistoryFilter.Condition.CustomerIs c -> c.customerId();
+            case SalesHistoryFilter.Condition.StatusIn c -> c.statuses();
+            case SalesHistoryFilter.Condition.CreatedFrom c -> c.from();
+            case SalesHistoryFilter.Condition.CreatedBefore c -> c.before();
+            case SalesHistoryFilter.Condition.TotalAtLeast c -> c.minTotal();
+            case SalesHistoryFilter.Condition.TotalAtMost c -> c.maxTotal();
+            case SalesHistoryFilter.Condition.ContainsBook c -> c.bookId();
+            case SalesHistoryFilter.Condition.ContainsTitle c -> c.titlePattern();
+        };
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.SalesSummaryDto;
+import com.example.backend.entity.Order;
+import com.example.backend.search.SuggestionIndex;
+import com.example.backend.util.AfterCommit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Daily sales rollups (sales_daily, sales_daily_book): revenue, units and order count per day,
+ * and per day and book, added to when an order becomes sold and taken off when it stops being sold
+ * (refund, status changed back), in the transaction that changes the status. Summaries over
+ * any date range then read a few rows per day, however many orders there were.
+ *
+ * orders.sales_counted records whether an order is in the rollups. It is flipped with a conditional
+ * update before the figures are applied, so each order is added and taken off exactly once even if
+ * two status changes race. At startup, orders whose flag disagrees with their status (e.g. orders
+ * from before the rollups existed) are applied, so the rollups catch up with the orders table.
+ *
+ * Days are the order's creation date, as in the sales history filters.
+ * Units sold also feed the typeahead popularity (SuggestionIndex), once the change commits.
+ */
+@Service
+public class SalesRollupService {
+
+    // Statuses of an order that counts as sold
+    public static final Set<String> SOLD_STATUSES = Set.of("PAID", "SHIPPED", "RECEIVED");
+
+    // Rows per day (and per day and book) that concurrent orders spread their updates over
+    static final int SLOTS = 8;
+
+    private static final int RECONCILE_BATCH = 500;
+
+    private static final String SOLD_SQL = "status IN ('PAID', 'SHIPPED', 'RECEIVED')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SuggestionIndex suggestionIndex;
+
+    public SalesRollupService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              SuggestionIndex suggestionIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    /**
+     * Bring the rollups in line with the order's (new) status. Call after setting the status,
+     * in the transaction that saves it.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Order order) {
+        boolean sold = SOLD_STATUSES.contains(order.getStatus());
+        apply(order.getOrderId(), order.getCreatedAt().toLocalDate(), order.getTotalPrice(), sold);
+        // The entity is saved after this, it must not write the old flag back
+        order.setSalesCounted(sold);
+    }
+
+    // Apply the orders whose rollup flag disagrees with their status
+    @EventListener(ApplicationReadyEvent.class)
+    public int reconcile() {
+        int total = 0;
+        int applied;
+        do {
+            applied = transactionTemplate.execute(status -> reconcileBatch());
+            total += applied;
+        } while (applied == RECONCILE_BATCH);
+        return total;
+    }
+
+    /**
+     * Sales between two days (inclusive), read from the rollups.
+     *
+     * @param bookId Only this book's sales, or null for all sales and the best sellers
+     * @param top How many best-selling books to list
+     */
+    @Transactional(readOnly = true)
+    public SalesSummaryDto getSummary(LocalDate from, LocalDate to, Long bookId, int top) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        List<SalesSummaryDto.DailySales> days = bookId == null
+                ? jdbcTemplate.query(
+                        "SELECT day, SUM(revenue), SUM(units), SUM(order_count) FROM sales_daily " +
+                        "WHERE day BETWEEN ? AND ? GROUP BY day HAVING SUM(order_count) > 0 ORDER BY day",
+                        (rs, i) -> new SalesSummaryDto.DailySales(rs.getDate(1).toLocalDate(), rs.getBigDecimal(2),
+                                rs.getLong(3), rs.getLong(4)),
+                        Date.valueOf(from), Date.valueOf(to))
+                : jdbcTemplate.query(
+                        "SELECT day, SUM(revenue), SUM(units), SUM(order_count) FROM sales_daily_book " +
+                        "WHERE book_id = ? AND day BETWEEN ? AND ? GROUP BY day HAVING SUM(order_count) > 0 ORDER BY day",
+                        (rs, i) -> new SalesSummaryDto.DailySales(rs.getDate(1).toLocalDate(), rs.getBigDecimal(2),
+                                rs.getLong(3), rs.getLong(4)),
+                        bookId, Date.valueOf(from), Date.valueOf(to));
+
+        BigDecimal revenue = BigDecimal.ZERO;
+        long units = 0;
+        long orders = 0;
+        for (SalesSummaryDto.DailySales day : days) {
+            revenue = revenue.add(day.revenue());
+            units += day.units();
+            orders += day.orders();
+        }
+
+        List<SalesSummaryDto.BookSales> topBooks = null;
+        if (bookId == null && top > 0) {
+            topBooks = jdbcTemplate.query(
+                    "SELECT s.book_id, b.title, SUM(s.revenue) AS revenue, SUM(s.units), SUM(s.order_count) " +
+                    "FROM sales_daily_book s LEFT JOIN books b ON b.book_id = s.book_id " +
+                    "WHERE s.day BETWEEN ? AND ? GROUP BY s.book_id, b.title HAVING SUM(s.order_count) > 0 " +
+                    "ORDER BY revenue DESC, s.book_id LIMIT ?",
+                    (rs, i) -> new SalesSummaryDto.BookSales(rs.getLong(1), rs.getString(2), rs.getBigDecimal(3),
+                            rs.getLong(4), rs.getLong(5)),
+                    Date.valueOf(from), Date.valueOf(to), top);
+        }
+        return new SalesSummaryDto(from, to, bookId, revenue, units, orders, days, topBooks);
+    }
+
+    private int reconcileBatch() {
+        List<Object[]> orders = jdbcTemplate.query(
+                "SELECT order_id, created_at, total_price, " + SOLD_SQL + " FROM orders " +
+                "WHERE (" + SOLD_SQL + ") <> sales_counted ORDER BY order_id LIMIT ?",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), rs.getBigDecimal(3),
+                        rs.getBoolean(4)},
+                RECONCILE_BATCH);
+        for (Object[] order : orders) {
+            apply((Long) order[0], ((LocalDateTime) order[1]).toLocalDate(), (BigDecimal) order[2], (Boolean) order[3]);
+        }
+        return orders.size();
+    }
+
+    // Add the order to the rollups (sold) or take it off (not sold), unless it already is / is not in them
+    private void apply(Long orderId, LocalDate day, BigDecimal totalPrice, boolean sold) {
+        int flipped = jdbcTemplate.update(
+                "UPDATE orders SET sales_counted = ? WHERE order_id = ? AND sales_counted = ?",
+                sold, orderId, !sold);
+        if (flipped == 0) {
+            return;
+        }
+        int sign = sold ? 1 : -1;
+        int slot = (int) (orderId % SLOTS);
+
+        // (book id, units, revenue) of the order, in book id order like every other multi-row update
+        List<Object[]> lines = jdbcTemplate.query(
+                "SELECT book_id, SUM(quantity), SUM(quantity * price) FROM order_items WHERE order_id = ? " +
+                "GROUP BY book_id ORDER BY book_id",
+                (rs, i) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3)},
+                orderId);
+        long units = 0;
+        Map<Long, Long> unitsByBook = new HashMap<>();
+        for (Object[] line : lines) {
+            units += (Long) line[1];
+            unitsByBook.put((Long) line[0], sign * (Long) line[1]);
+        }
+        AfterCommit.run(() -> suggestionIndex.addUnitsSold(unitsByBook));
+        BigDecimal revenue = totalPrice != null ? totalPrice : BigDecimal.ZERO;
+
+        // Row alias (MySQL 8.0.19+) rather than VALUES(col), which is deprecated in ON DUPLICATE KEY UPDATE
+        jdbcTemplate.update(
+                "INSERT INTO sales_daily (day, slot, revenue, units, order_count) VALUES (?, ?, ?, ?, ?) AS added " +
+                "ON DUPLICATE KEY UPDATE revenue = revenue + added.revenue, units = units + added.units, " +
+                "order_count = order_count + added.order_count",
+                Date.valueOf(day), slot, revenue.multiply(BigDecimal.valueOf(sign)), sign * units, sign);
+
+        if (lines.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(lines.size());
+        for (Object[] line : lines) {
+            rows.add(new Object[]{Date.valueOf(day), line[0], slot,
+                    ((BigDecimal) line[2]).multiply(BigDecimal.valueOf(sign)), sign * (Long) line[1], sign});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO sales_daily_book (day, book_id, slot, revenue, units, order_count) VALUES (?, ?, ?, ?, ?, ?) " +
+                "AS added ON DUPLICATE KEY UPDATE revenue = revenue + added.revenue, units = units + added.units, " +
+                "order_count = order_count + added.order_count",
+                rows);
+    }
+}
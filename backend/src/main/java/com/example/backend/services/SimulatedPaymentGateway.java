@@ -0,0 +1,150 @@
+package com.example.backend.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for a real card gateway, for load tests: every authorization waits a latency drawn
+ * from a log-normal distribution (set by its median and 99th percentile, the long tail real gateways
+ * have), then fails with a gateway error, hangs until hang-ms, is declined or is accepted, at the
+ * configured rates. Invalid cards are declined like in MockPaymentProcessor.
+ *
+ * Enable with payment.gateway=simulated. payment.simulated.profile picks the preset below,
+ * the other payment.simulated.* properties override single settings; the profile can also
+ * be switched at runtime (PUT /api/admin/payments/gateway/profile) to degrade a running test.
+ */
+@Service
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "simulated")
+public class SimulatedPaymentGateway implements PaymentGateway {
+
+    // z-score of the 99th percentile of a normal distribution
+    private static final double Z_99 = 2.326;
+
+    /**
+     * @param errorRate Calls answered with a gateway error
+     * @param timeoutRate Calls that hang for hangMillis before erroring (a stuck connection)
+     * @param declineRate Valid cards declined anyway
+     */
+    public record Settings(long medianMillis, long p99Millis, double errorRate, double timeoutRate,
+                           double declineRate, long hangMillis) {
+    }
+
+    public enum Profile {
+        HEALTHY(new Settings(80, 400, 0.001, 0, 0.05, 30_000)),
+        SLOW(new Settings(400, 3_000, 0.01, 0.005, 0.05, 30_000)),
+        DEGRADED(new Settings(800, 8_000, 0.10, 0.05, 0.05, 30_000)),
+        OUTAGE(new Settings(2_000, 20_000, 0.60, 0.30, 0.05, 30_000));
+
+        private final Settings settings;
+
+        Profile(Settings settings) {
+            this.settings = settings;
+        }
+
+        public Settings settings() {
+            return settings;
+        }
+    }
+
+    private volatile Settings settings;
+
+    public SimulatedPaymentGateway(@Value("${payment.simulated.profile:healthy}") String profile,
+                                   @Value("${payment.simulated.median-ms:#{null}}") Long medianMillis,
+                                   @Value("${payment.simulated.p99-ms:#{null}}") Long p99Millis,
+                                   @Value("${payment.simulated.error-rate:#{null}}") Double errorRate,
+                                   @Value("${payment.simulated.timeout-rate:#{null}}") Double timeoutRate,
+                                   @Value("${payment.simulated.decline-rate:#{null}}") Double declineRate,
+                                   @Value("${payment.simulated.hang-ms:#{null}}") Long hangMillis) {
+        Settings base = profile(profile).settings();
+        setSettings(new Settings(
+                medianMillis != null ? medianMillis : base.medianMillis(),
+                p99Millis != null ? p99Millis : base.p99Millis(),
+                errorRate != null ? errorRate : base.errorRate(),
+                timeoutRate != null ? timeoutRate : base.timeoutRate(),
+                declineRate != null ? declineRate : base.declineRate(),
+                hangMillis != null ? hangMillis : base.hangMillis()));
+    }
+
+    public static Profile profile(String name) {
+        try {
+            return Profile.valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Unknown payment gateway profile: " + name);
+        }
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    public void setSettings(Settings settings) {
+        if (settings.medianMillis() < 0 || settings.p99Millis() < settings.medianMillis()) {
+            throw new IllegalArgumentException("Latency needs 0 <= median <= p99");
+        }
+        if (settings.errorRate() + settings.timeoutRate() + settings.declineRate() > 1) {
+            throw new IllegalArgumentException("Error, timeout and decline rates add up to more than 1");
+        }
+        this.settings = settings;
+    }
+
+    @Override
+    public boolean processPayment(String reference, String cardNumber, String cardBrand, String cvv, String expiryMonth, String expiryYear, double amount) {
+        return authorize() && MockPaymentProcessor.isValidCard(cardNumber, expiryMonth, expiryYear, amount);
+    }
+
+    @Override
+    public boolean processPaymentWithToken(String reference, String paymentToken, double amount) {
+        return authorize() && paymentToken != null && !paymentToken.isEmpty() && amount > 0;
+    }
+
+    // Same latency, errors and hangs as an authorization, never declined
+    @Override
+    public void voidPayment(String reference) {
+        authorize();
+    }
+
+    // One round trip: wait, then error, hang, decline or accept
+    private boolean authorize() {
+        Settings current = settings;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        sleep(latency(current, random));
+
+        double outcome = random.nextDouble();
+        if (outcome < current.errorRate()) {
+            throw new GatewayException("Payment gateway error");
+        }
+        outcome -= current.errorRate();
+        if (outcome < current.timeoutRate()) {
+            sleep(current.hangMillis());
+            throw new GatewayException("Payment gateway did not answer");
+        }
+        outcome -= current.timeoutRate();
+        return outcome >= current.declineRate();
+    }
+
+    // Log-normal: median * e^(sigma * z), with sigma fitted so the 99th percentile lands on p99
+    private static long latency(Settings settings, ThreadLocalRandom random) {
+        if (settings.medianMillis() == 0) {
+            return 0;
+        }
+        double sigma = Math.log((double) settings.p99Millis() / settings.medianMillis()) / Z_99;
+        return Math.round(settings.medianMillis() * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    // Interrupted when the client's deadline gave up on the call
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GatewayException("Payment gateway call abandoned");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.backend.services;
+
+import com.example.backend.cache.CatalogCache;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Stock reservations for checkout, done in the database instead of read-check-write in Java.
+ *
+ * Each line is a conditional decrement (quantity = quantity - n WHERE quantity >= n), so two
+ * checkouts can never both take the last copy, and the row lock is only taken by the UPDATE itself
+ * instead of for everything between the read and the save. All lines go in one JDBC batch,
+ * in book id order so concurrent checkouts with overlapping carts lock rows in the same order
+ * and cannot deadlock. Runs inside the caller's transaction: a short line throws, and the
+ * rollback undoes the lines already taken (all or nothing).
+ *
+ * Books flagged hot are reserved from in-memory counters instead, see HotStockService.
+ */
+@Service
+public class StockService {
+
+    private static final String RESERVE = "UPDATE books SET quantity = quantity - ? WHERE book_id = ? AND quantity >= ?";
+    private static final String RELEASE = "UPDATE books SET quantity = quantity + ? WHERE book_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogCache catalogCache;
+    private final HotStockService hotStockService;
+    private final AdminEventBus adminEventBus;
+
+    public StockService(JdbcTemplate jdbcTemplate, CatalogCache catalogCache, HotStockService hotStockService,
+                        AdminEventBus adminEventBus) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogCache = catalogCache;
+        this.hotStockService = hotStockService;
+        this.adminEventBus = adminEventBus;
+    }
+
+    /**
+     * Take the given quantities out of stock.
+     *
+     * @param quantities Copies wanted by book id
+     * @return Books taken from hot stock counters, whose order items must be saved stock_pending
+     * @throws InsufficientStockException if any book has fewer copies left, listing those books;
+     *         the caller's transaction must then roll back
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<Long> reserve(Map<Long, Integer> quantities) {
+        // Shown to the admin stream only if the reservation commits, hot books included
+        Map<Long, Integer> taken = new HashMap<>();
+        quantities.forEach((bookId, quantity) -> taken.put(bookId, -quantity));
+        adminEventBus.stockAdjusted(taken);
+
+        Map<Long, Integer> remaining = new HashMap<>(quantities);
+        Set<Long> hot = hotStockService.reserve(quantities).keySet();
+        remaining.keySet().removeAll(hot);
+
+        List<Map.Entry<Long, Integer>> lines = lines(remaining);
+        if (lines.isEmpty()) {
+            return hot;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(RESERVE, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+            ps.setInt(3, line.getValue());
+        });
+
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            // Zero rows: not enough copies left (or no such book)
+            if (counts[0][i] == 0) {
+                missing.add(lines.get(i).getKey());
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new InsufficientStockException(missing);
+        }
+        // Hot books change in books.quantity only when their pending items are flushed
+        catalogCache.booksChanged(remaining.keySet(), false);
+        return hot;
+    }
+
+    /**
+     * Put back copies reserved for an order that will not be paid.
+     * Hot books too are credited in books.quantity: their order items stay stock_pending and the
+     * flusher subtracts them (or already did), so the two cancel out; their counters get the copies back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = lines(quantities);
+        if (lines.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RELEASE, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+        });
+        hotStockService.release(quantities);
+        catalogCache.booksChanged(quantities.keySet(), false);
+        adminEventBus.stockAdjusted(quantities);
+    }
+
+    // Positive lines in book id order, the lock order shared by every checkout
+    private static List<Map.Entry<Long, Integer>> lines(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            if (line.getValue() == null || line.getValue() < 0) {
+                throw new IllegalArgumentException("Invalid quantity for book " + line.getKey() + ": " + line.getValue());
+            }
+            if (line.getValue() > 0) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    // Some books of a reservation did not have enough copies left
+    public static class InsufficientStockException extends RuntimeException {
+
+        private final List<Long> bookIds;
+
+        public InsufficientStockException(List<Long> bookIds) {
+            super("Insufficient stock for books: " + bookIds);
+            this.bookIds = List.copyOf(bookIds);
+        }
+
+        public List<Long> getBookIds() {
+            return bookIds;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.backend.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Side effects of a write that must only see committed data: cache invalidations (a concurrent reader
+ * could otherwise re-cache the old rows), in-memory index updates and dashboard events. A rolled back
+ * transaction runs none of them.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    // Run once the surrounding transaction commits; right away when there is no transaction
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
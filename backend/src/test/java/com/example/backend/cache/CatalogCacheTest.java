@@ -0,0 +1,132 @@
+package com.example.backend.cache;
+
+import com.example.backend.dto.BookListRequest;
+import com.example.backend.dto.BookListResult;
+import com.example.backend.dto.BookSummaryDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// No transaction is active here, so invalidations run as soon as they are called
+class CatalogCacheTest {
+
+    private final CatalogCache cache = new CatalogCache(1 << 20);
+
+    @Test
+    void cachesPageAndKeepsItsVersionWhenOtherBooksChange() {
+        BookListRequest request = new BookListRequest();
+        AtomicInteger loads = new AtomicInteger();
+        CatalogCache.Listing first = cache.getListing(request, counting(loads, page(1L, 2L)));
+
+        cache.bookChanged(3L);
+        cache.booksChanged(List.of(4L, 5L), false);
+        CatalogCache.Listing second = cache.getListing(request, counting(loads, page(1L, 2L)));
+
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertEquals(first.version(), second.version());
+    }
+
+    @Test
+    void stockChangeOfBookOnPageEvictsIt() {
+        BookListRequest request = new BookListRequest();
+        AtomicInteger loads = new AtomicInteger();
+        CatalogCache.Listing first = cache.getListing(request, counting(loads, page(1L, 2L)));
+
+        cache.bookChanged(2L);
+        CatalogCache.Listing second = cache.getListing(request, counting(loads, page(1L, 2L)));
+
+        assertEquals(2, loads.get());
+        assertTrue(second.version().version() > first.version().version());
+    }
+
+    @Test
+    void pageLoadedWhileOtherBookChangedIsCached() {
+        BookListRequest request = new BookListRequest();
+        AtomicInteger loads = new AtomicInteger();
+        cache.getListing(request, () -> {
+            loads.incrementAndGet();
+            // A checkout of a book that is not on this page commits during the load
+            cache.bookChanged(9L);
+            return page(1L, 2L);
+        });
+
+        cache.getListing(request, counting(loads, page(1L, 2L)));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void pageLoadedWhileOneOfItsBooksChangedIsNotCached() {
+        BookListRequest request = new BookListRequest();
+        AtomicInteger loads = new AtomicInteger();
+        cache.getListing(request, () -> {
+            loads.incrementAndGet();
+            cache.bookChanged(2L);
+            return page(1L, 2L);
+        });
+
+        cache.getListing(request, counting(loads, page(1L, 2L)));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void priceChangeEvictsEveryPage() {
+        BookListRequest request = new BookListRequest();
+        AtomicInteger loads = new AtomicInteger();
+        cache.getListing(request, counting(loads, page(1L, 2L)));
+
+        cache.booksChanged(List.of(7L), true);
+        cache.getListing(request, counting(loads, page(1L, 2L)));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void provisionalPageIsNotCachedAndClearRetiresItsVersion() {
+        BookListRequest request = new BookListRequest();
+        AtomicInteger loads = new AtomicInteger();
+        BookListResult provisional = page(1L, 2L);
+        provisional.setProvisional(true);
+        CatalogCache.Listing first = cache.getListing(request, counting(loads, provisional));
+        cache.getListing(request, counting(loads, provisional));
+        assertEquals(2, loads.get());
+
+        // The search index finished loading
+        cache.clear();
+        CatalogCache.Listing complete = cache.getListing(request, counting(loads, page(1L, 2L)));
+        cache.getListing(request, counting(loads, page(1L, 2L)));
+
+        assertEquals(3, loads.get());
+        assertNotEquals(first.version().etag("books"), complete.version().etag("books"));
+    }
+
+    @Test
+    void bookVersionFollowsOnlyThatBook() {
+        CatalogVersion before = cache.bookVersion(1L);
+        cache.bookChanged(2L);
+        assertEquals(before, cache.bookVersion(1L));
+
+        cache.bookChanged(1L);
+        assertTrue(cache.bookVersion(1L).version() > before.version());
+    }
+
+    private static Supplier<BookListResult> counting(AtomicInteger loads, BookListResult result) {
+        return () -> {
+            loads.incrementAndGet();
+            return result;
+        };
+    }
+
+    private static BookListResult page(Long... ids) {
+        List<BookSummaryDto> books = Arrays.stream(ids)
+                .map(id -> new BookSummaryDto(id, "Title " + id, "Author", BigDecimal.TEN, null, 5, 2000, null))
+                .toList();
+        return BookListResult.builder().books(books).build();
+    }
+}
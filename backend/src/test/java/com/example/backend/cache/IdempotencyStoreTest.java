@@ -0,0 +1,178 @@
+package com.example.backend.cache;
+
+import com.example.backend.dto.Response;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private static final String CHECKOUT = "POST /api/orders/checkout";
+
+    private final IdempotencyStore store = store(Duration.ofHours(1), 5_000);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void completedResponseIsReplayed() {
+        Response first = store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+        Response second = store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+
+        assertSame(first, second);
+        assertEquals(1, runs.get());
+        assertEquals(1L, store.stats().get("idempotencyReplayed"));
+    }
+
+    @Test
+    void clientErrorIsKeptToo() {
+        store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(400));
+        Response second = store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+
+        assertEquals(400, second.getStatus());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void duplicateWaitsForRequestInFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(() ->
+                store.execute("key-1", CHECKOUT, Map.of("cart", 1), () -> {
+                    started.countDown();
+                    await(finish);
+                    return respond(200).get();
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Response> duplicate = CompletableFuture.supplyAsync(() ->
+                store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200)));
+        Thread.sleep(100);
+        assertFalse(duplicate.isDone());
+
+        finish.countDown();
+        assertSame(first.get(5, TimeUnit.SECONDS), duplicate.get(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void duplicateGivesUpWith409AfterInFlightWait() throws Exception {
+        IdempotencyStore shortWait = store(Duration.ofHours(1), 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture.supplyAsync(() -> shortWait.execute("key-1", CHECKOUT, Map.of("cart", 1), () -> {
+            started.countDown();
+            await(finish);
+            return respond(200).get();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            Response duplicate = shortWait.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+            assertEquals(409, duplicate.getStatus());
+            assertEquals(0, runs.get());
+        } finally {
+            finish.countDown();
+        }
+    }
+
+    @Test
+    void sameKeyForDifferentRequestIs422() {
+        store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+
+        Response other = store.execute("key-1", CHECKOUT, Map.of("cart", 2), respond(200));
+
+        assertEquals(422, other.getStatus());
+        assertEquals(1, runs.get());
+        assertEquals(1L, store.stats().get("idempotencyConflicts"));
+    }
+
+    @Test
+    void keysAreScopedByEndpoint() {
+        store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+        Response other = store.execute("key-1", "POST /api/payments", Map.of("cart", 1), respond(201));
+
+        assertEquals(201, other.getStatus());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void serverErrorFreesKey() {
+        store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(503));
+
+        Response retry = store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+
+        assertEquals(200, retry.getStatus());
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void exceptionFreesKeyForWaitingDuplicate() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Response> first = CompletableFuture.supplyAsync(() ->
+                store.execute("key-1", CHECKOUT, Map.of("cart", 1), () -> {
+                    started.countDown();
+                    await(finish);
+                    throw new IllegalStateException("Database gone");
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Response> duplicate = CompletableFuture.supplyAsync(() ->
+                store.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200)));
+
+        finish.countDown();
+
+        assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+        // The duplicate ran the request itself
+        assertEquals(200, duplicate.get(5, TimeUnit.SECONDS).getStatus());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void expiredKeyRunsAgain() throws Exception {
+        IdempotencyStore shortTtl = store(Duration.ofMillis(50), 5_000);
+        shortTtl.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+
+        Thread.sleep(150);
+        shortTtl.execute("key-1", CHECKOUT, Map.of("cart", 1), respond(200));
+
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void missingKeyIsNotDeduplicatedAndLongKeyIsRefused() {
+        store.execute(null, CHECKOUT, Map.of("cart", 1), respond(200));
+        store.execute(" ", CHECKOUT, Map.of("cart", 1), respond(200));
+        assertEquals(2, runs.get());
+
+        Response tooLong = store.execute("k".repeat(256), CHECKOUT, Map.of("cart", 1), respond(200));
+        assertEquals(400, tooLong.getStatus());
+        assertEquals(2, runs.get());
+    }
+
+    private Supplier<Response> respond(int status) {
+        return () -> {
+            runs.incrementAndGet();
+            return Response.builder().status(status).message("run " + runs.get()).build();
+        };
+    }
+
+    private static IdempotencyStore store(Duration ttl, long inFlightWaitMillis) {
+        return new IdempotencyStore(new ObjectMapper(), ttl, 1000, inFlightWaitMillis);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
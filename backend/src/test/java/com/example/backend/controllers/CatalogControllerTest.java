@@ -0,0 +1,150 @@
+package com.example.backend.controllers;
+
+import com.example.backend.cache.CatalogCache;
+import com.example.backend.cache.ResponseBytesCache;
+import com.example.backend.config.SecurityConfig;
+import com.example.backend.dto.BookDto;
+import com.example.backend.dto.BookListResult;
+import com.example.backend.services.CatalogService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Conditional GETs of the catalog, with the real caches in front of a mocked CatalogService
+@WebMvcTest(CatalogController.class)
+@Import({SecurityConfig.class, CatalogCache.class, ResponseBytesCache.class})
+class CatalogControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @MockitoBean
+    private CatalogService catalogService;
+
+    @BeforeEach
+    void setUp() {
+        when(catalogService.getAllGenres()).thenReturn(List.of("Fantasy", "History"));
+        when(catalogService.getBookById(anyLong())).thenAnswer(invocation -> {
+            BookDto book = new BookDto();
+            book.setBookId(invocation.getArgument(0));
+            book.setTitle("Dune");
+            return book;
+        });
+        when(catalogService.listBooks(any())).thenReturn(BookListResult.builder()
+                .books(List.of())
+                .totalElements(0L)
+                .totalPages(0)
+                .build());
+    }
+
+    @Test
+    void genresAnswerWithEtagAndCacheControl() throws Exception {
+        mockMvc.perform(get("/api/catalog/genres"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"))
+                .andExpect(header().string(HttpHeaders.ETAG, Matchers.startsWith("\"genres-")))
+                .andExpect(jsonPath("$.genres[0]").value("Fantasy"));
+    }
+
+    @Test
+    void currentEtagIsNotModifiedWithoutCallingService() throws Exception {
+        String etag = etag("/api/catalog/genres", null);
+        clearInvocations(catalogService);
+
+        mockMvc.perform(get("/api/catalog/genres").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        verifyNoInteractions(catalogService);
+    }
+
+    @Test
+    void addedBookGivesGenresNewEtag() throws Exception {
+        String before = etag("/api/catalog/genres", null);
+
+        catalogCache.bookAddedOrRemoved(900L, "New", "Author", List.of("Poetry"));
+
+        mockMvc.perform(get("/api/catalog/genres").header(HttpHeaders.IF_NONE_MATCH, before))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(before)));
+    }
+
+    @Test
+    void gzipVariantHasItsOwnEtag() throws Exception {
+        String plain = etag("/api/catalog/genres", null);
+        String gzip = etag("/api/catalog/genres", "gzip, deflate");
+
+        assertTrue(gzip.startsWith("\"genres-gz-"), gzip);
+        assertNotEquals(plain, gzip);
+        mockMvc.perform(get("/api/catalog/genres").header(HttpHeaders.IF_NONE_MATCH, plain)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void bookEtagChangesOnlyWithThatBook() throws Exception {
+        String etag = etag("/api/catalog/books/41", null);
+
+        catalogCache.bookChanged(42L);
+        clearInvocations(catalogService);
+        mockMvc.perform(get("/api/catalog/books/41").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        verifyNoInteractions(catalogService);
+
+        catalogCache.bookChanged(41L);
+        mockMvc.perform(get("/api/catalog/books/41").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(etag)))
+                .andExpect(jsonPath("$.book.title").value("Dune"));
+    }
+
+    @Test
+    void cachedListingPageIsNotModifiedWithoutCallingService() throws Exception {
+        String etag = etag("/api/catalog/books?page=3&search=dune", null);
+        clearInvocations(catalogService);
+
+        mockMvc.perform(get("/api/catalog/books?page=3&search=dune").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=10, public"));
+
+        verifyNoInteractions(catalogService);
+    }
+
+    @Test
+    void listingWhileIndexLoadsIsServiceUnavailable() throws Exception {
+        when(catalogService.listBooks(any())).thenThrow(new IllegalStateException("Search index is still loading"));
+
+        mockMvc.perform(get("/api/catalog/books?page=1&facets=true"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value(503));
+    }
+
+    private String etag(String url, String acceptEncoding) throws Exception {
+        var request = get(url);
+        if (acceptEncoding != null) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+}
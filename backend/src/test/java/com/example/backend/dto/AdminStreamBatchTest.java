@@ -0,0 +1,88 @@
+package com.example.backend.dto;
+
+import com.example.backend.dto.AdminStreamBatch.OrderEvent;
+import com.example.backend.dto.AdminStreamBatch.OrderEventType;
+import com.example.backend.dto.AdminStreamBatch.StockLevel;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminStreamBatchTest {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Test
+    void setQuantityThenAdjustmentsAddUp() {
+        StockLevel level = new StockLevel(1L, 10, 0)
+                .then(new StockLevel(1L, null, -2))
+                .then(new StockLevel(1L, null, 1));
+
+        assertEquals(new StockLevel(1L, 10, -1), level);
+    }
+
+    @Test
+    void laterSetQuantityReplacesEarlierChanges() {
+        StockLevel level = new StockLevel(1L, null, -3).then(new StockLevel(1L, 7, 0));
+
+        assertEquals(new StockLevel(1L, 7, 0), level);
+    }
+
+    @Test
+    void adjustmentsAloneStayRelative() {
+        StockLevel level = new StockLevel(1L, null, -3).then(new StockLevel(1L, null, -1));
+
+        assertEquals(new StockLevel(1L, null, -4), level);
+    }
+
+    @Test
+    void mergeAddsCountsAndTakesNextSequence() {
+        AdminStreamBatch first = batch(1, 2, "20.00", 1, 0, List.of(event(1L)), List.of(new StockLevel(1L, 10, -1)));
+        AdminStreamBatch second = batch(2, 1, "5.50", 0, 1, List.of(event(2L)),
+                List.of(new StockLevel(1L, null, -2), new StockLevel(2L, 4, 0)));
+
+        AdminStreamBatch merged = first.merge(second);
+
+        assertEquals(2, merged.sequence());
+        assertEquals(AT.plusSeconds(2), merged.at());
+        assertEquals(3, merged.ordersPlaced());
+        assertEquals(new BigDecimal("25.50"), merged.revenue());
+        assertEquals(1, merged.paymentsFailed());
+        assertEquals(1, merged.refunds());
+        assertEquals(List.of(1L, 2L), merged.orders().stream().map(OrderEvent::orderId).toList());
+        assertEquals(List.of(new StockLevel(1L, 10, -3), new StockLevel(2L, 4, 0)), merged.stock());
+        assertEquals(1, merged.merged());
+        assertEquals(2, merged.merge(batch(3, 0, "0", 0, 0, List.of(), List.of())).merged());
+    }
+
+    @Test
+    void mergeKeepsAtMostMaxOrderEventsAndCountsTheRest() {
+        List<OrderEvent> events = new ArrayList<>();
+        for (long id = 1; id <= AdminStreamBatch.MAX_ORDER_EVENTS - 1; id++) {
+            events.add(event(id));
+        }
+        AdminStreamBatch first = new AdminStreamBatch(1, AT, events.size(), BigDecimal.ZERO, 0, 0, events, 4, List.of(), 0);
+        AdminStreamBatch second = new AdminStreamBatch(2, AT, 3, BigDecimal.ZERO, 0, 0,
+                List.of(event(1000L), event(1001L), event(1002L)), 0, List.of(), 0);
+
+        AdminStreamBatch merged = first.merge(second);
+
+        assertEquals(AdminStreamBatch.MAX_ORDER_EVENTS, merged.orders().size());
+        assertEquals(1000L, merged.orders().get(AdminStreamBatch.MAX_ORDER_EVENTS - 1).orderId());
+        assertEquals(4 + 2, merged.ordersOmitted());
+    }
+
+    private static AdminStreamBatch batch(long sequence, int placed, String revenue, int failed, int refunds,
+                                          List<OrderEvent> orders, List<StockLevel> stock) {
+        return new AdminStreamBatch(sequence, AT.plusSeconds(sequence), placed, new BigDecimal(revenue), failed,
+                refunds, orders, 0, stock, 0);
+    }
+
+    private static OrderEvent event(Long orderId) {
+        return new OrderEvent(OrderEventType.ORDER_PLACED, orderId, 1L, BigDecimal.TEN, AT);
+    }
+}
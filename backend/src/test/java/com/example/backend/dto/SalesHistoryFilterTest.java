@@ -0,0 +1,82 @@
+package com.example.backend.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesHistoryFilterTest {
+
+    @Test
+    void fromAfterToIsRejected() {
+        SalesHistoryFilter filter = range(LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 1), null, null);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, filter::validate);
+        assertEquals("from must not be after to", e.getMessage());
+    }
+
+    @Test
+    void minTotalAboveMaxTotalIsRejected() {
+        SalesHistoryFilter filter = range(null, null, new BigDecimal("10.01"), new BigDecimal("10"));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, filter::validate);
+        assertEquals("minTotal must not be above maxTotal", e.getMessage());
+    }
+
+    @Test
+    void equalAndOpenBoundsAreValid() {
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        assertDoesNotThrow(range(day, day, new BigDecimal("10.00"), new BigDecimal("10"))::validate);
+        assertDoesNotThrow(range(day, null, null, new BigDecimal("10"))::validate);
+        assertDoesNotThrow(SalesHistoryFilter.none()::validate);
+    }
+
+    @Test
+    void titlePatternEscapesLikeWildcards() {
+        assertEquals("%50\\% off\\_%", title("50% off_").productTitlePattern());
+        assertEquals("%c:\\\\books%", title("C:\\Books").productTitlePattern());
+    }
+
+    @Test
+    void titlePatternIsTrimmedAndLowerCased() {
+        assertEquals("%dune%", title("  DUNE ").productTitlePattern());
+    }
+
+    @Test
+    void blankTitleIsNoFilter() {
+        assertFalse(title("   ").hasProductTitle());
+        assertFalse(SalesHistoryFilter.none().hasProductTitle());
+        assertTrue(title("a").hasProductTitle());
+    }
+
+    @Test
+    void statusesAreTrimmedUpperCasedAndDeduplicated() {
+        SalesHistoryFilter filter = statuses(Arrays.asList("paid", " PAID ", null, "", "shipped"));
+
+        assertTrue(filter.hasStatuses());
+        assertEquals(List.of("PAID", "SHIPPED"), filter.normalizedStatuses());
+    }
+
+    @Test
+    void onlyBlankStatusesIsNoFilter() {
+        assertFalse(statuses(Arrays.asList(" ", null)).hasStatuses());
+        assertFalse(statuses(List.of()).hasStatuses());
+        assertFalse(SalesHistoryFilter.none().hasStatuses());
+    }
+
+    private static SalesHistoryFilter range(LocalDate from, LocalDate to, BigDecimal minTotal, BigDecimal maxTotal) {
+        return new SalesHistoryFilter(null, null, null, null, from, to, null, minTotal, maxTotal);
+    }
+
+    private static SalesHistoryFilter title(String productTitle) {
+        return new SalesHistoryFilter(null, null, null, productTitle, null, null, null, null, null);
+    }
+
+    private static SalesHistoryFilter statuses(List<String> statuses) {
+        return new SalesHistoryFilter(null, null, null, null, null, null, statuses, null, null);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.backend.importer;
+
+import com.example.backend.dto.BookDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void quotedFieldKeepsCommas() throws IOException {
+        assertEquals(List.of(List.of("a", "b,c", "d")), records("a,\"b,c\",d\n"));
+    }
+
+    @Test
+    void doubledQuoteIsOneQuote() throws IOException {
+        assertEquals(List.of(List.of("say \"hi\"", "x"), List.of("\"")), records("\"say \"\"hi\"\"\",x\n\"\"\"\"\n"));
+    }
+
+    @Test
+    void quotedFieldSpansLines() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("\"line 1\nline 2\",x\nnext,y\n"));
+
+        assertEquals(List.of("line 1\nline 2", "x"), csv.next());
+        assertEquals(1, csv.recordLine());
+        assertEquals(List.of("next", "y"), csv.next());
+        assertEquals(3, csv.recordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void crlfEndsRecordsOutsideQuotes() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c\r\nd", "e")), records("a,b\r\n\"c\r\nd\",e\r\n"));
+    }
+
+    @Test
+    void lastRecordNeedsNoNewlineAndEmptyFieldsAreKept() throws IOException {
+        assertEquals(List.of(List.of("a", "", ""), List.of("b")), records("a,,\nb"));
+    }
+
+    @Test
+    void unterminatedQuoteKeepsRestOfInputAsOneField() throws IOException {
+        assertEquals(List.of(List.of("a", "bc\nd,e\n")), records("a,\"bc\nd,e\n"));
+    }
+
+    @Test
+    void fieldLongerThanBufferIsReadWhole() throws IOException {
+        String longText = "x".repeat(100_000);
+
+        assertEquals(List.of(List.of("1", longText), List.of("2", "y")), records("1,\"" + longText + "\"\n2,y\n"));
+    }
+
+    @Test
+    void headerWithByteOrderMarkIsMatched() throws IOException {
+        CsvBookRowReader reader = new CsvBookRowReader(utf8("\uFEFFISBN,Title,Author,Price\n978-1,Dune,Herbert,9.99\n"));
+
+        BookDto book = reader.next().value();
+
+        assertEquals("978-1", book.getIsbn());
+        assertEquals("Dune", book.getTitle());
+    }
+
+    @Test
+    void emptyUploadOrMissingColumnIsRejected() {
+        IllegalArgumentException empty = assertThrows(IllegalArgumentException.class, () -> new CsvBookRowReader(utf8("")));
+        assertEquals("CSV upload is empty, a header row is required", empty.getMessage());
+
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+                () -> new CsvBookRowReader(utf8("isbn,title,author\n")));
+        assertEquals("CSV header is missing column: price", missing.getMessage());
+    }
+
+    @Test
+    void invalidValueFailsOnlyItsRow() throws IOException {
+        CsvBookRowReader reader = new CsvBookRowReader(utf8("isbn,title,author,price\n1,A,B,cheap\n\n2,C,D,5\n"));
+
+        ImportRow<BookDto> invalid = reader.next();
+        assertEquals("Invalid price: cheap", invalid.error());
+        assertEquals(2, invalid.line());
+        ImportRow<BookDto> valid = reader.next();
+        assertEquals("2", valid.value().getIsbn());
+        assertEquals(4, valid.line());
+        assertNull(reader.next());
+    }
+
+    private static List<List<String>> records(String text) throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(text));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static ByteArrayInputStream utf8(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
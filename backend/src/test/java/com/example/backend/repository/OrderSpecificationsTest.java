@@ -0,0 +1,131 @@
+package com.example.backend.repository;
+
+import com.example.backend.dto.SalesHistoryFilter;
+import com.example.backend.entity.*;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The SQL Hibernate renders for the sales history filters with the MySQL dialect. No database is
+// needed: the session factory never opens a connection and each statement is captured, then stopped,
+// before it would be sent. SalesHistoryQueriesTest checks the SQL of the export and id-first paths against
+// this; the query plans are only checked by hand on MySQL, with SalesHistoryPlanCheck.
+class OrderSpecificationsTest {
+
+    private static final List<String> statements = new ArrayList<>();
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void buildSessionFactory() {
+        Configuration configuration = new Configuration()
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.MySQLDialect")
+                .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .setProperty("hibernate.connection.url", "jdbc:mysql://localhost:1/none")
+                .setProperty("hibernate.connection.initial_pool_size", "0");
+        configuration.setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy());
+        configuration.setStatementInspector(sql -> {
+            statements.add(sql);
+            throw new Stopped();
+        });
+        for (Class<?> entity : List.of(Address.class, Book.class, Cart.class, CartItem.class, Order.class,
+                OrderItem.class, Payment.class, PaymentMethod.class, SalesDaily.class, SalesDailyBook.class, User.class)) {
+            configuration.addAnnotatedClass(entity);
+        }
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void noFiltersIsNoCondition() {
+        String where = where(countSql(SalesHistoryFilter.none()));
+
+        assertEquals("1=1", where);
+    }
+
+    @Test
+    void customerIsForeignKeyWithoutJoin() {
+        String sql = countSql(SalesHistoryFilter.byCustomer(7L));
+
+        assertEquals("select count(o1_0.order_id) from orders o1_0 where o1_0.user_id=?", sql);
+    }
+
+    @Test
+    void statusesAreOneInListOfNormalizedValues() {
+        String where = where(countSql(new SalesHistoryFilter(null, null, null, null, null, null,
+                List.of("paid", " PAID", "shipped", " "), null, null)));
+
+        assertEquals("o1_0.status in (?,?)", where);
+    }
+
+    @Test
+    void dateRangeIsHalfOpenOnCreatedAt() {
+        String where = where(countSql(new SalesHistoryFilter(null, null, null, null,
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 31), null, null, null)));
+
+        assertEquals("o1_0.created_at>=? and o1_0.created_at<?", where);
+    }
+
+    @Test
+    void totalsAreInclusive() {
+        String where = where(countSql(new SalesHistoryFilter(null, null, null, null, null, null, null,
+                new BigDecimal("10"), new BigDecimal("99"))));
+
+        assertEquals("o1_0.total_price>=? and o1_0.total_price<=?", where);
+    }
+
+    @Test
+    void productFiltersAreExistsSubqueriesWithoutDistinct() {
+        String sql = countSql(new SalesHistoryFilter(null, null, 3L, "50% off_", null, null, null, null, null));
+
+        assertTrue(sql.startsWith("select count(o1_0.order_id) from orders o1_0 where exists("), sql);
+        assertFalse(sql.contains("distinct"), sql);
+        assertTrue(sql.contains("exists(select 1 from order_items oi1_0 where oi1_0.order_id=o1_0.order_id "
+                + "and oi1_0.book_id=?)"), sql);
+        assertTrue(sql.contains("lower(b2_0.title) like ? escape '\\\\'"), sql);
+    }
+
+    @Test
+    void everyFilterIsOneConditionOfTheSameQuery() {
+        String where = where(countSql(new SalesHistoryFilter(5L, 7L, 3L, "dune", LocalDate.of(2025, 1, 1),
+                LocalDate.of(2025, 3, 31), List.of("paid"), new BigDecimal("10"), new BigDecimal("99"))));
+
+        assertTrue(where.startsWith("o1_0.order_id=? and o1_0.user_id=? and o1_0.status in (?) "
+                + "and o1_0.created_at>=? and o1_0.created_at<? and o1_0.total_price>=? and o1_0.total_price<=? "
+                + "and exists("), where);
+        assertFalse(where.contains(" or "), where);
+    }
+
+    // The count query Spring Data runs for a page of OrderRepo.findAll(spec, pageable)
+    private static String countSql(SalesHistoryFilter filter) {
+        statements.clear();
+        try (Session session = sessionFactory.openSession()) {
+            SimpleJpaRepository<Order, Long> repository = new SimpleJpaRepository<>(Order.class, session);
+            assertThrows(Stopped.class, () -> repository.count(OrderSpecifications.salesHistory(filter)));
+        }
+        assertEquals(1, statements.size());
+        return statements.get(0);
+    }
+
+    private static String where(String sql) {
+        return sql.substring(sql.indexOf(" where ") + " where ".length());
+    }
+
+    private static class Stopped extends RuntimeException {
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BkTreeTest {
+
+    @Test
+    void levenshteinCountsInsertsDeletesAndSubstitutions() {
+        assertEquals(0, BkTree.levenshtein("dune", "dune"));
+        assertEquals(1, BkTree.levenshtein("dune", "dunes"));
+        assertEquals(1, BkTree.levenshtein("dune", "dun"));
+        assertEquals(1, BkTree.levenshtein("dune", "dane"));
+        assertEquals(2, BkTree.levenshtein("dune", "udne"));
+        assertEquals(4, BkTree.levenshtein("", "dune"));
+    }
+
+    @Test
+    void closestIsWithinMaxDistanceOnly() {
+        BkTree tree = tree("punishment", "crime", "brothers", "karamazov");
+
+        assertEquals("punishment", tree.closest("punishmnt", 1));
+        assertEquals("punishment", tree.closest("pnishmnt", 2));
+        assertNull(tree.closest("pnishmnt", 1));
+        assertEquals("crime", tree.closest("crime", 0));
+        assertNull(tree.closest("crimes", 0));
+        assertNull(new BkTree().closest("crime", 2));
+    }
+
+    @Test
+    void closestFindsWordsDeepInTheTree() {
+        BkTree tree = new BkTree();
+        for (int i = 0; i < 2000; i++) {
+            tree.add("word" + i);
+        }
+        tree.add("dostoevsky");
+
+        assertEquals("dostoevsky", tree.closest("dostoyevsky", 2));
+    }
+
+    @Test
+    void smallerDistanceWinsOverMoreBooks() {
+        BkTree tree = tree("river", "rivers", "rivers", "rivers");
+
+        assertEquals("river", tree.closest("rivr", 2));
+    }
+
+    @Test
+    void tiesGoToWordUsedByMoreBooksThenAlphabetical() {
+        BkTree tree = tree("cart", "card", "card");
+        assertEquals("card", tree.closest("carx", 1));
+
+        tree.add("cart");
+        assertEquals("card", tree.closest("carx", 1));
+        tree.add("cart");
+        assertEquals("cart", tree.closest("carx", 1));
+    }
+
+    @Test
+    void removedWordIsTombstoneSkippedByLookupsUntilAddedAgain() {
+        BkTree tree = tree("garden", "gardens");
+        tree.remove("garden");
+
+        assertFalse(tree.contains("garden"));
+        assertTrue(tree.contains("gardens"));
+        assertEquals("gardens", tree.closest("gardn", 2));
+
+        // Words hanging under the tombstone are still found
+        tree.remove("gardens");
+        assertNull(tree.closest("gardn", 2));
+
+        tree.add("garden");
+        assertEquals("garden", tree.closest("gardn", 2));
+    }
+
+    @Test
+    void wordIsLiveWhileAnyBookUsesIt() {
+        BkTree tree = tree("ocean", "ocean");
+
+        tree.remove("ocean");
+        assertTrue(tree.contains("ocean"));
+        tree.remove("ocean");
+        tree.remove("ocean");
+        assertFalse(tree.contains("ocean"));
+
+        tree.add("ocean");
+        assertTrue(tree.contains("ocean"));
+    }
+
+    private static BkTree tree(String... words) {
+        BkTree tree = new BkTree();
+        for (String word : words) {
+            tree.add(word);
+        }
+        return tree;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.backend.search;
+
+import com.example.backend.search.Bm25Index.Field;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Bm25IndexTest {
+
+    @Test
+    void titleHitOutranksAuthorHitOutranksDescriptionHit() {
+        Bm25Index index = new Bm25Index();
+        book(index, 0, "Dune Messiah", "Frank Herbert", "Paul rules the empire");
+        book(index, 1, "Chapterhouse", "Dune Herbert", "The sisterhood hides");
+        book(index, 2, "Children", "Frank Herbert", "Dune and its empire decline");
+
+        assertTrue(score(index, 0, "dune") > score(index, 1, "dune"));
+        assertTrue(score(index, 1, "dune") > score(index, 2, "dune"));
+        assertTrue(score(index, 2, "dune") > 0);
+    }
+
+    @Test
+    void bookWithoutTheTermScoresZeroAndUnknownWordsAreDropped() {
+        Bm25Index index = new Bm25Index();
+        book(index, 0, "Dune", "Frank Herbert", null);
+        book(index, 1, "Emma", "Jane Austen", null);
+
+        assertEquals(0, score(index, 1, "dune"));
+        assertEquals(1, index.queryTerms("dune zzzunknown").length);
+        assertEquals(0, index.queryTerms("zzzunknown").length);
+    }
+
+    @Test
+    void rareTermWeighsMoreThanCommonTerm() {
+        Bm25Index index = new Bm25Index();
+        book(index, 0, "War Peace", "Tolstoy", null);
+        book(index, 1, "War Games", "Someone", null);
+        book(index, 2, "War Stories", "Someone", null);
+
+        assertTrue(score(index, 0, "peace") > score(index, 0, "war"));
+    }
+
+    @Test
+    void shorterTitleScoresHigherForTheSameHit() {
+        Bm25Index index = new Bm25Index();
+        book(index, 0, "Java", "A", null);
+        book(index, 1, "Java in practice for the busy engineer", "B", null);
+
+        assertTrue(score(index, 0, "java") > score(index, 1, "java"));
+    }
+
+    @Test
+    void descriptionIsCappedAtItsOpeningWords() {
+        Bm25Index index = new Bm25Index();
+        book(index, 0, "A", "B", "filler ".repeat(100) + "needle");
+        book(index, 1, "C", "D", "needle " + "filler ".repeat(100));
+
+        assertEquals(0, score(index, 0, "needle"));
+        assertTrue(score(index, 1, "needle") > 0);
+    }
+
+    @Test
+    void removedOrClearedFieldNoLongerScores() {
+        Bm25Index index = new Bm25Index();
+        book(index, 0, "Dune", "Herbert", "Sand worms");
+        book(index, 1, "Emma", "Austen", null);
+
+        index.set(0, Field.DESCRIPTION, null);
+        assertEquals(0, score(index, 0, "worms"));
+        assertTrue(score(index, 0, "dune") > 0);
+
+        index.remove(0);
+        assertEquals(0, score(index, 0, "dune"));
+    }
+
+    private static void book(Bm25Index index, int ordinal, String title, String author, String description) {
+        index.set(ordinal, Field.TITLE, title);
+        index.set(ordinal, Field.AUTHOR, author);
+        index.set(ordinal, Field.DESCRIPTION, description);
+    }
+
+    private static double score(Bm25Index index, int ordinal, String search) {
+        int[] terms = index.queryTerms(search);
+        return index.score(ordinal, terms, index.idf(terms));
+    }
+}
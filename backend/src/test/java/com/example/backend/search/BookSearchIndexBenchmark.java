@@ -0,0 +1,172 @@
+package com.example.backend.search;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Latency benchmark for BookSearchIndex on a synthetic catalog: title-sorted searches at 100k and 1M
+ * books, then at 100k books with 150-word descriptions the description indexing time, relevance-sorted
+ * searches against title-sorted ones, and misspelled searches corrected through the BK-tree.
+ * Not a unit test (no database needed, not run by surefire). Run with:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.backend.search.BookSearchIndexBenchmark
+ */
+public class BookSearchIndexBenchmark {
+
+    private static final String[] WORDS = {
+            "harry", "potter", "tolkien", "ring", "lord", "shadow", "river", "garden", "winter", "empire",
+            "secret", "history", "silent", "crime", "punishment", "brothers", "ocean", "kingdom", "night", "fire",
+            "stone", "chamber", "prisoner", "goblet", "phoenix", "prince", "hallows", "java", "spring", "data",
+            "pattern", "design", "algorithm", "dragon", "castle", "forest", "mountain", "city", "star", "war"
+    };
+
+    private static final String[] VOCABULARY = vocabulary(20_000);
+
+    private static final String[] QUERIES = {
+            "harr", "tolk", "ring", "potter", "crime and", "on", "dragon", "sil", "java", "xyz"
+    };
+
+    public static void main(String[] args) {
+        for (int books : new int[]{100_000, 1_000_000}) {
+            run(books);
+        }
+        runRelevanceAndCorrection(100_000);
+    }
+
+    private static void run(int books) {
+        List<BookDocument> docs = documents(books);
+        BookSearchIndex index = new BookSearchIndex(null, null);
+        long buildStart = System.nanoTime();
+        index.load(docs);
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+        long[] nanos = measure(index, QUERIES, "title", true);
+        System.out.printf("%,d books: build %d ms, %s%n", books, buildMs, percentiles(nanos));
+    }
+
+    private static void runRelevanceAndCorrection(int books) {
+        List<BookDocument> docs = documents(books);
+        BookSearchIndex index = new BookSearchIndex(null, null);
+        index.load(docs);
+
+        Random random = new Random(11);
+        List<Object[]> descriptions = new ArrayList<>(books);
+        for (BookDocument doc : docs) {
+            descriptions.add(new Object[]{doc.bookId(), words(random, 150)});
+        }
+        long indexStart = System.nanoTime();
+        index.loadDescriptions(descriptions.iterator());
+        long indexMs = (System.nanoTime() - indexStart) / 1_000_000;
+        System.out.printf("%,d books: descriptions indexed in %d ms%n", books, indexMs);
+
+        System.out.printf("%,d books, sort=title: %s%n", books, percentiles(measure(index, QUERIES, "title", false)));
+        System.out.printf("%,d books, sort=relevance: %s%n", books,
+                percentiles(measure(index, QUERIES, BookSearchIndex.RELEVANCE, false)));
+
+        // Vocabulary words with two letters swapped that match nothing as typed
+        String[] misspelled = misspellings(index, 50);
+        int corrected = 0;
+        for (String query : misspelled) {
+            if (index.search(new CatalogQuery(query, List.of(), false, false), PageRequest.of(0, 20, Sort.by("title")))
+                    .didYouMean() != null) {
+                corrected++;
+            }
+        }
+        System.out.printf("%,d books, misspelled (%d of %d corrected): %s%n", books, corrected, misspelled.length,
+                percentiles(measure(index, misspelled, "title", false)));
+    }
+
+    // Search latency over the queries, half of them with a genre filter if genres is set
+    private static long[] measure(BookSearchIndex index, String[] queries, String sortBy, boolean genres) {
+        PageRequest pageable = PageRequest.of(0, 20, Sort.by(sortBy));
+
+        // Warm up the JIT before measuring
+        for (int i = 0; i < 200; i++) {
+            index.search(new CatalogQuery(queries[i % queries.length], List.of(), false, false), pageable);
+        }
+
+        int iterations = 1000;
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            String query = queries[i % queries.length];
+            List<String> genreFilter = genres && i % 2 == 1 ? List.of(WORDS[i % 5]) : List.of();
+            long start = System.nanoTime();
+            index.search(new CatalogQuery(query, genreFilter, false, false), pageable);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos;
+    }
+
+    private static String percentiles(long[] sortedNanos) {
+        return String.format("p50 %.2f ms, p99 %.2f ms", sortedNanos[sortedNanos.length / 2] / 1e6,
+                sortedNanos[sortedNanos.length * 99 / 100] / 1e6);
+    }
+
+    private static List<BookDocument> documents(int books) {
+        Random random = new Random(42);
+        List<BookDocument> docs = new ArrayList<>(books);
+        for (long id = 1; id <= books; id++) {
+            String title = words(random, 2 + random.nextInt(4));
+            String author = words(random, 2);
+            docs.add(new BookDocument(id, title, author, BigDecimal.valueOf(random.nextInt(5000), 2),
+                    1900 + random.nextInt(125), List.of(WORDS[random.nextInt(5)])));
+        }
+        return docs;
+    }
+
+    private static String[] misspellings(BookSearchIndex index, int count) {
+        Random random = new Random(3);
+        PageRequest pageable = PageRequest.of(0, 1, Sort.by("title"));
+        List<String> misspelled = new ArrayList<>();
+        while (misspelled.size() < count) {
+            char[] word = VOCABULARY[random.nextInt(VOCABULARY.length)].toCharArray();
+            if (word.length < 6) {
+                continue;
+            }
+            int i = 1 + random.nextInt(word.length - 3);
+            char swap = word[i];
+            word[i] = word[i + 1];
+            word[i + 1] = swap;
+            String query = new String(word);
+            BookSearchIndex.SearchHits hits = index.search(new CatalogQuery(query, List.of(), false, false), pageable);
+            if (hits.total() == 0 || hits.didYouMean() != null) {
+                misspelled.add(query);
+            }
+        }
+        return misspelled.toArray(new String[0]);
+    }
+
+    private static String words(Random random, int count) {
+        StringJoiner joiner = new StringJoiner(" ");
+        for (int i = 0; i < count; i++) {
+            // Mostly long-tail words so matches are as selective as a real catalog
+            joiner.add(random.nextInt(10) == 0
+                    ? WORDS[random.nextInt(WORDS.length)]
+                    : VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return joiner.toString();
+    }
+
+    // Pronounceable pseudo-words, deterministic across runs
+    private static String[] vocabulary(int size) {
+        String consonants = "bcdfghjklmnprstvwz";
+        String vowels = "aeiou";
+        Random random = new Random(7);
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                word.append(consonants.charAt(random.nextInt(consonants.length())));
+                word.append(vowels.charAt(random.nextInt(vowels.length())));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+}
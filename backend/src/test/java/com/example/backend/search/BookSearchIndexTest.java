@@ -0,0 +1,154 @@
+package com.example.backend.search;
+
+import com.example.backend.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // The repository is only used by rebuild()
+        index = new BookSearchIndex(null, null);
+        index.load(List.of(
+                doc(1L, "The Hobbit", "J. R. R. Tolkien", "Fantasy"),
+                doc(2L, "The Lord of the Rings", "J. R. R. Tolkien", "Fantasy"),
+                doc(3L, "Crime and Punishment", "Fyodor Dostoevsky", "Classic"),
+                doc(4L, "The Brothers Karamazov", "Fyodor Dostoevsky", "Classic")));
+    }
+
+    @Test
+    void searchMatchesTitleOrAuthorSubstringIgnoringCase() {
+        assertEquals(List.of(1L, 2L), search("TOLKIEN"));
+        assertEquals(List.of(3L), search("punish"));
+        // Shorter than a trigram: checked against every book
+        assertEquals(List.of(1L, 2L, 4L), search("he"));
+        assertEquals(List.of(), search("xyz"));
+    }
+
+    @Test
+    void searchFiltersByGenre() {
+        BookSearchIndex.SearchHits hits = index.search(
+                new CatalogQuery("the", List.of("classic"), false, true), page());
+        assertEquals(List.of(4L), hits.ids());
+        assertEquals(1, hits.total());
+        // Genre facets count the text matches before the genre filter
+        assertEquals(2L, hits.facets().genres().get("Fantasy"));
+        assertEquals(1L, hits.facets().genres().get("Classic"));
+    }
+
+    @Test
+    void putAddsNewBook() {
+        index.put(book(5L, "The Silmarillion", "J. R. R. Tolkien", "Fantasy"));
+
+        assertEquals(List.of(1L, 2L, 5L), search("tolkien"));
+        assertEquals(List.of(5L), search("silmar"));
+    }
+
+    @Test
+    void putReplacesEditedText() {
+        index.put(book(1L, "There and Back Again", "J. R. R. Tolkien", "Fantasy"));
+
+        assertEquals(List.of(), search("hobbit"));
+        assertEquals(List.of(1L), search("back again"));
+        assertEquals(List.of(1L, 2L), search("tolkien"));
+    }
+
+    @Test
+    void putWithSameTextUpdatesGenres() {
+        index.put(book(3L, "Crime and Punishment", "Fyodor Dostoevsky", "Philosophy"));
+
+        assertEquals(List.of(3L), ids(index.search(new CatalogQuery(null, List.of("philosophy"), false, false), page())));
+        assertEquals(List.of(4L), ids(index.search(new CatalogQuery(null, List.of("classic"), false, false), page())));
+    }
+
+    @Test
+    void removeDropsBookAndItsGenre() {
+        index.remove(3L);
+        index.remove(4L);
+
+        assertEquals(List.of(), search("dostoevsky"));
+        assertEquals(List.of("Fantasy"), index.genres());
+        assertEquals(2, index.search(new CatalogQuery(null, List.of(), false, false), page()).total());
+    }
+
+    @Test
+    void removeOfUnknownBookIsIgnored() {
+        index.remove(42L);
+
+        assertEquals(4, index.search(new CatalogQuery(null, List.of(), false, false), page()).total());
+    }
+
+    @Test
+    void editsReuseFreedOrdinals() {
+        for (int i = 0; i < 100; i++) {
+            index.put(book(1L, "The Hobbit, edition " + i, "J. R. R. Tolkien", "Fantasy"));
+        }
+        index.remove(2L);
+        index.put(book(6L, "Unfinished Tales", "J. R. R. Tolkien", "Fantasy"));
+
+        assertEquals(4, index.ordinalCapacity());
+        assertEquals(List.of(1L), search("edition 99"));
+        assertEquals(List.of(), search("edition 98"));
+        assertEquals(List.of(1L, 6L), search("tolkien"));
+    }
+
+    @Test
+    void reusedOrdinalIsFoundAmongHigherOnes() {
+        // Ordinal 0 is freed and taken by a book sharing trigrams with books at higher ordinals
+        index.remove(1L);
+        index.put(book(7L, "The Brothers Grimm", "Jacob Grimm", "Classic"));
+
+        assertEquals(List.of(4L, 7L), search("brothers"));
+        assertEquals(List.of(2L, 4L, 7L), search("the "));
+    }
+
+    @Test
+    void relevanceCountsDescriptionOfPutBook() {
+        Book silmarillion = book(5L, "The Silmarillion", "J. R. R. Tolkien", "Fantasy");
+        silmarillion.setDescription("Tolkien's history of the Elder Days, edited by Christopher Tolkien");
+        index.put(silmarillion);
+
+        BookSearchIndex.SearchHits hits = index.search(new CatalogQuery("tolkien", List.of(), false, false),
+                PageRequest.of(0, 10, Sort.by(BookSearchIndex.RELEVANCE)));
+        // Same author match for all three, only the new book also has it in its description
+        assertEquals(5L, hits.ids().get(0));
+        assertEquals(3, hits.total());
+    }
+
+    private List<Long> search(String text) {
+        return ids(index.search(new CatalogQuery(text, List.of(), false, false), page()));
+    }
+
+    private static List<Long> ids(BookSearchIndex.SearchHits hits) {
+        return hits.ids();
+    }
+
+    private static PageRequest page() {
+        return PageRequest.of(0, 20, Sort.by("bookId"));
+    }
+
+    private static BookDocument doc(Long id, String title, String author, String genre) {
+        return new BookDocument(id, title, author, BigDecimal.TEN, 2000, List.of(genre));
+    }
+
+    private static Book book(Long id, String title, String author, String genre) {
+        Book book = new Book();
+        book.setBookId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setPrice(BigDecimal.TEN);
+        book.setYear(2000);
+        book.setGenres(List.of(genre));
+        return book;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.backend.search;
+
+import com.example.backend.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionIndexTest {
+
+    private SuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // The repositories are only used by rebuild()
+        index = new SuggestionIndex(null, null);
+        for (long id = 1; id <= 12; id++) {
+            index.put(book(id, "Harbor " + id, "Author " + id));
+        }
+    }
+
+    @Test
+    void limitIsCappedAndNonPositiveLimitIsEmpty() {
+        assertEquals(3, index.suggest("harb", 3).size());
+        assertEquals(SuggestionIndex.MAX_SUGGESTIONS, index.suggest("harb", 50).size());
+        assertEquals(List.of(), index.suggest("harb", 0));
+        assertEquals(List.of(), index.suggest("harb", -1));
+    }
+
+    @Test
+    void bestSellerComesFirst() {
+        index.addUnitsSold(Map.of(7L, 5L));
+
+        Suggestion.Match top = index.suggest("harb", 1).get(0);
+
+        assertEquals("Harbor 7", top.text());
+        assertEquals(7L, top.topBookId());
+    }
+
+    private static Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setBookId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+}
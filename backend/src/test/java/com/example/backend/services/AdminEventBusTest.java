@@ -0,0 +1,167 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.AdminStreamBatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// AdminEventBus with mocked emitters; events are published outside a transaction, so right away.
+class AdminEventBusTest {
+
+    private final List<AdminEventBus> buses = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        buses.forEach(AdminEventBus::shutdown);
+    }
+
+    @Test
+    void concurrentConnectsNeverExceedMaxSubscribers() throws Exception {
+        AdminEventBus bus = bus(3, 5);
+        List<SseEmitter> emitters = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            emitters.add(mock(SseEmitter.class));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<?>> connects = new ArrayList<>();
+        for (SseEmitter emitter : emitters) {
+            connects.add(pool.submit(() -> {
+                start.await();
+                bus.subscribe(emitter);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> connect : connects) {
+            connect.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(3L, bus.stats().get("streamSubscribers"));
+        assertEquals(29L, bus.stats().get("streamSubscribersRejected"));
+        long completed = emitters.stream().filter(emitter -> mockingDetails(emitter).getInvocations().stream()
+                .anyMatch(invocation -> invocation.getMethod().getName().equals("complete"))).count();
+        assertEquals(29, completed);
+    }
+
+    @Test
+    void closedSubscriberGivesBackItsSlotOnce() throws Exception {
+        AdminEventBus bus = bus(2, 5);
+        SseEmitter first = mock(SseEmitter.class);
+        bus.subscribe(first);
+        bus.subscribe(mock(SseEmitter.class));
+
+        ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+        verify(first).onCompletion(onCompletion.capture());
+        ArgumentCaptor<Runnable> onTimeout = ArgumentCaptor.forClass(Runnable.class);
+        verify(first).onTimeout(onTimeout.capture());
+        // A timed out emitter completes too
+        onTimeout.getValue().run();
+        onCompletion.getValue().run();
+        assertEquals(1L, bus.stats().get("streamSubscribers"));
+
+        SseEmitter third = mock(SseEmitter.class);
+        bus.subscribe(third);
+        SseEmitter fourth = mock(SseEmitter.class);
+        bus.subscribe(fourth);
+
+        verify(third, never()).complete();
+        verify(fourth).complete();
+        assertEquals(2L, bus.stats().get("streamSubscribers"));
+    }
+
+    @Test
+    void failedReadyEventFreesTheSlot() throws Exception {
+        AdminEventBus bus = bus(1, 5);
+        SseEmitter broken = mock(SseEmitter.class);
+        doThrow(new IOException("Broken pipe")).when(broken).send(any(SseEmitter.SseEventBuilder.class));
+
+        assertThrows(IOException.class, () -> bus.subscribe(broken));
+
+        assertEquals(0L, bus.stats().get("streamSubscribers"));
+    }
+
+    @Test
+    void slowSubscriberGetsBatchesMergedOnceItsQueueIsFull() throws Exception {
+        AdminEventBus bus = bus(5, 2);
+        SseEmitter emitter = mock(SseEmitter.class);
+        List<AdminStreamBatch> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch firstBatchSending = new CountDownLatch(1);
+        CountDownLatch clientCatchesUp = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            AdminStreamBatch batch = batchOf(invocation.getArgument(0));
+            if (batch != null) {
+                firstBatchSending.countDown();
+                assertTrue(clientCatchesUp.await(10, TimeUnit.SECONDS));
+                sent.add(batch);
+            }
+            return null;
+        }).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+        bus.subscribe(emitter);
+
+        // The first batch holds the sender, the next two wait, the last two are merged into the second of those
+        bus.orderPlaced(1L, 1L, new BigDecimal("10"));
+        bus.flush();
+        assertTrue(firstBatchSending.await(10, TimeUnit.SECONDS));
+        for (long orderId = 2; orderId <= 5; orderId++) {
+            bus.orderPlaced(orderId, 1L, new BigDecimal("10"));
+            bus.flush();
+        }
+        assertEquals(2L, bus.stats().get("streamBatchesMerged"));
+
+        clientCatchesUp.countDown();
+        for (int i = 0; i < 500 && bus.stats().get("streamBatchesSent") < 3; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(List.of(1L, 2L, 5L), sent.stream().map(AdminStreamBatch::sequence).toList());
+        AdminStreamBatch merged = sent.get(2);
+        assertEquals(2, merged.merged());
+        assertEquals(3, merged.ordersPlaced());
+        assertEquals(new BigDecimal("30"), merged.revenue());
+        assertEquals(List.of(3L, 4L, 5L), merged.orders().stream().map(AdminStreamBatch.OrderEvent::orderId).toList());
+    }
+
+    @Test
+    void emptyIntervalSendsNothing() throws Exception {
+        AdminEventBus bus = bus(5, 2);
+        SseEmitter emitter = mock(SseEmitter.class);
+        bus.subscribe(emitter);
+
+        bus.flush();
+        bus.stockAdjusted(Map.of());
+        bus.flush();
+
+        // Only the ready event
+        verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+        assertEquals(0L, bus.stats().get("streamBatchesSent"));
+    }
+
+    private AdminEventBus bus(int maxSubscribers, int maxQueued) {
+        AdminEventBus bus = new AdminEventBus(maxSubscribers, maxQueued, 1000);
+        buses.add(bus);
+        return bus;
+    }
+
+    private static AdminStreamBatch batchOf(SseEmitter.SseEventBuilder event) {
+        return event.build().stream()
+                .map(part -> part.getData())
+                .filter(AdminStreamBatch.class::isInstance)
+                .map(AdminStreamBatch.class::cast)
+                .findFirst().orElse(null);
+    }
+}
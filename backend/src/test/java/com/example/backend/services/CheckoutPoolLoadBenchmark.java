@@ -0,0 +1,146 @@
+package com.example.backend.services;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.dto.CheckoutRequest;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test for checkout against a slow payment gateway: concurrent checkouts at growing gateway
+ * latency, sampling the connection pool meanwhile. With payment authorized outside the transactions,
+ * active connections stay flat (only the two short transactions use one) while latency grows;
+ * if a connection were held across the gateway call, the pool would saturate and checkouts would queue.
+ *
+ * Needs the MySQL database (not run by surefire). Creates its own book, users and carts
+ * (email "loadtest-...@example.com") and deletes them and their orders afterwards. Run with:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.backend.services.CheckoutPoolLoadBenchmark
+ */
+public class CheckoutPoolLoadBenchmark {
+
+    private static final int THREADS = 40;
+    private static final int CHECKOUTS_PER_THREAD = 10;
+    private static final long[] LATENCIES_MS = {0, 50, 150, 300};
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(BackendApplication.class,
+                "--server.port=0", "--spring.jpa.show-sql=false");
+        try {
+            OrderService orderService = context.getBean(OrderService.class);
+            MockPaymentProcessor paymentProcessor = context.getBean(MockPaymentProcessor.class);
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+
+            cleanUp(jdbc);
+            jdbc.update("INSERT INTO books (isbn, title, author, price, quantity, year_published) "
+                    + "VALUES ('loadtest-1', 'Load Test', 'Benchmark', 10, 1000000, 2000)");
+            long bookId = jdbc.queryForObject("SELECT book_id FROM books WHERE isbn = 'loadtest-1'", Long.class);
+            List<long[]> users = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                jdbc.update("INSERT INTO users (email, first_name, last_name, hashed_password, is_admin) "
+                        + "VALUES (?, 'Load', 'Test', 'x', false)", "loadtest-" + i + "@example.com");
+                long userId = jdbc.queryForObject("SELECT user_id FROM users WHERE email = ?", Long.class,
+                        "loadtest-" + i + "@example.com");
+                jdbc.update("INSERT INTO cart (user_id) VALUES (?)", userId);
+                long cartId = jdbc.queryForObject("SELECT cart_id FROM cart WHERE user_id = ?", Long.class, userId);
+                users.add(new long[]{userId, cartId});
+            }
+
+            System.out.printf("pool size %d, %d concurrent checkouts%n",
+                    dataSource.getMaximumPoolSize(), THREADS);
+            for (long latency : LATENCIES_MS) {
+                paymentProcessor.setLatencyMillis(latency);
+                run(latency, orderService, jdbc, dataSource.getHikariPoolMXBean(), bookId, users);
+            }
+            cleanUp(jdbc);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void run(long latency, OrderService orderService, JdbcTemplate jdbc, HikariPoolMXBean pool,
+                            long bookId, List<long[]> users) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong samples = new AtomicLong();
+        AtomicLong activeSum = new AtomicLong();
+        AtomicLong activeMax = new AtomicLong();
+        AtomicLong waitingMax = new AtomicLong();
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                int active = pool.getActiveConnections();
+                samples.incrementAndGet();
+                activeSum.addAndGet(active);
+                activeMax.accumulateAndGet(active, Math::max);
+                waitingMax.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+                LockSupport.parkNanos(2_000_000);
+            }
+        });
+        sampler.start();
+
+        AtomicLong completed = new AtomicLong();
+        AtomicLong declined = new AtomicLong();
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>();
+        for (long[] user : users) {
+            workers.add(threads.submit(() -> {
+                for (int i = 0; i < CHECKOUTS_PER_THREAD; i++) {
+                    jdbc.update("INSERT INTO cart_items (cart_id, book_id, quantity) VALUES (?, ?, 1)", user[1], bookId);
+                    try {
+                        orderService.checkout(request(user[0]));
+                        completed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // The mock gateway declines every third payment, the cart item stays for the next try
+                        declined.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        threads.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        sampler.join();
+
+        System.out.printf("gateway %3d ms: %6.1f checkouts/s  active connections avg %.1f max %d  "
+                        + "max threads waiting %d  (%d paid, %d declined)%n",
+                latency, (completed.get() + declined.get()) / seconds,
+                (double) activeSum.get() / Math.max(1, samples.get()), activeMax.get(), waitingMax.get(),
+                completed.get(), declined.get());
+    }
+
+    private static CheckoutRequest request(long userId) {
+        CheckoutRequest request = new CheckoutRequest();
+        request.setUserId(userId);
+        request.setTemporaryAddress(new CheckoutRequest.TemporaryAddressInfo(
+                "1 Main St", "Toronto", "ON", "M1M 1M1", "Canada"));
+        request.setTemporaryPayment(new CheckoutRequest.TemporaryPaymentInfo(
+                "4111111111111111", "VISA", "123", "12", "2030", "Load Test"));
+        return request;
+    }
+
+    private static void cleanUp(JdbcTemplate jdbc) {
+        String users = "SELECT user_id FROM users WHERE email LIKE 'loadtest-%'";
+        String orders = "SELECT order_id FROM orders WHERE user_id IN (" + users + ")";
+        jdbc.update("DELETE FROM payments WHERE order_id IN (" + orders + ")");
+        jdbc.update("DELETE FROM order_items WHERE order_id IN (" + orders + ")");
+        jdbc.update("DELETE FROM orders WHERE user_id IN (" + users + ")");
+        jdbc.update("DELETE FROM cart_items WHERE cart_id IN (SELECT cart_id FROM cart WHERE user_id IN (" + users + "))");
+        jdbc.update("DELETE FROM cart WHERE user_id IN (" + users + ")");
+        jdbc.update("DELETE FROM users WHERE email LIKE 'loadtest-%'");
+        jdbc.update("DELETE FROM books WHERE isbn = 'loadtest-1'");
+    }
+}
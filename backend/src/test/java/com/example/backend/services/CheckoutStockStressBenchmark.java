@@ -0,0 +1,156 @@
+package com.example.backend.services;
+
+import com.example.backend.cache.CatalogCache;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Concurrency stress test for the checkout stock step: many threads buy the same few books until
+ * they sell out, once with the old read-check-write and once with StockService's conditional updates.
+ * Reports checkouts/sec and oversold copies (copies sold that were never taken out of stock),
+ * and fails if the conditional updates oversold anything.
+ *
+ * The read-check-write run is the checkout before StockService, in JDBC: OrderService read each
+ * cart book's quantity with the cart, checked it in Java, called the payment processor and then
+ * saved the book with quantity - n, overwriting whatever other checkouts had written meanwhile.
+ * StockService's own behaviour (line order, short books, hot books, release) is covered without
+ * a database by StockServiceTest; this class only measures the two under real row locks.
+ *
+ * Needs the MySQL database (not run by surefire). Inserts its own books (isbn "stress-...") and
+ * deletes them afterwards. Run with:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.backend.services.CheckoutStockStressBenchmark \
+ *       -Ddb.url=jdbc:mysql://localhost:3306/bookstore -Ddb.user=root -Ddb.pass=...
+ */
+public class CheckoutStockStressBenchmark {
+
+    private static final int BOOKS = 5;
+    private static final int STOCK = 2_000;
+    private static final int THREADS = 64;
+
+    // Stand-in for the payment call between the stock check and the stock write
+    private static final long PAYMENT_MICROS = 500;
+
+    public static void main(String[] args) throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("db.url", "jdbc:mysql://localhost:3306/bookstore?allowPublicKeyRetrieval=true"
+                        + "&serverTimezone=UTC&rewriteBatchedStatements=true"),
+                System.getProperty("db.user", "root"),
+                System.getProperty("db.pass", ""));
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        CatalogCache catalogCache = new CatalogCache(1 << 20);
+        HotStockService hotStockService = new HotStockService(jdbc, new NamedParameterJdbcTemplate(jdbc), tx,
+                catalogCache, false, List.of());
+        // No subscribers and no flush: stock events just add up per book
+        StockService stockService = new StockService(jdbc, catalogCache, hotStockService, new AdminEventBus(0, 1, 1000));
+
+        run("read-check-write", jdbc, tx, cart -> {
+            // Baseline: read the quantity, check it in Java, pay, then write the computed value
+            Map<Long, Integer> left = new HashMap<>();
+            for (Map.Entry<Long, Integer> line : cart.entrySet()) {
+                int quantity = jdbc.queryForObject("SELECT quantity FROM books WHERE book_id = ?", Integer.class, line.getKey());
+                if (quantity < line.getValue()) {
+                    throw new IllegalStateException("Insufficient stock");
+                }
+                left.put(line.getKey(), quantity - line.getValue());
+            }
+            pay();
+            for (Map.Entry<Long, Integer> line : left.entrySet()) {
+                jdbc.update("UPDATE books SET quantity = ? WHERE book_id = ?", line.getValue(), line.getKey());
+            }
+        });
+
+        long oversold = run("conditional update", jdbc, tx, cart -> {
+            pay();
+            stockService.reserve(cart);
+        });
+        if (oversold != 0) {
+            throw new IllegalStateException("Conditional updates oversold " + oversold + " copies");
+        }
+    }
+
+    private static long run(String name, JdbcTemplate jdbc, TransactionTemplate tx, Checkout checkout) throws Exception {
+        List<Long> ids = createBooks(jdbc);
+        AtomicLong sold = new AtomicLong();
+        AtomicLong checkouts = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong deadlocks = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                Random random = ThreadLocalRandom.current();
+                // Stop after a run of sold-out carts, the books are (nearly) gone
+                int misses = 0;
+                while (misses < 50) {
+                    Map<Long, Integer> cart = new HashMap<>();
+                    for (int i = 0, lines = 1 + random.nextInt(3); i < lines; i++) {
+                        cart.merge(ids.get(random.nextInt(ids.size())), 1 + random.nextInt(2), Integer::sum);
+                    }
+                    try {
+                        tx.executeWithoutResult(status -> checkout.run(cart));
+                        checkouts.incrementAndGet();
+                        sold.addAndGet(cart.values().stream().mapToInt(Integer::intValue).sum());
+                        misses = 0;
+                    } catch (PessimisticLockingFailureException e) {
+                        deadlocks.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        rejected.incrementAndGet();
+                        misses++;
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        pool.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long remaining = 0;
+        for (Long id : ids) {
+            remaining += jdbc.queryForObject("SELECT quantity FROM books WHERE book_id = ?", Integer.class, id);
+        }
+        // Lost updates: copies sold whose decrement was overwritten by another checkout
+        long oversold = sold.get() - ((long) BOOKS * STOCK - remaining);
+        System.out.printf("%-20s %,8.0f checkouts/s  %,d checkouts  %,d copies sold of %,d  %,d left  "
+                        + "%,d oversold  %,d rejected  %,d deadlocks%n",
+                name, checkouts.get() / seconds, checkouts.get(), sold.get(), BOOKS * STOCK, remaining,
+                oversold, rejected.get(), deadlocks.get());
+        jdbc.update("DELETE FROM books WHERE isbn LIKE 'stress-%'");
+        return oversold;
+    }
+
+    private static List<Long> createBooks(JdbcTemplate jdbc) {
+        jdbc.update("DELETE FROM books WHERE isbn LIKE 'stress-%'");
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            String isbn = "stress-" + i;
+            jdbc.update("INSERT INTO books (isbn, title, author, price, quantity, year_published) VALUES (?, ?, ?, 10, ?, 2000)",
+                    isbn, "Stress " + i, "Benchmark", STOCK);
+            ids.add(jdbc.queryForObject("SELECT book_id FROM books WHERE isbn = ?", Long.class, isbn));
+        }
+        return ids;
+    }
+
+    private static void pay() {
+        LockSupport.parkNanos(PAYMENT_MICROS * 1000);
+    }
+
+    private interface Checkout {
+        void run(Map<Long, Integer> cart);
+    }
+}
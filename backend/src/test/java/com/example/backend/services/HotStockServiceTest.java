@@ -0,0 +1,295 @@
+package com.example.backend.services;
+
+import com.example.backend.cache.CatalogCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// HotStockService against JdbcTemplates whose statements are applied to in-memory books and order_items
+// tables. A checkout transaction is a transaction synchronization scope completed by hand.
+class HotStockServiceTest {
+
+    // books.quantity by book id
+    private final Map<Long, Integer> books = new ConcurrentHashMap<>();
+    // order_items with stock_pending set, by order item id: (book id, quantity)
+    private final SortedMap<Long, long[]> pendingItems = new ConcurrentSkipListMap<>();
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private HotStockService hotStockService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        books.put(1L, 10);
+        books.put(2L, 5);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+
+        // Committed quantity minus pending items
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), any(Object[].class))).thenAnswer(invocation -> {
+            Long bookId = invocation.getArgument(2);
+            Integer quantity = books.get(bookId);
+            if (quantity == null) {
+                return List.of();
+            }
+            long pending = pendingItems.values().stream().filter(item -> item[0] == bookId).mapToLong(item -> item[1]).sum();
+            return List.of((int) (quantity - pending));
+        });
+
+        // SELECT order_item_id, book_id, quantity ... WHERE stock_pending ORDER BY order_item_id LIMIT ?
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+            RowMapper<long[]> mapper = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            List<long[]> rows = new ArrayList<>();
+            int i = 0;
+            for (Map.Entry<Long, long[]> item : pendingItems.entrySet()) {
+                if (i == limit) {
+                    break;
+                }
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn(item.getKey());
+                when(rs.getLong(2)).thenReturn(item.getValue()[0]);
+                when(rs.getInt(3)).thenReturn((int) item.getValue()[1]);
+                rows.add(mapper.mapRow(rs, i++));
+            }
+            return rows;
+        });
+
+        // UPDATE books SET quantity = quantity - ? WHERE book_id = ?
+        doAnswer(invocation -> {
+            Collection<?> lines = invocation.getArgument(1);
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            for (Object line : lines) {
+                long[] params = new long[2];
+                PreparedStatement ps = mock(PreparedStatement.class);
+                doAnswer(set -> params[(int) set.getArgument(0) - 1] = (int) set.getArgument(1))
+                        .when(ps).setInt(anyInt(), anyInt());
+                doAnswer(set -> params[(int) set.getArgument(0) - 1] = set.getArgument(1))
+                        .when(ps).setLong(anyInt(), anyLong());
+                setter.setValues(ps, line);
+                books.merge(params[1], (int) -params[0], Integer::sum);
+            }
+            return new int[][]{new int[lines.size()]};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+
+        // UPDATE order_items SET stock_pending = FALSE WHERE order_item_id IN (:ids)
+        when(namedJdbcTemplate.update(anyString(), anyMap())).thenAnswer(invocation -> {
+            Map<String, ?> params = invocation.getArgument(1);
+            Collection<Long> ids = (Collection<Long>) params.get("ids");
+            ids.forEach(pendingItems::remove);
+            return ids.size();
+        });
+
+        hotStockService = service(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void concurrentTakesNeverGoBelowZero() throws Exception {
+        hotStockService.flag(1L);
+        AtomicInteger taken = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            workers.add(pool.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    try {
+                        checkout(true, () -> hotStockService.reserve(Map.of(1L, 3)));
+                        taken.addAndGet(3);
+                    } catch (StockService.InsufficientStockException e) {
+                        refused.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(10, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(9, taken.get());
+        assertEquals(400 - 3, refused.get());
+        assertEquals(Map.of(1L, 1), hotStockService.available());
+    }
+
+    @Test
+    void rollbackPutsCopiesBackAndCommitKeepsThemTaken() {
+        hotStockService.flag(1L);
+
+        checkout(false, () -> assertEquals(Map.of(1L, 4), hotStockService.reserve(Map.of(1L, 4))));
+        assertEquals(Map.of(1L, 10), hotStockService.available());
+
+        checkout(true, () -> hotStockService.reserve(Map.of(1L, 4)));
+        assertEquals(Map.of(1L, 6), hotStockService.available());
+    }
+
+    @Test
+    void shortHotBookTakesNothingFromTheOthers() {
+        hotStockService.flag(1L);
+        hotStockService.flag(2L);
+
+        StockService.InsufficientStockException e = assertThrows(StockService.InsufficientStockException.class,
+                () -> checkout(true, () -> hotStockService.reserve(Map.of(1L, 2, 2L, 6))));
+
+        assertEquals(List.of(2L), e.getBookIds());
+        assertEquals(Map.of(1L, 10, 2L, 5), hotStockService.available());
+    }
+
+    @Test
+    void booksThatAreNotHotAreLeftToTheDatabase() {
+        hotStockService.flag(1L);
+
+        Map<Long, Integer> taken = checkout(true, () -> hotStockService.reserve(Map.of(1L, 1, 2L, 1)));
+
+        assertEquals(Map.of(1L, 1), taken);
+    }
+
+    @Test
+    void releaseAfterCommitPutsCopiesBack() {
+        hotStockService.flag(1L);
+        checkout(true, () -> hotStockService.reserve(Map.of(1L, 4)));
+
+        hotStockService.release(Map.of(1L, 4, 2L, 1));
+
+        assertEquals(Map.of(1L, 10), hotStockService.available());
+    }
+
+    @Test
+    void refreshKeepsCopiesOfCheckoutsStillRunning() {
+        hotStockService.flag(1L);
+        TransactionSynchronizationManager.initSynchronization();
+        hotStockService.reserve(Map.of(1L, 2));
+        List<TransactionSynchronization> running = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // An admin sets the stock to 50 while the checkout holds 2 copies
+        books.put(1L, 50);
+        hotStockService.refresh(List.of(1L, 2L));
+        assertEquals(Map.of(1L, 48), hotStockService.available());
+
+        running.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(Map.of(1L, 48), hotStockService.available());
+    }
+
+    @Test
+    void flushSubtractsEachPendingItemOnce() {
+        pendingItems.put(1L, new long[]{1L, 2});
+        pendingItems.put(2L, new long[]{1L, 1});
+        pendingItems.put(3L, new long[]{2L, 4});
+
+        assertEquals(3, hotStockService.flush());
+        assertEquals(0, hotStockService.flush());
+
+        assertEquals(7, books.get(1L));
+        assertEquals(1, books.get(2L));
+        assertTrue(pendingItems.isEmpty());
+    }
+
+    @Test
+    void flushAppliesMoreThanOneBatch() {
+        books.put(1L, HotStockService.FLUSH_BATCH + 10);
+        for (long id = 1; id <= HotStockService.FLUSH_BATCH + 1; id++) {
+            pendingItems.put(id, new long[]{1L, 1});
+        }
+
+        assertEquals(HotStockService.FLUSH_BATCH + 1, hotStockService.flush());
+
+        assertEquals(9, books.get(1L));
+    }
+
+    @Test
+    void counterOfFlaggedBookExcludesPendingItems() {
+        pendingItems.put(1L, new long[]{1L, 3});
+
+        hotStockService.flag(1L);
+
+        assertEquals(Map.of(1L, 7), hotStockService.available());
+    }
+
+    @Test
+    void startupAppliesLeftoverPendingItemsThenFlagsBooks() {
+        // A previous run committed hot reservations and stopped before flushing them
+        pendingItems.put(1L, new long[]{1L, 3});
+        pendingItems.put(2L, new long[]{2L, 1});
+        HotStockService restarted = service(List.of(1L));
+
+        restarted.start();
+
+        assertEquals(7, books.get(1L));
+        assertEquals(4, books.get(2L));
+        assertTrue(pendingItems.isEmpty());
+        assertEquals(Map.of(1L, 7), restarted.available());
+    }
+
+    @Test
+    void disabledModeRefusesToFlag() {
+        HotStockService disabled = new HotStockService(jdbcTemplate, namedJdbcTemplate, transactionTemplate,
+                new CatalogCache(1 << 20), false, List.of());
+
+        assertThrows(IllegalStateException.class, () -> disabled.flag(1L));
+        assertEquals(Map.of(), disabled.reserve(Map.of(1L, 1)));
+    }
+
+    private HotStockService service(List<Long> startupBookIds) {
+        return new HotStockService(jdbcTemplate, namedJdbcTemplate, transactionTemplate, new CatalogCache(1 << 20),
+                true, startupBookIds);
+    }
+
+    // Runs the reservation in a checkout transaction that commits or rolls back
+    private static <T> T checkout(boolean commit, Callable<T> reservation) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            T result = reservation.call();
+            complete(commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+            return result;
+        } catch (RuntimeException e) {
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void checkout(boolean commit, Runnable reservation) {
+        checkout(commit, () -> {
+            reservation.run();
+            return null;
+        });
+    }
+
+    private static void complete(int status) {
+        for (TransactionSynchronization sync : TransactionSynchronizationManager.getSynchronizations()) {
+            sync.afterCompletion(status);
+        }
+    }
+}
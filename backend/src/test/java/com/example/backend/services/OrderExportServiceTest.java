@@ -0,0 +1,194 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.SalesHistoryFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// OrderExportService over a mocked DataSource whose result set returns the given joined rows, one per
+// order item (or one with null item columns for an order without items), ordered as the query orders them.
+class OrderExportServiceTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 3, 1, 12, 30);
+
+    // Configured as Spring Boot configures the application's
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // Bytes written to out when each row was asked for
+    private final List<Integer> writtenAtRow = new ArrayList<>();
+    private String sql;
+    private OrderExportService exportService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            sql = invocation.getArgument(0);
+            return statement;
+        });
+        when(statement.executeQuery()).thenAnswer(invocation -> resultSet());
+        exportService = new OrderExportService(dataSource, objectMapper);
+    }
+
+    @Test
+    void ndjsonIsOneObjectPerLineWithItsItems() throws Exception {
+        item(1L, "Dune", 2, "9.99");
+        item(1L, "Emma", 1, "5.00");
+        noItems(2L);
+        item(3L, "Dune", 1, "9.99");
+
+        long written = exportService.export(OrderExportService.Format.NDJSON, SalesHistoryFilter.none(), out);
+
+        assertEquals(3, written);
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertTrue(text.endsWith("\n"));
+        List<String> lines = List.of(text.split("\n"));
+        assertEquals(3, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals(1, first.get("orderId").asLong());
+        assertEquals("2025-03-01T12:30:00", first.get("createdAt").asText());
+        assertEquals(List.of("Dune", "Emma"), first.get("items").findValuesAsText("title"));
+        assertEquals(2, first.get("items").get(0).get("quantity").asInt());
+        JsonNode second = objectMapper.readTree(lines.get(1));
+        assertEquals(2, second.get("orderId").asLong());
+        assertTrue(second.get("items").isArray());
+        assertEquals(0, second.get("items").size());
+        assertEquals(3, objectMapper.readTree(lines.get(2)).get("orderId").asLong());
+    }
+
+    @Test
+    void csvHasOneRowPerOrderWithItemAndUnitCounts() throws Exception {
+        item(1L, "Dune", 2, "9.99");
+        item(1L, "Emma", 1, "5.00");
+        noItems(2L);
+
+        exportService.export(OrderExportService.Format.CSV, SalesHistoryFilter.none(), out);
+
+        assertEquals(List.of(
+                "order_id,created_at,user_id,customer_email,status,total_price,items,units,shipping_street,"
+                        + "shipping_city,shipping_province,shipping_postal_code,shipping_country",
+                "1,2025-03-01T12:30,7,ann@example.com,PAID,24.98,2,3,1 Main St,Toronto,ON,M5V 1A1,Canada",
+                "2,2025-03-01T12:30,7,ann@example.com,PAID,24.98,0,0,1 Main St,Toronto,ON,M5V 1A1,Canada"),
+                List.of(out.toString(StandardCharsets.UTF_8).split("\n")));
+    }
+
+    @Test
+    void csvQuotesCommasQuotesAndNewlines() throws Exception {
+        noItems(1L);
+        rows.get(0).put("shipping_street", "Unit 4, 12 King St");
+        rows.get(0).put("shipping_city", "The \"Old\" Town");
+        rows.get(0).put("shipping_province", "Line 1\nLine 2");
+        rows.get(0).put("shipping_postal_code", "A\r\nB");
+
+        exportService.export(OrderExportService.Format.CSV, SalesHistoryFilter.none(), out);
+
+        String row = out.toString(StandardCharsets.UTF_8).split("\n", 2)[1];
+        assertEquals("1,2025-03-01T12:30,7,ann@example.com,PAID,24.98,0,0,\"Unit 4, 12 King St\","
+                + "\"The \"\"Old\"\" Town\",\"Line 1\nLine 2\",\"A\r\nB\",Canada\n", row);
+    }
+
+    @Test
+    void ordersReachTheClientWhileLaterRowsAreStillBeingRead() throws Exception {
+        for (long orderId = 1; orderId <= 2500; orderId++) {
+            item(orderId, "Dune", 1, "9.99");
+        }
+
+        long written = exportService.export(OrderExportService.Format.NDJSON, SalesHistoryFilter.none(), out);
+
+        assertEquals(2500, written);
+        assertEquals(0, writtenAtRow.get(0));
+        // Halfway through the rows, part of the output has already been written, not all of it
+        assertTrue(writtenAtRow.get(1250) > 0);
+        assertTrue(writtenAtRow.get(1250) < out.size() * 3 / 4);
+    }
+
+    @Test
+    void filtersBecomeConditionsOfTheOneQuery() throws Exception {
+        noItems(1L);
+
+        exportService.export(OrderExportService.Format.NDJSON, SalesHistoryFilter.byCustomer(7L), out);
+
+        assertTrue(sql.replaceAll("\\s+", " ").endsWith("WHERE 1 = 1 AND o.user_id = ? ORDER BY o.order_id, oi.order_item_id"), sql);
+    }
+
+    private void item(Long orderId, String title, int quantity, String price) {
+        Map<String, Object> row = order(orderId);
+        row.put("order_item_id", (long) rows.size() + 100);
+        row.put("book_id", (long) title.length());
+        row.put("isbn", "978-" + title.length());
+        row.put("title", title);
+        row.put("quantity", quantity);
+        row.put("price", new BigDecimal(price));
+        rows.add(row);
+    }
+
+    // LEFT JOIN row of an order without items
+    private void noItems(Long orderId) {
+        rows.add(order(orderId));
+    }
+
+    private static Map<String, Object> order(Long orderId) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("order_id", orderId);
+        row.put("created_at", Timestamp.valueOf(CREATED));
+        row.put("user_id", 7L);
+        row.put("email", "ann@example.com");
+        row.put("status", "PAID");
+        row.put("total_price", new BigDecimal("24.98"));
+        row.put("shipping_street", "1 Main St");
+        row.put("shipping_city", "Toronto");
+        row.put("shipping_province", "ON");
+        row.put("shipping_postal_code", "M5V 1A1");
+        row.put("shipping_country", "Canada");
+        return row;
+    }
+
+    // Forward-only over rows, by column label
+    private ResultSet resultSet() throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int[] position = {-1};
+        boolean[] wasNull = {false};
+        when(rs.next()).thenAnswer(invocation -> {
+            position[0]++;
+            writtenAtRow.add(out.size());
+            return position[0] < rows.size();
+        });
+        Answer<Object> column = invocation -> {
+            Object value = rows.get(position[0]).get(invocation.<String>getArgument(0));
+            wasNull[0] = value == null;
+            String method = invocation.getMethod().getName();
+            if (value == null) {
+                return method.equals("getLong") ? 0L : method.equals("getInt") ? 0 : null;
+            }
+            return value;
+        };
+        when(rs.getLong(anyString())).thenAnswer(column);
+        when(rs.getInt(anyString())).thenAnswer(column);
+        when(rs.getString(anyString())).thenAnswer(column);
+        when(rs.getBigDecimal(anyString())).thenAnswer(column);
+        when(rs.getTimestamp(anyString())).thenAnswer(column);
+        when(rs.wasNull()).thenAnswer(invocation -> wasNull[0]);
+        return rs;
+    }
+}
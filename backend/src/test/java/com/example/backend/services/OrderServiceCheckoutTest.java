@@ -0,0 +1,213 @@
+package com.example.backend.services;
+
+import com.example.backend.entity.*;
+import com.example.backend.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Phases 2 and 3 of checkout and the stale payment sweep, with the repositories and the gateway mocked
+class OrderServiceCheckoutTest {
+
+    private final OrderRepo orderRepo = mock(OrderRepo.class);
+    private final PaymentMethodRepository paymentMethodRepository = mock(PaymentMethodRepository.class);
+    private final PaymentGatewayClient paymentGatewayClient = mock(PaymentGatewayClient.class);
+    private final StockService stockService = mock(StockService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private OrderService orderService;
+
+    private Order order;
+    private final OrderService.PendingCheckout pending = new OrderService.PendingCheckout(
+            1L, 7L, new BigDecimal("20.00"), Map.of(3L, 2), List.of(), 5L, "tok_5");
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Callbacks run right away, as if each were its own transaction
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Consumer.class).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        orderService = new OrderService(orderRepo, mock(UserRepo.class), mock(CartRepo.class), mock(PaymentRepo.class),
+                paymentMethodRepository, mock(AddressRepo.class), mock(BookRepo.class), mock(OrderItemRepo.class),
+                paymentGatewayClient, stockService, mock(SalesRollupService.class), mock(SalesHistoryQueries.class),
+                new AdminEventBus(0, 1, 1000), transactionTemplate, 60_000);
+
+        order = order(1L, 3L, 2);
+        when(orderRepo.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepo.findStatusByOrderId(1L)).thenAnswer(invocation -> Optional.of(order.getStatus()));
+        when(orderRepo.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(paymentMethodRepository.getReferenceById(5L)).thenReturn(new PaymentMethod());
+        when(paymentGatewayClient.authorizeToken(anyString(), anyString(), anyDouble(), anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void acceptedPaymentIsAuthorizedUnderOrderReference() {
+        orderService.completeCheckout(null, pending, 0);
+
+        assertEquals("PAID", order.getStatus());
+        verify(paymentGatewayClient).authorizeToken("order-1", "tok_5", 20.0, 0);
+        verify(paymentGatewayClient, never()).voidPayment(anyString());
+    }
+
+    @Test
+    void declinedPaymentReleasesStock() {
+        when(paymentGatewayClient.authorizeToken(anyString(), anyString(), anyDouble(), anyLong())).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> orderService.completeCheckout(null, pending, 0));
+
+        assertEquals("PAYMENT_FAILED", order.getStatus());
+        verify(stockService).release(Map.of(3L, 2));
+    }
+
+    @Test
+    void finalizeRetriedAfterTransientFailure() {
+        failFirstSave(new QueryTimeoutException("Lock wait timeout"));
+
+        orderService.completeCheckout(null, pending, 0);
+
+        assertEquals("PAID", order.getStatus());
+        verify(paymentGatewayClient, never()).voidPayment(anyString());
+    }
+
+    @Test
+    void acceptedPaymentIsVoidedWhenOrderCannotBeFinalized() {
+        failFirstSave(new IllegalStateException("Database gone"));
+
+        assertThrows(IllegalStateException.class, () -> orderService.completeCheckout(null, pending, 0));
+
+        verify(paymentGatewayClient).voidPayment("order-1");
+        assertEquals("PAYMENT_FAILED", order.getStatus());
+        verify(stockService).release(Map.of(3L, 2));
+    }
+
+    @Test
+    void paymentAcceptedAfterSweepExpiredOrderIsVoided() {
+        // The sweep voids and compensates the order while its payment waits for the gateway, which then accepts
+        when(paymentGatewayClient.authorizeToken(anyString(), anyString(), anyDouble(), anyLong())).thenAnswer(invocation -> {
+            order.setStatus("PAYMENT_FAILED");
+            return true;
+        });
+
+        assertThrows(IllegalStateException.class, () -> orderService.completeCheckout(null, pending, 0));
+
+        verify(paymentGatewayClient).voidPayment("order-1");
+        assertEquals("PAYMENT_FAILED", order.getStatus());
+        verify(stockService, never()).release(any());
+    }
+
+    @Test
+    void failedVoidOfExpiredOrderIsRetriedAndReported() {
+        when(paymentGatewayClient.authorizeToken(anyString(), anyString(), anyDouble(), anyLong())).thenAnswer(invocation -> {
+            order.setStatus("PAYMENT_FAILED");
+            return true;
+        });
+        doThrow(new PaymentGateway.GatewayException("Payment gateway timed out"))
+                .when(paymentGatewayClient).voidPayment(anyString());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> orderService.completeCheckout(null, pending, 0));
+
+        verify(paymentGatewayClient, times(3)).voidPayment("order-1");
+        assertInstanceOf(PaymentGateway.GatewayException.class, e.getSuppressed()[0]);
+    }
+
+    @Test
+    void unansweredPaymentKeepsStockAsPaymentUnknown() {
+        when(paymentGatewayClient.authorizeToken(anyString(), anyString(), anyDouble(), anyLong()))
+                .thenThrow(new PaymentGateway.OutcomeUnknownException("Payment gateway timed out"));
+
+        assertThrows(PaymentGateway.OutcomeUnknownException.class, () -> orderService.completeCheckout(null, pending, 0));
+
+        assertEquals("PAYMENT_UNKNOWN", order.getStatus());
+        verify(stockService, never()).release(any());
+        verify(paymentGatewayClient, never()).voidPayment(anyString());
+    }
+
+    @Test
+    void paymentUnknownOrderIsVoidedThenCompensated() {
+        order.setStatus("PAYMENT_UNKNOWN");
+        when(orderRepo.findIdsByStatusInCreatedBefore(any(), any())).thenReturn(List.of(1L));
+
+        orderService.expireStalePayments();
+
+        verify(paymentGatewayClient).voidPayment("order-1");
+        assertEquals("PAYMENT_FAILED", order.getStatus());
+        verify(stockService).release(Map.of(3L, 2));
+    }
+
+    @Test
+    void staleOrderIsVoidedThenCompensated() {
+        when(orderRepo.findIdsByStatusInCreatedBefore(any(), any())).thenReturn(List.of(1L));
+
+        orderService.expireStalePayments();
+
+        verify(paymentGatewayClient).voidPayment("order-1");
+        assertEquals("PAYMENT_FAILED", order.getStatus());
+        verify(stockService).release(Map.of(3L, 2));
+    }
+
+    @Test
+    void staleOrderKeepsStockWhenVoidFails() {
+        when(orderRepo.findIdsByStatusInCreatedBefore(any(), any())).thenReturn(List.of(1L));
+        doThrow(new PaymentGateway.GatewayException("Payment gateway timed out"))
+                .when(paymentGatewayClient).voidPayment(anyString());
+
+        orderService.expireStalePayments();
+
+        assertEquals("PENDING_PAYMENT", order.getStatus());
+        verify(stockService, never()).release(any());
+    }
+
+    @Test
+    void paidOrderIsNeverVoided() {
+        order.setStatus("PAID");
+        when(orderRepo.findIdsByStatusInCreatedBefore(any(), any())).thenReturn(List.of(1L));
+
+        orderService.expireStalePayments();
+
+        verify(paymentGatewayClient, never()).voidPayment(anyString());
+        verify(stockService, never()).release(any());
+    }
+
+    // The first save throws and, like a rollback, leaves the order as it was stored
+    private void failFirstSave(RuntimeException error) {
+        doAnswer(invocation -> {
+            order.setStatus("PENDING_PAYMENT");
+            throw error;
+        }).doAnswer(invocation -> invocation.getArgument(0)).when(orderRepo).save(any());
+    }
+
+    private static Order order(Long orderId, Long bookId, int quantity) {
+        User user = new User();
+        user.setUserId(7L);
+        Book book = new Book();
+        book.setBookId(bookId);
+        Order order = new Order();
+        order.setOrderId(orderId);
+        order.setUser(user);
+        order.setStatus("PENDING_PAYMENT");
+        order.setTotalPrice(new BigDecimal("20.00"));
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setBook(book);
+        item.setQuantity(quantity);
+        order.getOrderItemList().add(item);
+        return order;
+    }
+}
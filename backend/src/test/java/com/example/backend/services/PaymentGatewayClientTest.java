@@ -0,0 +1,97 @@
+package com.example.backend.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// One bulkhead permit, held by a gateway call that waits for the test to let it answer
+class PaymentGatewayClientTest {
+
+    private final CountDownLatch answer = new CountDownLatch(1);
+    private final CountDownLatch calling = new CountDownLatch(1);
+    private final PaymentGatewayClient client = new PaymentGatewayClient(new HeldGateway(), 1, 5_000, 20, 10, 50, 10_000);
+
+    @AfterEach
+    void tearDown() {
+        answer.countDown();
+        client.shutdown();
+    }
+
+    @Test
+    void callBeyondBulkheadIsRefusedRightAwayWithoutWait() throws Exception {
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> client.authorizeToken("order-1", "tok", 10, 0));
+        assertTrue(calling.await(5, TimeUnit.SECONDS));
+
+        assertThrows(PaymentGateway.GatewayException.class, () -> client.authorizeToken("order-2", "tok", 10, 0));
+        assertEquals(1L, client.stats().get("paymentRejectedBusy"));
+
+        answer.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void callBeyondBulkheadWaitsForPermit() throws Exception {
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> client.authorizeToken("order-1", "tok", 10, 0));
+        assertTrue(calling.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> client.authorizeToken("order-2", "tok", 10, 5_000));
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+
+        answer.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertEquals(0L, client.stats().get("paymentRejectedBusy"));
+    }
+
+    @Test
+    void waitEndsWithRefusalWhenNoPermitFrees() throws Exception {
+        CompletableFuture.supplyAsync(() -> client.authorizeToken("order-1", "tok", 10, 0));
+        assertTrue(calling.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        assertThrows(PaymentGateway.GatewayException.class, () -> client.authorizeToken("order-2", "tok", 10, 200));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void missedDeadlineIsOutcomeUnknown() {
+        PaymentGatewayClient shortDeadline = new PaymentGatewayClient(new HeldGateway(), 1, 100, 20, 10, 50, 10_000);
+        try {
+            assertThrows(PaymentGateway.OutcomeUnknownException.class,
+                    () -> shortDeadline.authorizeToken("order-1", "tok", 10, 0));
+            assertEquals(1L, shortDeadline.stats().get("paymentTimedOut"));
+        } finally {
+            shortDeadline.shutdown();
+        }
+    }
+
+    private class HeldGateway implements PaymentGateway {
+
+        @Override
+        public boolean processPayment(String reference, String cardNumber, String cardBrand, String cvv,
+                                      String expiryMonth, String expiryYear, double amount) {
+            return processPaymentWithToken(reference, cardNumber, amount);
+        }
+
+        @Override
+        public boolean processPaymentWithToken(String reference, String paymentToken, double amount) {
+            calling.countDown();
+            try {
+                return answer.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GatewayException("Interrupted");
+            }
+        }
+
+        @Override
+        public void voidPayment(String reference) {
+        }
+    }
+}
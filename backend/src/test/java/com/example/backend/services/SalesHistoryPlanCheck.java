@@ -0,0 +1,226 @@
+package com.example.backend.services;
+
+import com.example.backend.BackendApplication;
+import com.example.backend.dto.SalesHistoryFilter;
+import com.mysql.cj.MysqlConnection;
+import com.mysql.cj.Query;
+import com.mysql.cj.interceptors.QueryInterceptor;
+import com.mysql.cj.log.Log;
+import com.mysql.cj.protocol.Resultset;
+import com.mysql.cj.protocol.ServerSession;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Query plan check for the sales history: runs OrderService.getSalesHistory with each kind of filter
+ * combination, captures the SQL actually sent to MySQL (page, count and order load queries, parameters inlined) and
+ * EXPLAINs it. Fails if a query that has an indexed filter scans a whole table, sorts the page
+ * in a filesort, uses a temporary table (a DISTINCT or GROUP BY crept in), or does not use the
+ * expected index.
+ *
+ * Needs the MySQL database with a realistic number of orders (not run by surefire): on a few rows
+ * the optimizer rightly prefers full scans. Only reads. Run with:
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.example.backend.services.SalesHistoryPlanCheck \
+ *       -Ddb.url=jdbc:mysql://localhost:3306/bookstore -Ddb.user=root -Ddb.pass=...
+ */
+public class SalesHistoryPlanCheck {
+
+    // A query of the sales history: its first table and that table's alias
+    private static final Pattern HISTORY_QUERY = Pattern.compile("(?i)^\\s*select\\b.*?\\bfrom (orders|order_items) (\\w+)");
+
+    /**
+     * @param table Table the paging query reads from first: orders, or order_items for the id-first product pages
+     * @param key Index that table must be read through, or null for any
+     * @param fullScan Whether a table may be read whole (no indexed filter)
+     * @param filesort Whether the page may be sorted in a filesort
+     */
+    private record Case(String name, SalesHistoryFilter filter, String table, String key, boolean fullScan,
+                        boolean filesort) {
+    }
+
+    public static void main(String[] args) {
+        String url = System.getProperty("db.url", "jdbc:mysql://localhost:3306/bookstore?allowPublicKeyRetrieval=true"
+                + "&serverTimezone=UTC&rewriteBatchedStatements=true");
+        url += (url.contains("?") ? "&" : "?") + "queryInterceptors=" + SqlCapture.class.getName();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.username=" + System.getProperty("db.user", "root"),
+                        "spring.datasource.password=" + System.getProperty("db.pass", ""),
+                        "spring.jpa.show-sql=false")
+                .run()) {
+            OrderService orderService = context.getBean(OrderService.class);
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+
+            List<String> failures = new ArrayList<>();
+            for (Case check : cases(jdbc)) {
+                System.out.println("== " + check.name());
+                SqlCapture.start();
+                try {
+                    // Second page, so the count query runs too
+                    orderService.getSalesHistory(1, 20, check.filter());
+                } finally {
+                    SqlCapture.stop();
+                }
+                for (String sql : SqlCapture.captured()) {
+                    Matcher query = HISTORY_QUERY.matcher(sql);
+                    if (query.find()) {
+                        failures.addAll(explain(jdbc, check, sql, query.group(1), query.group(2)));
+                    }
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                failures.forEach(failure -> System.out.println("FAIL " + failure));
+                throw new IllegalStateException(failures.size() + " sales history query plans failed");
+            }
+            System.out.println("All sales history query plans OK");
+        }
+    }
+
+    // Filter values are taken from the data, so every filter matches something
+    private static List<Case> cases(JdbcTemplate jdbc) {
+        Map<String, Object> sample = jdbc.queryForMap(
+                "SELECT o.user_id, oi.book_id, b.title, o.status, DATE(o.created_at) AS day FROM orders o " +
+                "JOIN order_items oi ON oi.order_id = o.order_id JOIN books b ON b.book_id = oi.book_id " +
+                "ORDER BY o.order_id DESC LIMIT 1");
+        Long customerId = ((Number) sample.get("user_id")).longValue();
+        Long productId = ((Number) sample.get("book_id")).longValue();
+        String title = (String) sample.get("title");
+        String titlePart = title.substring(0, Math.min(4, title.length()));
+        List<String> status = List.of((String) sample.get("status"));
+        LocalDate to = ((java.sql.Date) sample.get("day")).toLocalDate();
+        LocalDate from = to.minusDays(30);
+        BigDecimal minTotal = new BigDecimal("20");
+        BigDecimal maxTotal = new BigDecimal("200");
+
+        return List.of(
+                new Case("no filter", filter(null, null, null, null, null, null, null, null),
+                        "orders", "idx_orders_created", false, false),
+                new Case("customer", filter(customerId, null, null, null, null, null, null, null),
+                        "orders", "idx_orders_user_created", false, false),
+                new Case("customer + dates", filter(customerId, null, null, from, to, null, null, null),
+                        "orders", "idx_orders_user_created", false, false),
+                new Case("dates", filter(null, null, null, from, to, null, null, null),
+                        "orders", "idx_orders_created", false, false),
+                new Case("status", filter(null, null, null, null, null, status, null, null),
+                        "orders", "idx_orders_status_created", false, false),
+                new Case("status + dates", filter(null, null, null, from, to, status, null, null),
+                        "orders", "idx_orders_status_created", false, false),
+                new Case("customer + status + dates + total", filter(customerId, null, null, from, to, status, minTotal, maxTotal),
+                        "orders", null, false, false),
+                // Id-first: the book's order ids straight from the index, in order
+                new Case("product", filter(null, productId, null, null, null, null, null, null),
+                        "order_items", "idx_order_items_book_order", false, false),
+                new Case("product + dates", filter(null, productId, null, from, to, null, null, null),
+                        "order_items", "idx_order_items_book_order", false, false),
+                new Case("product + status", filter(null, productId, null, null, null, status, null, null),
+                        "order_items", "idx_order_items_book_order", false, false),
+                // Neither a title substring nor a total range alone can use an index
+                new Case("product title", filter(null, null, titlePart, null, null, null, null, null),
+                        "orders", null, true, true),
+                new Case("total range", filter(null, null, null, null, null, null, minTotal, maxTotal),
+                        "orders", null, true, false)
+        );
+    }
+
+    private static SalesHistoryFilter filter(Long customerId, Long productId, String productTitle, LocalDate from,
+                                             LocalDate to, List<String> statuses, BigDecimal minTotal, BigDecimal maxTotal) {
+        return new SalesHistoryFilter(null, customerId, productId, productTitle, from, to, statuses, minTotal, maxTotal);
+    }
+
+    private static List<String> explain(JdbcTemplate jdbc, Case check, String sql, String firstTable, String alias) {
+        boolean count = sql.toLowerCase(Locale.ROOT).startsWith("select count(");
+        String query = check.name() + (count ? " (count)" : " (page)");
+        List<String> failures = new ArrayList<>();
+        System.out.println(sql);
+        for (Map<String, Object> row : jdbc.queryForList("EXPLAIN " + sql)) {
+            String table = String.valueOf(row.get("table"));
+            String type = String.valueOf(row.get("type"));
+            String key = String.valueOf(row.get("key"));
+            String extra = String.valueOf(row.get("Extra"));
+            System.out.printf("  %-8s %-8s %-30s rows=%-8s %s%n", table, type, key, row.get("rows"), extra);
+
+            if ("ALL".equals(type) && !check.fullScan()) {
+                failures.add(query + ": full scan of " + table);
+            }
+            if (extra.contains("Using temporary")) {
+                failures.add(query + ": temporary table");
+            }
+            if (!count && extra.contains("Using filesort") && !check.filesort()) {
+                failures.add(query + ": filesort");
+            }
+            // The paging query only, not the load of the page's orders by id
+            if (!count && firstTable.equals(check.table()) && table.equals(alias) && check.key() != null
+                    && !check.key().equals(key)) {
+                failures.add(query + ": " + firstTable + " read through " + key + " instead of " + check.key());
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Connector/J query interceptor keeping the SQL text sent by the current thread between start and
+     * stop; client-side prepared statements are sent with their parameters inlined, ready to EXPLAIN.
+     */
+    public static class SqlCapture implements QueryInterceptor {
+
+        private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+        private static final ThreadLocal<List<String>> LAST = ThreadLocal.withInitial(List::of);
+
+        static void start() {
+            CAPTURED.set(new ArrayList<>());
+        }
+
+        static void stop() {
+            LAST.set(CAPTURED.get());
+            CAPTURED.remove();
+        }
+
+        static List<String> captured() {
+            return LAST.get();
+        }
+
+        @Override
+        public QueryInterceptor init(MysqlConnection connection, Properties properties, Log log) {
+            return this;
+        }
+
+        @Override
+        public <T extends Resultset> T preProcess(Supplier<String> sql, Query interceptedQuery) {
+            List<String> captured = CAPTURED.get();
+            if (captured != null) {
+                captured.add(sql.get());
+            }
+            return null;
+        }
+
+        @Override
+        public boolean executeTopLevelOnly() {
+            return true;
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public <T extends Resultset> T postProcess(Supplier<String> sql, Query interceptedQuery, T originalResultSet,
+                                                   ServerSession serverSession) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.backend.services;
+
+import com.example.backend.dto.SalesHistoryFilter;
+import com.example.backend.entity.*;
+import com.example.backend.repository.OrderSpecifications;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// The raw SQL conditions of the export and id-first paths against the WHERE clause Hibernate renders for
+// OrderSpecifications.salesHistory, over the same filters. Both are reduced to the same shape (no table
+// aliases, placeholders for parameters, no spaces) before comparing. No database is needed, as in
+// OrderSpecificationsTest.
+class SalesHistoryQueriesTest {
+
+    private static final List<SalesHistoryFilter> FILTERS = List.of(
+            SalesHistoryFilter.none(),
+            SalesHistoryFilter.byCustomer(7L),
+            new SalesHistoryFilter(5L, null, null, null, null, null, null, null, null),
+            new SalesHistoryFilter(null, null, null, null, null, null, List.of("paid", " PAID", "shipped", " "), null, null),
+            new SalesHistoryFilter(null, null, null, null, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 31), null, null, null),
+            new SalesHistoryFilter(null, null, null, null, null, LocalDate.of(2025, 3, 31), null, new BigDecimal("10"), null),
+            new SalesHistoryFilter(null, null, null, null, null, null, null, new BigDecimal("10"), new BigDecimal("99")),
+            new SalesHistoryFilter(null, null, 3L, null, null, null, null, null, null),
+            new SalesHistoryFilter(null, null, null, "50% off_", null, null, null, null, null),
+            new SalesHistoryFilter(5L, 7L, 3L, "dune", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 3, 31),
+                    List.of("paid"), new BigDecimal("10"), new BigDecimal("99")));
+
+    private static final List<String> statements = new ArrayList<>();
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void buildSessionFactory() {
+        Configuration configuration = new Configuration()
+                .setProperty("hibernate.dialect", "org.hibernate.dialect.MySQLDialect")
+                .setProperty("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .setProperty("hibernate.connection.url", "jdbc:mysql://localhost:1/none")
+                .setProperty("hibernate.connection.initial_pool_size", "0");
+        configuration.setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy());
+        configuration.setStatementInspector(sql -> {
+            statements.add(sql);
+            throw new Stopped();
+        });
+        for (Class<?> entity : List.of(Address.class, Book.class, Cart.class, CartItem.class, Order.class,
+                OrderItem.class, Payment.class, PaymentMethod.class, SalesDaily.class, SalesDailyBook.class, User.class)) {
+            configuration.addAnnotatedClass(entity);
+        }
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @AfterAll
+    static void closeSessionFactory() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void exportConditionsMatchSpecification() {
+        for (SalesHistoryFilter filter : FILTERS) {
+            StringBuilder sql = new StringBuilder();
+            SalesHistoryQueries.appendConditions(filter, true, sql, new MapSqlParameterSource());
+
+            assertEquals(shape(specificationWhere(filter)), shape(where(sql.toString())), filter.toString());
+        }
+    }
+
+    @Test
+    void eachConditionBindsItsOwnValue() {
+        SalesHistoryFilter filter = FILTERS.get(FILTERS.size() - 1);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        SalesHistoryQueries.appendConditions(filter, true, new StringBuilder(), params);
+
+        assertEquals(List.of(5L, 7L, List.of("PAID"), LocalDate.of(2025, 1, 1).atStartOfDay(),
+                        LocalDate.of(2025, 4, 1).atStartOfDay(), new BigDecimal("10"), new BigDecimal("99"), 3L, "%dune%"),
+                List.of(params.getParameterNames()).stream().map(params::getValue).toList());
+    }
+
+    @Test
+    void idFirstPageLeavesProductToOrderItemsAndJoinsOrdersOnlyForOtherFilters() {
+        NamedParameterJdbcTemplate jdbc = mock(NamedParameterJdbcTemplate.class);
+        when(jdbc.queryForList(anyString(), any(MapSqlParameterSource.class), eq(Long.class))).thenReturn(List.of());
+        SalesHistoryQueries queries = new SalesHistoryQueries(jdbc);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+
+        queries.findOrderIdsByProduct(new SalesHistoryFilter(null, null, 3L, null, null, null, null, null, null),
+                PageRequest.of(0, 20));
+        queries.findOrderIdsByProduct(FILTERS.get(FILTERS.size() - 1), PageRequest.of(0, 20));
+
+        verify(jdbc, times(2)).queryForList(sql.capture(), any(MapSqlParameterSource.class), eq(Long.class));
+        assertFalse(sql.getAllValues().get(0).contains("JOIN orders"), sql.getAllValues().get(0));
+        assertFalse(sql.getAllValues().get(0).contains("EXISTS"), sql.getAllValues().get(0));
+        String joined = sql.getAllValues().get(1);
+        assertTrue(joined.contains(" JOIN orders o ON o.order_id = oi.order_id WHERE oi.book_id = :productId AND "), joined);
+        // The title is still an EXISTS, the product is not
+        assertEquals(1, joined.split("EXISTS", -1).length - 1, joined);
+        assertEquals(shape(specificationWhere(new SalesHistoryFilter(5L, 7L, null, "dune", LocalDate.of(2025, 1, 1),
+                        LocalDate.of(2025, 3, 31), List.of("paid"), new BigDecimal("10"), new BigDecimal("99")))),
+                shape(where(joined.substring(joined.indexOf(":productId") + ":productId".length(), joined.indexOf(" GROUP BY")))));
+    }
+
+    // The WHERE clause of the count query Spring Data runs for OrderRepo.findAll(spec, pageable)
+    private static String specificationWhere(SalesHistoryFilter filter) {
+        statements.clear();
+        try (Session session = sessionFactory.openSession()) {
+            SimpleJpaRepository<Order, Long> repository = new SimpleJpaRepository<>(Order.class, session);
+            assertThrows(Stopped.class, () -> repository.count(OrderSpecifications.salesHistory(filter)));
+        }
+        String sql = statements.get(0);
+        return sql.substring(sql.indexOf(" where ") + " where ".length());
+    }
+
+    // Appended " AND ..." conditions as a WHERE clause, as Hibernate renders none
+    private static String where(String conditions) {
+        return conditions.isEmpty() ? "1=1" : conditions.substring(" AND ".length());
+    }
+
+    // Lower case, without table aliases, spaces or parameter names, and with IN lists of any length as one
+    private static String shape(String where) {
+        return where.toLowerCase()
+                .replaceAll("\\b(from|join) (\\w+) \\w+", "$1 $2")
+                .replaceAll("\\b\\w+\\.", "")
+                .replaceAll(":\\w+", "?")
+                .replaceAll("\\(\\?(,\\?)*\\)", "(?)")
+                .replaceAll("\\s+", "");
+    }
+
+    private static class Stopped extends RuntimeException {
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.backend.services;
+
+import com.example.backend.cache.CatalogCache;
+import com.example.backend.cache.CatalogVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// StockService against a JdbcTemplate whose two UPDATEs are applied to an in-memory books table.
+// No transaction is active here, so cache invalidations and stream events run right away.
+class StockServiceTest {
+
+    // books.quantity by book id
+    private final Map<Long, Integer> stock = new HashMap<>();
+    // (quantity, book id) of each line sent to the database, in batch order
+    private final List<int[]> reserveLines = new ArrayList<>();
+    private final List<int[]> releaseLines = new ArrayList<>();
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final HotStockService hotStockService = mock(HotStockService.class);
+    private final CatalogCache catalogCache = new CatalogCache(1 << 20);
+    private StockService stockService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stock.put(1L, 5);
+        stock.put(2L, 1);
+        stock.put(3L, 10);
+        when(hotStockService.reserve(anyMap())).thenReturn(Map.of());
+
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            Collection<?> lines = invocation.getArgument(1);
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            boolean reserve = sql.contains("quantity - ?");
+            int[] counts = new int[lines.size()];
+            int i = 0;
+            for (Object line : lines) {
+                int[] params = new int[3];
+                PreparedStatement ps = mock(PreparedStatement.class);
+                doAnswer(set -> params[(int) set.getArgument(0) - 1] = set.getArgument(1))
+                        .when(ps).setInt(anyInt(), anyInt());
+                doAnswer(set -> params[(int) set.getArgument(0) - 1] = (int) (long) set.getArgument(1))
+                        .when(ps).setLong(anyInt(), anyLong());
+                setter.setValues(ps, line);
+
+                long bookId = params[1];
+                Integer quantity = stock.get(bookId);
+                if (reserve) {
+                    reserveLines.add(new int[]{params[0], params[1]});
+                    // quantity = quantity - ? WHERE book_id = ? AND quantity >= ?
+                    if (quantity != null && quantity >= params[2]) {
+                        stock.put(bookId, quantity - params[0]);
+                        counts[i] = 1;
+                    }
+                } else {
+                    releaseLines.add(new int[]{params[0], params[1]});
+                    if (quantity != null) {
+                        stock.put(bookId, quantity + params[0]);
+                        counts[i] = 1;
+                    }
+                }
+                i++;
+            }
+            return new int[][]{counts};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+
+        stockService = new StockService(jdbcTemplate, catalogCache, hotStockService, new AdminEventBus(0, 1, 1000));
+    }
+
+    @Test
+    void reserveTakesEveryLineInOneBatch() {
+        Set<Long> hot = stockService.reserve(Map.of(1L, 2, 3L, 4));
+
+        assertEquals(Set.of(), hot);
+        assertEquals(3, stock.get(1L));
+        assertEquals(6, stock.get(3L));
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+
+    @Test
+    void reserveSendsLinesInBookIdOrder() {
+        Map<Long, Integer> cart = new LinkedHashMap<>();
+        cart.put(3L, 1);
+        cart.put(1L, 1);
+        cart.put(2L, 1);
+
+        stockService.reserve(cart);
+
+        assertEquals(List.of(1, 2, 3), reserveLines.stream().map(line -> line[1]).toList());
+    }
+
+    @Test
+    void reserveListsEveryBookShortOfCopies() {
+        StockService.InsufficientStockException e = assertThrows(StockService.InsufficientStockException.class,
+                () -> stockService.reserve(Map.of(1L, 2, 2L, 2, 3L, 11)));
+
+        assertEquals(List.of(2L, 3L), e.getBookIds());
+    }
+
+    @Test
+    void reserveOfUnknownBookFails() {
+        StockService.InsufficientStockException e = assertThrows(StockService.InsufficientStockException.class,
+                () -> stockService.reserve(Map.of(42L, 1)));
+
+        assertEquals(List.of(42L), e.getBookIds());
+    }
+
+    @Test
+    void lastCopyIsTakenOnce() {
+        stockService.reserve(Map.of(2L, 1));
+
+        assertThrows(StockService.InsufficientStockException.class, () -> stockService.reserve(Map.of(2L, 1)));
+        assertEquals(0, stock.get(2L));
+    }
+
+    @Test
+    void hotBooksAreNotSentToDatabase() {
+        when(hotStockService.reserve(anyMap())).thenReturn(Map.of(3L, 4));
+
+        Set<Long> hot = stockService.reserve(Map.of(1L, 1, 3L, 4));
+
+        assertEquals(Set.of(3L), hot);
+        assertEquals(List.of(1), reserveLines.stream().map(line -> line[1]).toList());
+        assertEquals(10, stock.get(3L));
+    }
+
+    @Test
+    void cartOfOnlyHotBooksSkipsDatabase() {
+        when(hotStockService.reserve(anyMap())).thenReturn(Map.of(3L, 1));
+
+        assertEquals(Set.of(3L), stockService.reserve(Map.of(3L, 1)));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void reserveInvalidatesOnlyDatabaseBooks() {
+        when(hotStockService.reserve(anyMap())).thenReturn(Map.of(3L, 1));
+        CatalogVersion book1 = catalogCache.bookVersion(1L);
+        CatalogVersion book3 = catalogCache.bookVersion(3L);
+
+        stockService.reserve(Map.of(1L, 1, 3L, 1));
+
+        assertTrue(catalogCache.bookVersion(1L).version() > book1.version());
+        assertEquals(book3, catalogCache.bookVersion(3L));
+    }
+
+    @Test
+    void zeroLinesAreSkippedAndNegativeLinesRejected() {
+        stockService.reserve(Map.of(1L, 0, 2L, 1));
+        assertEquals(List.of(2), reserveLines.stream().map(line -> line[1]).toList());
+
+        assertThrows(IllegalArgumentException.class, () -> stockService.reserve(Map.of(1L, -1)));
+        assertEquals(5, stock.get(1L));
+    }
+
+    @Test
+    void releasePutsCopiesBack() {
+        stockService.reserve(Map.of(1L, 2, 3L, 4));
+
+        stockService.release(Map.of(3L, 4, 1L, 2));
+
+        assertEquals(5, stock.get(1L));
+        assertEquals(10, stock.get(3L));
+        assertEquals(List.of(1, 3), releaseLines.stream().map(line -> line[1]).toList());
+        verify(hotStockService).release(Map.of(3L, 4, 1L, 2));
+    }
+}